@@ -21,12 +21,15 @@ import com.android.ddmlib.AndroidDebugBridge;
 import com.android.ddmlib.DdmPreferences;
 import com.android.ddmlib.IDevice;
 import com.android.ddmlib.InstallException;
-import com.simpligility.maven.plugins.android.common.AaptCommandBuilder;
 import com.simpligility.maven.plugins.android.common.AndroidExtension;
+import com.simpligility.maven.plugins.android.common.ApkManifest;
 import com.simpligility.maven.plugins.android.common.ArtifactResolverHelper;
 import com.simpligility.maven.plugins.android.common.DependencyResolver;
+import com.simpligility.maven.plugins.android.common.DeviceChangeWaiter;
 import com.simpligility.maven.plugins.android.common.DeviceHelper;
+import com.simpligility.maven.plugins.android.common.LibraryMetadata;
 import com.simpligility.maven.plugins.android.common.MavenToPlexusLogAdapter;
+import com.simpligility.maven.plugins.android.common.DependencyGraphCache;
 import com.simpligility.maven.plugins.android.common.NativeHelper;
 import com.simpligility.maven.plugins.android.common.UnpackedLibHelper;
 import com.simpligility.maven.plugins.android.config.ConfigPojo;
@@ -61,9 +64,9 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Scanner;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -510,6 +513,21 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
      */
     @Parameter( property = "unpackedLibsFolder", defaultValue = "${project.build.directory}/unpacked-libs" )
     private File unpackedLibsFolder;
+
+    /**
+     * Folder of a store of unpacked AAR and APKLIB library dependencies shared by all projects and builds using it,
+     * e.g. <code>${settings.localRepository}/../android-unpacked-libs</code>. Each library is unpacked into the store
+     * once per archive content and hard linked into the {@link #unpackedLibsFolder} of the projects. If not set then
+     * every project unpacks its libraries itself.
+     */
+    @Parameter( property = "android.unpackedLibsStore" )
+    private File unpackedLibsStore;
+
+    /**
+     * The version of this plugin, recorded with the unpacked libraries so they are unpacked again by other versions.
+     */
+    @Parameter( defaultValue = "${plugin.version}", readonly = true )
+    private String pluginVersion;
     
     /**
      * Whether the plugin should show a warning if conflicting dependencies with the Android provided ones exist.
@@ -634,51 +652,63 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
     }
 
     /**
-     * Run a wait loop until adb is connected or trials run out. This method seems to work more reliably then using a
-     * listener.
+     * Wait until adb is connected or the connection wait time runs out. Returns immediately if adb is already
+     * connected, otherwise the connection state is re-checked whenever the bridge reports a device change.
      */
-    private void waitUntilConnected( AndroidDebugBridge adb )
+    private void waitUntilConnected( final AndroidDebugBridge adb )
     {
-        int trials = 10;
-        final int connectionWaitTime = 50;
-        while ( trials > 0 )
+        final long connectionWaitTime = 500;
+        final DeviceChangeWaiter waiter = new DeviceChangeWaiter().register();
+        try
         {
-            try
-            {
-                Thread.sleep( connectionWaitTime );
-            }
-            catch ( InterruptedException e )
+            waiter.await( new DeviceChangeWaiter.Condition()
             {
-                e.printStackTrace();
-            }
-            if ( adb.isConnected() )
-            {
-                break;
-            }
-            trials--;
+                @Override
+                public boolean isSatisfied()
+                {
+                    return adb.isConnected();
+                }
+            }, connectionWaitTime );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            waiter.unregister();
         }
     }
 
     /**
-     * Wait for the Android Debug Bridge to return an initial device list.
+     * Wait for the Android Debug Bridge to return an initial device list. The wait ends as soon as the bridge
+     * reports the first devices.
      */
     protected void waitForInitialDeviceList( final AndroidDebugBridge androidDebugBridge ) throws MojoExecutionException
     {
         if ( ! androidDebugBridge.hasInitialDeviceList() )
         {
             getLog().info( "Waiting for initial device list from the Android Debug Bridge" );
-            long limitTime = System.currentTimeMillis() + ADB_TIMEOUT_MS;
-            while ( ! androidDebugBridge.hasInitialDeviceList() && ( System.currentTimeMillis() < limitTime ) )
+            final DeviceChangeWaiter waiter = new DeviceChangeWaiter().register();
+            try
             {
-                try
-                {
-                    Thread.sleep( 1000 );
-                }
-                catch ( InterruptedException e )
+                waiter.await( new DeviceChangeWaiter.Condition()
                 {
-                    throw new MojoExecutionException(
-                            "Interrupted waiting for initial device list from Android Debug Bridge" );
-                }
+                    @Override
+                    public boolean isSatisfied()
+                    {
+                        return androidDebugBridge.hasInitialDeviceList();
+                    }
+                }, ADB_TIMEOUT_MS );
+            }
+            catch ( InterruptedException e )
+            {
+                throw new MojoExecutionException(
+                        "Interrupted waiting for initial device list from Android Debug Bridge" );
+            }
+            finally
+            {
+                waiter.unregister();
             }
             if ( ! androidDebugBridge.hasInitialDeviceList() )
             {
@@ -729,6 +759,10 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
         Set<Artifact> directDependentArtifacts = project.getDependencyArtifacts();
         if ( directDependentArtifacts != null )
         {
+            // Resolve the apk dependencies as one batch, so they are downloaded concurrently.
+            getArtifactResolverHelper().resolveArtifacts( getArtifactResolverHelper().getFilteredArtifacts(
+                    Collections.<String>emptyList(), directDependentArtifacts, APK ) );
+
             for ( Artifact artifact : directDependentArtifacts )
             {
                 String type = artifact.getType();
@@ -964,57 +998,7 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
      */
     protected String extractPackageNameFromApk( File apkFile ) throws MojoExecutionException
     {
-        CommandExecutor executor = CommandExecutor.Factory.createDefaultCommmandExecutor();
-        executor.setLogger( this.getLog() );
-        executor.setCaptureStdOut( true );
-        executor.setCaptureStdErr( true );
-
-        AaptCommandBuilder commandBuilder = AaptCommandBuilder
-                .dump( getLog() )
-                .xmlTree()
-                .setPathToApk( apkFile.getAbsolutePath() )
-                .addAssetFile( "AndroidManifest.xml" );
-
-        getLog().info( getAndroidSdk().getAaptPath() + " " + commandBuilder.toString() );
-        try
-        {
-            executor.executeCommand( getAndroidSdk().getAaptPath(), commandBuilder.build(), false );
-            final String xmlTree = executor.getStandardOut();
-            return extractPackageNameFromAndroidManifestXmlTree( xmlTree );
-        }
-        catch ( ExecutionException e )
-        {
-            throw new MojoExecutionException(
-                    "Error while trying to figure out package name from inside apk file " + apkFile );
-        }
-        finally
-        {
-            String errout = executor.getStandardError();
-            if ( ( errout != null ) && ( errout.trim().length() > 0 ) )
-            {
-                getLog().error( errout );
-            }
-        }
-    }
-
-    /**
-     * Extracts the package name from an XmlTree dump of AndroidManifest.xml by the <code>aapt</code> tool.
-     *
-     * @param aaptDumpXmlTree output from <code>aapt dump xmltree &lt;apkFile&gt; AndroidManifest.xml
-     * @return the package name from inside the apkFile.
-     */
-    protected String extractPackageNameFromAndroidManifestXmlTree( String aaptDumpXmlTree )
-    {
-        final Scanner scanner = new Scanner( aaptDumpXmlTree );
-        // Finds the root element named "manifest".
-        scanner.findWithinHorizon( "^E: manifest", 0 );
-        // Finds the manifest element's attribute named "package".
-        scanner.findWithinHorizon( "  A: package=\"", 0 );
-        // Extracts the package value including the trailing double quote.
-        String packageName = scanner.next( ".*?\"" );
-        // Removes the double quote.
-        packageName = packageName.substring( 0, packageName.length() - 1 );
-        return packageName;
+        return ApkManifest.forApk( apkFile, session, getLog() ).getPackageName();
     }
 
     /**
@@ -1036,7 +1020,16 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
             throw new MojoExecutionException(
                     "AndroidManifest.xml file wasn't found in next place: " + unpackedLibFolder );
         }
-        return extractPackageNameFromAndroidManifest( manifest );
+        return getLibraryMetadata( artifact ).getPackageName();
+    }
+
+    /**
+     * @param artifact an AAR or APKLIB dependency, already unpacked
+     * @return the metadata of the unpacked library, collected once per unpacking
+     */
+    protected final LibraryMetadata getLibraryMetadata( Artifact artifact ) throws MojoExecutionException
+    {
+        return LibraryMetadata.forLibrary( getUnpackedLibFolder( artifact ) );
     }
 
     protected String extractPackageNameFromAndroidManifest( File manifestFile )
@@ -1412,7 +1405,9 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
                 getArtifactResolverHelper(),
                 project,
                 new MavenToPlexusLogAdapter( getLog() ),
-                unpackedLibsFolder
+                unpackedLibsFolder,
+                unpackedLibsStore,
+                pluginVersion
             );
         }
         return unpackedLibHelper;
@@ -1425,7 +1420,8 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
             artifactResolverHelper = new ArtifactResolverHelper(
                     artifactResolver,
                     new MavenToPlexusLogAdapter( getLog() ),
-                    project.getRemoteArtifactRepositories()
+                    project.getRemoteArtifactRepositories(),
+                    session != null ? DependencyGraphCache.forSession( session ) : null
             );
         }
         return artifactResolverHelper;
@@ -1435,7 +1431,8 @@ public abstract class AbstractAndroidMojo extends AbstractMojo
     {
         if ( nativeHelper == null )
         {
-            nativeHelper = new NativeHelper( project, dependencyGraphBuilder, getLog() );
+            nativeHelper = new NativeHelper( project, dependencyGraphBuilder, getLog(),
+                    session != null ? DependencyGraphCache.forSession( session ) : null );
         }
         return nativeHelper;
     }
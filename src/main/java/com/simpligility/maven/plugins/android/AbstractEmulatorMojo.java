@@ -18,9 +18,11 @@ package com.simpligility.maven.plugins.android;
 
 import com.android.ddmlib.AdbCommandRejectedException;
 import com.android.ddmlib.AndroidDebugBridge;
+import com.android.ddmlib.CollectingOutputReceiver;
 import com.android.ddmlib.IDevice;
 import com.android.ddmlib.ShellCommandUnresponsiveException;
 import com.android.ddmlib.TimeoutException;
+import com.simpligility.maven.plugins.android.common.DeviceChangeWaiter;
 import com.simpligility.maven.plugins.android.common.DeviceHelper;
 import com.simpligility.maven.plugins.android.configuration.Emulator;
 
@@ -35,18 +37,25 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.Socket;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 
 /**
  * AbstractEmulatorMojo contains all code related to the interaction with the Android emulator. At this stage that is
- * starting and stopping the emulator.
+ * starting and stopping the emulator, or a pool of emulators booted concurrently.
  *
  * @author Manfred Moser - manfred@simpligility.com
  * @author Bryan O'Neil - bryan.oneil@hotmail.com
@@ -61,9 +70,9 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
      * operating system name.
      */
     public static final String OS_NAME = System.getProperty( "os.name" ).toLowerCase( Locale.US );
-    private static final int MILLIS_TO_SLEEP_BETWEEN_DEVICE_ONLINE_CHECKS = 200;
 
     /**
+     * Fallback polling interval, only used when the boot completion could not be watched on the device itself.
      * Even if the device finished booting, there are usually still some things going on in the background,
      * polling at a higher frequency (un-cached!) is most probably useless
      */
@@ -88,30 +97,76 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
      */
     private static final boolean[] BOOT_INDICATOR_PROP_WAIT_FOR = { false, false, true };
 
+    /**
+     * Printed by {@link #BOOT_WATCH_COMMAND} once the required boot indicators have been signalled.
+     */
+    private static final String BOOT_WATCH_MARKER = "android-maven-plugin-booted";
+
+    /**
+     * Shell command watching the required boot indicator properties on the device, so one command replaces polling
+     * them from the build machine. It prints {@link #BOOT_WATCH_MARKER} and returns once the boot completed. Output
+     * without the marker means the command ended early, e.g. on a timeout, and the boot is not confirmed.
+     */
+    private static final String BOOT_WATCH_COMMAND = createBootWatchCommand();
+
     /**
      * Warning threshold for narrow timeout values
      * TODO Improve; e.g. with an additional percentage threshold
      */
     private static final long START_TIMEOUT_REMAINING_TIME_WARNING_THRESHOLD = 5000; //[ms]
 
+    /**
+     * Range of console ports the emulator uses, the adb port is always the console port + 1.
+     */
+    private static final int FIRST_EMULATOR_CONSOLE_PORT = 5554;
+    private static final int LAST_EMULATOR_CONSOLE_PORT = 5682;
+
     /**
      * Configuration for the emulator goals. Either use the plugin configuration like this
      * <pre>
      * &lt;emulator&gt;
      *   &lt;avd&gt;Default&lt;/avd&gt;
      *   &lt;wait&gt;20000&lt;/wait&gt;
+     *   &lt;connectTimeout&gt;20000&lt;/connectTimeout&gt;
+     *   &lt;bootTimeout&gt;120000&lt;/bootTimeout&gt;
      *   &lt;options&gt;-no-skin&lt;/options&gt;
      *   &lt;executable&gt;emulator-arm&lt;/executable&gt;
      *   &lt;location&gt;C:/SDK/emulator&lt;/location&gt;
+     *   &lt;snapshot&gt;clean&lt;/snapshot&gt;
+     *   &lt;snapshotReset&gt;true&lt;/snapshotReset&gt;
      * &lt;/emulator&gt;
      * </pre>
      * or configure as properties  on the command line as android.emulator.avd, android.emulator.wait,
-     * android.emulator.options and android.emulator.executable or in pom or settings file as emulator.avd,
-     * emulator.wait and emulator.options.
+     * android.emulator.options, android.emulator.executable, android.emulator.snapshot and
+     * android.emulator.snapshotReset or in pom or settings file as emulator.avd, emulator.wait and emulator.options.
      */
     @Parameter
     private Emulator emulator;
 
+    /**
+     * Configuration for a pool of emulators that are booted concurrently. Each entry takes the same elements as
+     * {@link #emulator}, with the avd being required, e.g.
+     * <pre>
+     * &lt;emulators&gt;
+     *   &lt;emulator&gt;
+     *     &lt;avd&gt;Nexus5-API23&lt;/avd&gt;
+     *     &lt;wait&gt;120000&lt;/wait&gt;
+     *   &lt;/emulator&gt;
+     *   &lt;emulator&gt;
+     *     &lt;avd&gt;Nexus5-API25&lt;/avd&gt;
+     *     &lt;wait&gt;120000&lt;/wait&gt;
+     *   &lt;/emulator&gt;
+     * &lt;/emulators&gt;
+     * </pre>
+     * Elements not set for an entry fall back to the command line properties and defaults. Unless the options of an
+     * entry contain a <code>-port</code>, every emulator of the pool gets its own free console port assigned.
+     * The booted emulators are tracked for the whole Maven session, so later modules of the reactor with the same
+     * pool reuse them instead of starting them again, and emulator-stop with the pool configured stops all of them.
+     * If set, {@link #emulator} is ignored by emulator-start and emulator-stop.
+     */
+    @Parameter
+    private List<Emulator> emulators;
+
     /**
      * Name of the Android Virtual Device (emulatorAvd) that will be started by the emulator. Default value is "Default"
      *
@@ -134,6 +189,24 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
     @Parameter( property = "android.emulator.wait" )
     private String emulatorWait;
 
+    /**
+     * Maximum time in milliseconds to wait for the emulator to come online with the Android Debug Bridge. Defaults
+     * to {@link #emulatorWait}.
+     *
+     * @see com.simpligility.maven.plugins.android.configuration.Emulator#connectTimeout
+     */
+    @Parameter( property = "android.emulator.connectTimeout" )
+    private String emulatorConnectTimeout;
+
+    /**
+     * Maximum time in milliseconds to wait for the emulator to finish booting once it is online. If not set, the
+     * boot has to complete within {@link #emulatorWait} from the emulator start.
+     *
+     * @see com.simpligility.maven.plugins.android.configuration.Emulator#bootTimeout
+     */
+    @Parameter( property = "android.emulator.bootTimeout" )
+    private String emulatorBootTimeout;
+
     /**
      * Additional command line options for the emulator start up. This option can be used to pass any additional
      * options desired to the invocation of the emulator. Use emulator -help for more details. An example would be
@@ -159,26 +232,25 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
     private String emulatorLocation;
 
     /**
-     * parsed value for avd that will be used for the invocation.
-     */
-    private String parsedAvd;
-
-    /**
-     * parsed value for options that will be used for the invocation.
-     */
-    private String parsedOptions;
-
-    /**
-     * parsed value for wait that will be used for the invocation.
+     * Name of an emulator snapshot to boot from. The emulator is started with <code>-snapshot</code> and
+     * <code>-no-snapshot-save</code>, so it loads the snapshot in a few seconds instead of doing a cold boot and
+     * leaves it untouched when shut down. If the snapshot does not exist yet, the emulator cold boots and the
+     * snapshot is saved as soon as the boot completed, so all later starts can use it.
+     *
+     * @see com.simpligility.maven.plugins.android.configuration.Emulator#snapshot
      */
-    private String parsedWait;
-
-    private String parsedExecutable;
+    @Parameter( property = "android.emulator.snapshot" )
+    private String emulatorSnapshot;
 
     /**
-     * parsed value for location that will be used for the invocation.
+     * Reset an emulator that is already running to the {@link #emulatorSnapshot} instead of using it in whatever
+     * state the previous module left it. This gives each module a clean emulator without a full restart. In a
+     * parallel build, an emulator another module is still using is not reset.
+     *
+     * @see com.simpligility.maven.plugins.android.configuration.Emulator#snapshotReset
      */
-    private String parsedEmulatorLocation;
+    @Parameter( property = "android.emulator.snapshotReset", defaultValue = "false" )
+    private boolean emulatorSnapshotReset;
 
     private static final String START_EMULATOR_MSG = "Starting android emulator with script: ";
     private static final String START_EMULATOR_WAIT_MSG = "Waiting for emulator start:";
@@ -209,33 +281,22 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
     }
 
     /**
-     * Start the Android Emulator with the specified options.
+     * Start the Android Emulator with the specified options, or all emulators of the pool if {@link #emulators} is
+     * configured.
      *
      * @throws org.apache.maven.plugin.MojoExecutionException
      *
      * @see #emulatorAvd
      * @see #emulatorWait
      * @see #emulatorOptions
+     * @see #emulators
      */
     protected void startAndroidEmulator() throws MojoExecutionException
     {
-        parseParameters();
-
-        CommandExecutor executor = CommandExecutor.Factory.createDefaultCommmandExecutor();
-        executor.setLogger( this.getLog() );
+        final List<ParsedEmulator> parsedEmulators = parseEmulators();
 
         try
         {
-            String filename;
-            if ( isWindows() )
-            {
-                filename = writeEmulatorStartScriptWindows();
-            }
-            else
-            {
-                filename = writeEmulatorStartScriptUnix();
-            }
-
             final AndroidDebugBridge androidDebugBridge = initAndroidDebugBridge();
             if ( androidDebugBridge.isConnected() )
             {
@@ -244,49 +305,351 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
                 int numberOfDevices = devices.size();
                 getLog().info( "Found " + numberOfDevices + " devices connected with the Android Debug Bridge" );
 
-                IDevice existingEmulator = findExistingEmulator( devices );
-                if ( existingEmulator == null )
+                if ( parsedEmulators.size() > 1 )
                 {
-                    getLog().info( START_EMULATOR_MSG + filename );
-                    executor.executeCommand( filename, null );
+                    assignConsolePorts( parsedEmulators, devices );
+                }
+                bootEmulators( androidDebugBridge, parsedEmulators, devices );
+            }
+        }
+        catch ( MojoExecutionException e )
+        {
+            throw e;
+        }
+        catch ( Exception e )
+        {
+            throw new MojoExecutionException( "", e );
+        }
+    }
 
-                    getLog().info( START_EMULATOR_WAIT_MSG + parsedWait );
-                    // wait for the emulator to start up
-                    boolean booted = waitUntilDeviceIsBootedOrTimeout( androidDebugBridge );
-                    if ( booted )
-                    {
-                        getLog().info( "Emulator is up and running." );
-                        unlockEmulator( androidDebugBridge );
-                    }
-                    else
+    /**
+     * Boot the given emulators concurrently, reusing the emulators already booted in this session.
+     */
+    private void bootEmulators( final AndroidDebugBridge androidDebugBridge, List<ParsedEmulator> parsedEmulators,
+                                List<IDevice> devices ) throws MojoExecutionException, InterruptedException
+    {
+        final EmulatorRegistry registry = EmulatorRegistry.getInstance( session );
+        final Map<String, Future<String>> boots = new LinkedHashMap<String, Future<String>>();
+        final ExecutorService executor = Executors.newFixedThreadPool( parsedEmulators.size() );
+        try
+        {
+            final Set<String> reused = new HashSet<String>();
+            for ( final ParsedEmulator parsedEmulator : parsedEmulators )
+            {
+                forgetDetachedEmulator( registry, parsedEmulator.avd, devices );
+                if ( registry.getSerialNumber( parsedEmulator.avd ) != null )
+                {
+                    reused.add( parsedEmulator.avd );
+                }
+                boots.put( parsedEmulator.avd, registry.boot( parsedEmulator.avd, new Callable<String>()
+                {
+                    @Override
+                    public String call() throws Exception
                     {
-                        throw new MojoExecutionException( "Timeout while waiting for emulator to startup." );
+                        return bootEmulator( androidDebugBridge, parsedEmulator );
                     }
+                }, executor ) );
+            }
 
+            MojoExecutionException failure = null;
+            for ( ParsedEmulator parsedEmulator : parsedEmulators )
+            {
+                final Future<String> boot = boots.get( parsedEmulator.avd );
+                try
+                {
+                    final String serialNumber = boot.get();
+                    getLog().debug( "Emulator " + parsedEmulator.avd + " running as " + serialNumber );
+                    leaseEmulator( registry, androidDebugBridge, parsedEmulator, serialNumber,
+                            reused.contains( parsedEmulator.avd ) );
                 }
-                else
+                catch ( java.util.concurrent.ExecutionException e )
                 {
-                    getLog().info( String.format(
-                            "Emulator already running [Serial No: '%s', AVD Name '%s']. " + "Skipping start and wait.",
-                            existingEmulator.getSerialNumber(), existingEmulator.getAvdName() ) );
+                    getLog().error( "Failed to start emulator " + parsedEmulator.avd + ": "
+                            + e.getCause().getMessage() );
+                    if ( failure == null )
+                    {
+                        failure = e.getCause() instanceof MojoExecutionException
+                                ? ( MojoExecutionException ) e.getCause()
+                                : new MojoExecutionException( "Failed to start emulator " + parsedEmulator.avd,
+                                        e.getCause() );
+                    }
                 }
             }
+            if ( failure != null )
+            {
+                throw failure;
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Lease a booted emulator to this module. An emulator reused from an earlier module is reset to the snapshot
+     * first if requested, unless another module of a parallel build is still using it.
+     */
+    private void leaseEmulator( EmulatorRegistry registry, final AndroidDebugBridge androidDebugBridge,
+                                final ParsedEmulator parsedEmulator, final String serialNumber, boolean reused )
+            throws MojoExecutionException
+    {
+        final Callable<Void> reset = reused && parsedEmulator.snapshotReset ? new Callable<Void>()
+        {
+            @Override
+            public Void call() throws MojoExecutionException
+            {
+                resetToSnapshot( androidDebugBridge, parsedEmulator, serialNumber );
+                return null;
+            }
+        } : null;
+        try
+        {
+            if ( !registry.lease( parsedEmulator.avd, project, session, reset ) )
+            {
+                getLog().warn( "Not resetting emulator " + parsedEmulator.avd + " to snapshot "
+                        + parsedEmulator.snapshot + ", another module of the build is still using it." );
+            }
+        }
+        catch ( MojoExecutionException e )
+        {
+            throw e;
         }
         catch ( Exception e )
         {
-            throw new MojoExecutionException( "", e );
+            throw new MojoExecutionException( "Failed to reset emulator " + parsedEmulator.avd + " to snapshot "
+                    + parsedEmulator.snapshot, e );
+        }
+    }
+
+    /**
+     * Start a single emulator unless it is already running and wait for it to finish booting.
+     *
+     * @return the serial number of the booted emulator
+     */
+    private String bootEmulator( AndroidDebugBridge androidDebugBridge, ParsedEmulator parsedEmulator )
+            throws MojoExecutionException, ExecutionException
+    {
+        IDevice existingEmulator = findExistingEmulator( Arrays.asList( androidDebugBridge.getDevices() ),
+                parsedEmulator.avd );
+        if ( existingEmulator != null )
+        {
+            getLog().info( String.format(
+                    "Emulator already running [Serial No: '%s', AVD Name '%s']. " + "Skipping start and wait.",
+                    existingEmulator.getSerialNumber(), existingEmulator.getAvdName() ) );
+            if ( parsedEmulator.snapshotReset )
+            {
+                resetToSnapshot( androidDebugBridge, parsedEmulator, existingEmulator.getSerialNumber() );
+            }
+            return existingEmulator.getSerialNumber();
+        }
+
+        String filename;
+        if ( isWindows() )
+        {
+            filename = writeEmulatorStartScriptWindows( parsedEmulator );
+        }
+        else
+        {
+            filename = writeEmulatorStartScriptUnix( parsedEmulator );
+        }
+
+        CommandExecutor executor = CommandExecutor.Factory.createDefaultCommmandExecutor();
+        executor.setLogger( this.getLog() );
+
+        getLog().info( START_EMULATOR_MSG + filename );
+        executor.executeCommand( filename, null );
+
+        getLog().info( START_EMULATOR_WAIT_MSG + parsedEmulator.wait );
+        // wait for the emulator to start up
+        boolean booted = waitUntilDeviceIsBootedOrTimeout( androidDebugBridge, parsedEmulator );
+        if ( !booted )
+        {
+            throw new MojoExecutionException( "Timeout while waiting for emulator " + parsedEmulator.avd
+                    + " to startup." );
+        }
+        getLog().info( "Emulator " + parsedEmulator.avd + " is up and running." );
+        unlockEmulator( androidDebugBridge, parsedEmulator.avd );
+
+        final IDevice bootedEmulator = findExistingEmulator( Arrays.asList( androidDebugBridge.getDevices() ),
+                parsedEmulator.avd );
+        if ( bootedEmulator == null )
+        {
+            throw new MojoExecutionException( "Emulator " + parsedEmulator.avd
+                    + " is no longer attached to the Android Debug Bridge after booting." );
+        }
+        final String serialNumber = bootedEmulator.getSerialNumber();
+        if ( parsedEmulator.snapshot != null )
+        {
+            createSnapshotIfMissing( parsedEmulator, serialNumber );
+        }
+        return serialNumber;
+    }
+
+    /**
+     * Save the configured snapshot of a freshly booted emulator, unless the emulator was booted from it.
+     */
+    private void createSnapshotIfMissing( ParsedEmulator parsedEmulator, String serialNumber )
+            throws MojoExecutionException
+    {
+        final String snapshots = executeEmulatorConsoleCommand( serialNumber, "avd", "snapshot", "list" );
+        for ( String line : snapshots.split( "\\r?\\n" ) )
+        {
+            if ( Arrays.asList( line.trim().split( "\\s+" ) ).contains( parsedEmulator.snapshot ) )
+            {
+                getLog().debug( "Emulator " + parsedEmulator.avd + " has snapshot " + parsedEmulator.snapshot );
+                return;
+            }
+        }
+
+        getLog().info( "Saving snapshot " + parsedEmulator.snapshot + " of emulator " + parsedEmulator.avd
+                + " for faster starts" );
+        final long start = System.currentTimeMillis();
+        final String result = executeEmulatorConsoleCommand( serialNumber, "avd", "snapshot", "save",
+                parsedEmulator.snapshot );
+        if ( result.contains( "KO" ) )
+        {
+            getLog().warn( "Failed to save snapshot " + parsedEmulator.snapshot + " of emulator "
+                    + parsedEmulator.avd + ": " + result.trim() );
+        }
+        else
+        {
+            getLog().info( "Snapshot " + parsedEmulator.snapshot + " saved in "
+                    + ( System.currentTimeMillis() - start ) + " ms" );
+        }
+    }
+
+    /**
+     * Reset a running emulator to the configured snapshot and wait until it is usable again.
+     */
+    private void resetToSnapshot( AndroidDebugBridge androidDebugBridge, ParsedEmulator parsedEmulator,
+                                  String serialNumber ) throws MojoExecutionException
+    {
+        if ( parsedEmulator.snapshot == null )
+        {
+            getLog().warn( "Snapshot reset requested for emulator " + parsedEmulator.avd
+                    + ", but no snapshot is configured. Skipping reset." );
+            return;
+        }
+
+        getLog().info( "Resetting emulator " + parsedEmulator.avd + " to snapshot " + parsedEmulator.snapshot );
+        final long start = System.currentTimeMillis();
+        final String result = executeEmulatorConsoleCommand( serialNumber, "avd", "snapshot", "load",
+                parsedEmulator.snapshot );
+        if ( result.contains( "KO" ) )
+        {
+            throw new MojoExecutionException( "Failed to reset emulator " + parsedEmulator.avd + " to snapshot "
+                    + parsedEmulator.snapshot + ": " + result.trim() );
+        }
+        if ( !waitUntilDeviceIsBootedOrTimeout( androidDebugBridge, parsedEmulator ) )
+        {
+            throw new MojoExecutionException( "Timeout while waiting for emulator " + parsedEmulator.avd
+                    + " to come back after the snapshot reset." );
+        }
+        getLog().info( "Emulator " + parsedEmulator.avd + " reset in " + ( System.currentTimeMillis() - start )
+                + " ms" );
+    }
+
+    /**
+     * Run a command on the emulator console through <code>adb emu</code>, which takes care of the console
+     * authentication.
+     *
+     * @return the output of the command
+     */
+    private String executeEmulatorConsoleCommand( String serialNumber, String... command )
+            throws MojoExecutionException
+    {
+        CommandExecutor executor = CommandExecutor.Factory.createDefaultCommmandExecutor();
+        executor.setLogger( this.getLog() );
+        executor.setCaptureStdOut( true );
+
+        final List<String> parameters = new ArrayList<String>();
+        parameters.add( "-s" );
+        parameters.add( serialNumber );
+        parameters.add( "emu" );
+        parameters.addAll( Arrays.asList( command ) );
+        try
+        {
+            executor.executeCommand( getAndroidSdk().getAdbPath(), parameters, false );
+            return executor.getStandardOut();
+        }
+        catch ( ExecutionException e )
+        {
+            throw new MojoExecutionException( "Failed to run emulator command " + StringUtils.join( command, ' ' )
+                    + " on " + serialNumber, e );
+        }
+    }
+
+    /**
+     * Remove an emulator from the registry if it was booted earlier in the session, but is not attached any more.
+     */
+    private void forgetDetachedEmulator( EmulatorRegistry registry, String avd, List<IDevice> devices )
+    {
+        final String serialNumber = registry.getSerialNumber( avd );
+        if ( serialNumber == null )
+        {
+            return;
+        }
+        for ( IDevice device : devices )
+        {
+            if ( serialNumber.equals( device.getSerialNumber() ) )
+            {
+                getLog().info( "Reusing emulator " + avd + " [Serial No: '" + serialNumber + "'] started earlier "
+                        + "in this build." );
+                return;
+            }
+        }
+        getLog().info( "Emulator " + avd + " started earlier in this build is no longer attached." );
+        registry.remove( avd );
+    }
+
+    /**
+     * Give each emulator of the pool that is not running yet its own console port, so that emulators starting at
+     * the same time do not compete for the same port.
+     */
+    void assignConsolePorts( List<ParsedEmulator> parsedEmulators, List<IDevice> devices )
+    {
+        final Set<Integer> usedPorts = new HashSet<Integer>();
+        for ( IDevice device : devices )
+        {
+            if ( device.isEmulator() )
+            {
+                usedPorts.add( extractPortFromDevice( device ) );
+            }
+        }
+
+        int port = FIRST_EMULATOR_CONSOLE_PORT;
+        for ( ParsedEmulator parsedEmulator : parsedEmulators )
+        {
+            if ( findExistingEmulator( devices, parsedEmulator.avd ) != null
+                    || parsedEmulator.options.contains( "-port" ) )
+            {
+                continue;
+            }
+            while ( usedPorts.contains( port ) )
+            {
+                port += 2;
+            }
+            if ( port > LAST_EMULATOR_CONSOLE_PORT )
+            {
+                getLog().warn( "No free console port left for emulator " + parsedEmulator.avd );
+                continue;
+            }
+            usedPorts.add( port );
+            parsedEmulator.options = ( parsedEmulator.options + " -port " + port ).trim();
         }
     }
 
     /**
      * Unlocks the emulator.
      * @param androidDebugBridge
+     * @param avd the AVD name of the emulator to unlock
      */
-    void unlockEmulator( AndroidDebugBridge androidDebugBridge )
+    void unlockEmulator( AndroidDebugBridge androidDebugBridge, String avd )
     {
         if ( emulatorUnlock )
         {
-            IDevice myEmulator = findExistingEmulator( Arrays.asList( androidDebugBridge.getDevices() ) );
+            IDevice myEmulator = findExistingEmulator( Arrays.asList( androidDebugBridge.getDevices() ), avd );
             int devicePort = extractPortFromDevice( myEmulator );
             if ( devicePort == -1 )
             {
@@ -310,150 +673,162 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
         }
     }
 
-    // TODO Separate timeout params?: New param 'android.emulator.bootTimeout', rename param 'android.emulator.wait' to 'android.emulator.connectTimeout'
     // TODO Higher default timeout(s)?: Perhaps at least for emulators, since they are probably booted or even created on demand
-    boolean waitUntilDeviceIsBootedOrTimeout( AndroidDebugBridge androidDebugBridge )
+    boolean waitUntilDeviceIsBootedOrTimeout( final AndroidDebugBridge androidDebugBridge,
+                                              final ParsedEmulator parsedEmulator )
             throws MojoExecutionException
     {
-        final long timeout = System.currentTimeMillis() + Long.parseLong( parsedWait );
+        final long start = System.currentTimeMillis();
+        long timeout = start + Long.parseLong( parsedEmulator.connectTimeout );
         IDevice myEmulator;
         boolean devOnline;
         boolean sysBootCompleted = false;
         long remainingTime = 0;
 
-        //If necessary, wait until the device is online or the specified timeout is reached
-        boolean waitingForConnection = false;
-        do
+        //If necessary, wait until the device is online or the connect timeout is reached
+        final IDevice[] onlineEmulator = new IDevice[ 1 ];
+        final DeviceChangeWaiter.Condition emulatorOnline = new DeviceChangeWaiter.Condition()
         {
-            myEmulator = findExistingEmulator( Arrays.asList( androidDebugBridge.getDevices() ) );
-            devOnline = ( myEmulator != null ) && ( myEmulator.isOnline() );
-            if ( devOnline )
-            {
-                break;
-            }
-            else
-            {
-                myEmulator = null;
-            }
-
-            if ( !waitingForConnection )
+            @Override
+            public boolean isSatisfied()
             {
-                waitingForConnection = true;
-                getLog().info( "Waiting for the device to go online..." );
+                final IDevice found = findExistingEmulator( Arrays.asList( androidDebugBridge.getDevices() ),
+                        parsedEmulator.avd );
+                onlineEmulator[ 0 ] = ( found != null && found.isOnline() ) ? found : null;
+                return onlineEmulator[ 0 ] != null;
             }
+        };
+        if ( !emulatorOnline.isSatisfied() )
+        {
+            getLog().info( "Waiting for the device to go online..." );
+            final DeviceChangeWaiter waiter = new DeviceChangeWaiter().register();
             try
             {
-                Thread.sleep( MILLIS_TO_SLEEP_BETWEEN_DEVICE_ONLINE_CHECKS );
+                waiter.await( emulatorOnline, timeout - System.currentTimeMillis() );
             }
             catch ( InterruptedException e )
             {
                 throw new MojoExecutionException( "Interrupted waiting for device to become ready" );
             }
+            finally
+            {
+                waiter.unregister();
+            }
+        }
+        myEmulator = onlineEmulator[ 0 ];
+        devOnline = myEmulator != null;
 
-            remainingTime = timeout - System.currentTimeMillis();
-        } while ( remainingTime > 0 );
+        if ( parsedEmulator.bootTimeout != null )
+        {
+            timeout = System.currentTimeMillis() + Long.parseLong( parsedEmulator.bootTimeout );
+        }
+        else
+        {
+            timeout = start + Long.parseLong( parsedEmulator.wait );
+        }
 
         if ( devOnline )
         {
-            boolean waitingForBootCompleted = false;
-            final String[] bootIndicatorPropValues = new String[ BOOT_INDICATOR_PROP_NAMES.length ];
-            boolean anyTargetStateReached = false;
-            boolean requiredTargetStatesReached = false;
+            getLog().debug( "Device online after " + ( System.currentTimeMillis() - start ) + " ms" );
+            sysBootCompleted = watchBootCompleted( myEmulator, timeout - System.currentTimeMillis() );
+            remainingTime = timeout - System.currentTimeMillis();
 
-            // If necessary, wait until the device's system is booted or the specified timeout is reached
-            do
+            if ( !sysBootCompleted )
             {
-                try
-                {
-                    // update state flags...
-                    anyTargetStateReached = false;
-                    requiredTargetStatesReached = true;
+                final String[] bootIndicatorPropValues = new String[ BOOT_INDICATOR_PROP_NAMES.length ];
+                boolean anyTargetStateReached = false;
+                boolean requiredTargetStatesReached = false;
 
-                    for ( int indicatorProp = 0; indicatorProp < BOOT_INDICATOR_PROP_NAMES.length; ++indicatorProp )
+                // If the boot watch did not confirm it, poll until the device's system is booted or the specified
+                // timeout is reached
+                do
+                {
+                    try
                     {
-                        // issue an un-cached property request
-                        boolean targetStateReached =
-                                (
-                                        bootIndicatorPropValues[indicatorProp] != null
-                                                &&  bootIndicatorPropValues[indicatorProp]
-                                                .equals( BOOT_INDICATOR_PROP_TARGET_VALUES[indicatorProp] )
-                                );
-                        if ( !targetStateReached )
+                        // update state flags...
+                        anyTargetStateReached = false;
+                        requiredTargetStatesReached = true;
+
+                        for ( int indicatorProp = 0; indicatorProp < BOOT_INDICATOR_PROP_NAMES.length; ++indicatorProp )
                         {
-                            // (re)query
-                            bootIndicatorPropValues[indicatorProp] =
-                                    myEmulator.getPropertySync( BOOT_INDICATOR_PROP_NAMES[indicatorProp] );
-                            targetStateReached =
+                            // issue an un-cached property request
+                            boolean targetStateReached =
                                     (
                                             bootIndicatorPropValues[indicatorProp] != null
                                                     &&  bootIndicatorPropValues[indicatorProp]
                                                     .equals( BOOT_INDICATOR_PROP_TARGET_VALUES[indicatorProp] )
                                     );
+                            if ( !targetStateReached )
+                            {
+                                // (re)query
+                                bootIndicatorPropValues[indicatorProp] =
+                                        myEmulator.getPropertySync( BOOT_INDICATOR_PROP_NAMES[indicatorProp] );
+                                targetStateReached =
+                                        (
+                                                bootIndicatorPropValues[indicatorProp] != null
+                                                        &&  bootIndicatorPropValues[indicatorProp]
+                                                        .equals( BOOT_INDICATOR_PROP_TARGET_VALUES[indicatorProp] )
+                                        );
+                            }
+                            anyTargetStateReached |= targetStateReached;
+                            requiredTargetStatesReached &=
+                                    BOOT_INDICATOR_PROP_WAIT_FOR[indicatorProp] ? targetStateReached : true;
+
+                            getLog().debug( BOOT_INDICATOR_PROP_NAMES[indicatorProp]
+                                            + " : " +  bootIndicatorPropValues[indicatorProp]
+                                            + ( targetStateReached ? " == " : " != " )
+                                            + BOOT_INDICATOR_PROP_TARGET_VALUES[indicatorProp]
+                                            + " [" + ( targetStateReached ? "OK" : "PENDING" ) + ']'
+                            );
                         }
-                        anyTargetStateReached |= targetStateReached;
-                        requiredTargetStatesReached &=
-                                BOOT_INDICATOR_PROP_WAIT_FOR[indicatorProp] ? targetStateReached : true;
-
-                        getLog().debug( BOOT_INDICATOR_PROP_NAMES[indicatorProp]
-                                        + " : " +  bootIndicatorPropValues[indicatorProp]
-                                        + ( targetStateReached ? " == " : " != " )
-                                        + BOOT_INDICATOR_PROP_TARGET_VALUES[indicatorProp]
-                                        + " [" + ( targetStateReached ? "OK" : "PENDING" ) + ']'
-                        );
                     }
-                }
-                catch ( TimeoutException e )
-                {
-                    // TODO Abort here? Not too problematic since timeouts are used
-                    // optimistically ignore this exception and continue...
-                }
-                catch ( AdbCommandRejectedException e )
-                {
-                    // TODO Abort here? Not too problematic since timeouts are used
-                    // optimistically ignore this exception and continue...
-                }
-                catch ( ShellCommandUnresponsiveException e )
-                {
-                    // TODO Abort here? Not too problematic since timeouts are used
-                    // optimistically ignore this exception and continue...
-                }
-                catch ( IOException e )
-                {
-                    throw new MojoExecutionException( "IO error during status request" , e );
-                }
-
-                remainingTime = timeout - System.currentTimeMillis();
+                    catch ( TimeoutException e )
+                    {
+                        // TODO Abort here? Not too problematic since timeouts are used
+                        // optimistically ignore this exception and continue...
+                    }
+                    catch ( AdbCommandRejectedException e )
+                    {
+                        // TODO Abort here? Not too problematic since timeouts are used
+                        // optimistically ignore this exception and continue...
+                    }
+                    catch ( ShellCommandUnresponsiveException e )
+                    {
+                        // TODO Abort here? Not too problematic since timeouts are used
+                        // optimistically ignore this exception and continue...
+                    }
+                    catch ( IOException e )
+                    {
+                        throw new MojoExecutionException( "IO error during status request" , e );
+                    }
 
-                if ( remainingTime > 0 )
-                {
-                    // consider the boot process to be finished, if all required states have been reached
-                    sysBootCompleted = requiredTargetStatesReached;
-                }
-                else
-                {
-                    // on timeout, use any indicator
-                    sysBootCompleted = anyTargetStateReached;
-                }
+                    remainingTime = timeout - System.currentTimeMillis();
 
-                if ( remainingTime > 0 && !sysBootCompleted )
-                {
-                    if ( !waitingForBootCompleted )
+                    if ( remainingTime > 0 )
                     {
-                        waitingForBootCompleted = true;
-                        getLog().info( "Waiting for the device to finish booting..." );
+                        // consider the boot process to be finished, if all required states have been reached
+                        sysBootCompleted = requiredTargetStatesReached;
                     }
-
-                    try
+                    else
                     {
-                        Thread.sleep( MILLIS_TO_SLEEP_BETWEEN_SYS_BOOTED_CHECKS );
+                        // on timeout, use any indicator
+                        sysBootCompleted = anyTargetStateReached;
                     }
-                    catch ( InterruptedException e )
+
+                    if ( remainingTime > 0 && !sysBootCompleted )
                     {
-                        throw new MojoExecutionException(
-                                "Interrupted while waiting for the device to finish booting" );
+                        try
+                        {
+                            Thread.sleep( MILLIS_TO_SLEEP_BETWEEN_SYS_BOOTED_CHECKS );
+                        }
+                        catch ( InterruptedException e )
+                        {
+                            throw new MojoExecutionException(
+                                    "Interrupted while waiting for the device to finish booting" );
+                        }
                     }
-                }
-            } while ( !sysBootCompleted && remainingTime > 0 );
+                } while ( !sysBootCompleted && remainingTime > 0 );
+            }
             if ( sysBootCompleted && remainingTime < START_TIMEOUT_REMAINING_TIME_WARNING_THRESHOLD )
             {
                 getLog().warn(
@@ -463,7 +838,66 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
         return sysBootCompleted;
     }
 
-    private IDevice findExistingEmulator( List<IDevice> devices )
+    /**
+     * Block until the device signals the required boot indicators, using a single shell command on the device
+     * that returns as soon as the boot completed. Problems are only logged, the boot indicators are polled
+     * afterwards unless the watch confirmed the boot.
+     *
+     * @param device        the online device to watch
+     * @param remainingTime time left until the boot timeout in milliseconds
+     * @return true if the device signalled all required boot indicators
+     */
+    private boolean watchBootCompleted( IDevice device, long remainingTime )
+    {
+        if ( remainingTime <= 0 )
+        {
+            return false;
+        }
+        getLog().info( "Waiting for the device to finish booting..." );
+        final long start = System.currentTimeMillis();
+        final CollectingOutputReceiver receiver = new CollectingOutputReceiver();
+        try
+        {
+            device.executeShellCommand( BOOT_WATCH_COMMAND, receiver, remainingTime, TimeUnit.MILLISECONDS );
+            getLog().debug( "Boot watch finished after " + ( System.currentTimeMillis() - start ) + " ms: "
+                    + receiver.getOutput().trim() );
+            return receiver.getOutput().contains( BOOT_WATCH_MARKER );
+        }
+        catch ( ShellCommandUnresponsiveException e )
+        {
+            getLog().debug( "Device did not finish booting within the timeout" );
+        }
+        catch ( TimeoutException | AdbCommandRejectedException | IOException e )
+        {
+            // e.g. adb restarting on the emulator, the indicators are polled instead
+            getLog().debug( "Unable to watch the boot state on the device: " + e.getMessage() );
+        }
+        return false;
+    }
+
+    /**
+     * @return shell command looping on the device until all required boot indicators reached their target value
+     */
+    private static String createBootWatchCommand()
+    {
+        final StringBuilder condition = new StringBuilder();
+        for ( int indicatorProp = 0; indicatorProp < BOOT_INDICATOR_PROP_NAMES.length; ++indicatorProp )
+        {
+            if ( BOOT_INDICATOR_PROP_WAIT_FOR[indicatorProp] )
+            {
+                if ( condition.length() > 0 )
+                {
+                    condition.append( " || " );
+                }
+                condition.append( "[ \"$(getprop " ).append( BOOT_INDICATOR_PROP_NAMES[indicatorProp] )
+                        .append( ")\" != \"" ).append( BOOT_INDICATOR_PROP_TARGET_VALUES[indicatorProp] )
+                        .append( "\" ]" );
+            }
+        }
+        return "while " + condition + "; do sleep 1; done; echo " + BOOT_WATCH_MARKER;
+    }
+
+    private IDevice findExistingEmulator( List<IDevice> devices, String avd )
     {
         IDevice existingEmulator = null;
 
@@ -471,7 +905,7 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
         {
             if ( device.isEmulator() )
             {
-                if ( isExistingEmulator( device ) )
+                if ( isExistingEmulator( device, avd ) )
                 {
                     existingEmulator = device;
                     break;
@@ -487,11 +921,12 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
      * and <code>false</code> if the device AVD names are different.
      *
      * @param device The device to check
+     * @param avd The AVD name of the emulator the current command is related to
      * @return Boolean results of the check
      */
-    private boolean isExistingEmulator( IDevice device )
+    private boolean isExistingEmulator( IDevice device, String avd )
     {
-        return ( ( device.getAvdName() != null ) && ( device.getAvdName().equalsIgnoreCase( parsedAvd ) ) );
+        return ( ( device.getAvdName() != null ) && ( device.getAvdName().equalsIgnoreCase( avd ) ) );
     }
 
     /**
@@ -501,10 +936,10 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
      * @throws IOException
      * @throws MojoExecutionException
      */
-    private String writeEmulatorStartScriptWindows() throws MojoExecutionException
+    private String writeEmulatorStartScriptWindows( ParsedEmulator parsedEmulator ) throws MojoExecutionException
     {
 
-        String filename = SCRIPT_FOLDER + "\\android-maven-plugin-emulator-start.vbs";
+        String filename = SCRIPT_FOLDER + "\\android-maven-plugin-emulator-start-" + parsedEmulator.avd + ".vbs";
 
         File file = new File( filename );
         PrintWriter writer = null;
@@ -513,10 +948,8 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
             writer = new PrintWriter( new FileWriter( file ) );
 
 
-            // command needs to be assembled before unique window title since it parses settings and sets up parsedAvd
-            // and others.
-            String command = assembleStartCommandLine();
-            String uniqueWindowTitle = "AndroidMavenPlugin-AVD" + parsedAvd;
+            String command = assembleStartCommandLine( parsedEmulator );
+            String uniqueWindowTitle = "AndroidMavenPlugin-AVD" + parsedEmulator.avd;
             writer.println( "Dim oShell" );
             writer.println( "Set oShell = WScript.CreateObject(\"WScript.shell\")" );
             String cmdPath = System.getenv( "COMSPEC" );
@@ -550,9 +983,9 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
      * @throws IOException
      * @throws MojoExecutionException
      */
-    private String writeEmulatorStartScriptUnix() throws MojoExecutionException
+    private String writeEmulatorStartScriptUnix( ParsedEmulator parsedEmulator ) throws MojoExecutionException
     {
-        String filename = SCRIPT_FOLDER + "/android-maven-plugin-emulator-start.sh";
+        String filename = SCRIPT_FOLDER + "/android-maven-plugin-emulator-start-" + parsedEmulator.avd + ".sh";
 
         File sh;
         sh = new File( "/bin/bash" );
@@ -571,7 +1004,7 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
         {
             writer = new PrintWriter( new FileWriter( file ) );
             writer.println( "#!" + sh.getAbsolutePath() );
-            writer.print( assembleStartCommandLine() );
+            writer.print( assembleStartCommandLine( parsedEmulator ) );
             writer.print( " 1>/dev/null 2>&1 &" ); // redirect outputs and run as background task
         }
         catch ( IOException e )
@@ -591,14 +1024,25 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
     }
 
     /**
-     * Stop the running Android Emulator.
+     * Stop the running Android Emulator, or all emulators of the pool and all others booted for a pool during this
+     * session if {@link #emulators} is configured. An emulator another module of a parallel build is still using is
+     * left running.
      *
      * @throws org.apache.maven.plugin.MojoExecutionException
      *
      */
     protected void stopAndroidEmulator() throws MojoExecutionException
     {
-        parseParameters();
+        final EmulatorRegistry registry = EmulatorRegistry.getInstance( session );
+        final Set<String> avds = new LinkedHashSet<String>();
+        for ( ParsedEmulator parsedEmulator : parseEmulators() )
+        {
+            avds.add( parsedEmulator.avd );
+        }
+        if ( emulators != null && !emulators.isEmpty() )
+        {
+            avds.addAll( registry.getBootedEmulators().keySet() );
+        }
 
         final AndroidDebugBridge androidDebugBridge = initAndroidDebugBridge();
         if ( androidDebugBridge.isConnected() )
@@ -611,9 +1055,22 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
             {
                 if ( device.isEmulator() )
                 {
-                    if ( isExistingEmulator( device ) )
+                    for ( String avd : avds )
                     {
-                        stopEmulator( device );
+                        if ( !isExistingEmulator( device, avd ) )
+                        {
+                            continue;
+                        }
+                        if ( registry.release( avd, project, session ) )
+                        {
+                            stopEmulator( device );
+                            registry.remove( avd );
+                        }
+                        else
+                        {
+                            getLog().info( "Leaving emulator " + avd + " running, another module of the build is "
+                                    + "still using it." );
+                        }
                     }
                 }
                 else
@@ -778,87 +1235,173 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
      * @throws MojoExecutionException
      * @see com.simpligility.maven.plugins.android.configuration.Emulator
      */
-    private String assembleStartCommandLine() throws MojoExecutionException
+    private String assembleStartCommandLine( ParsedEmulator parsedEmulator ) throws MojoExecutionException
     {
         String emulatorPath;
-        if ( !"SdkTools".equals( parsedEmulatorLocation ) )
+        if ( !"SdkTools".equals( parsedEmulator.location ) )
         {
-            emulatorPath = new File( parsedEmulatorLocation, parsedExecutable ).getAbsolutePath();
+            emulatorPath = new File( parsedEmulator.location, parsedEmulator.executable ).getAbsolutePath();
         }
         else
         {
-            emulatorPath = new File( getAndroidSdk().getToolsPath(), parsedExecutable ).getAbsolutePath();
+            emulatorPath = new File( getAndroidSdk().getToolsPath(), parsedEmulator.executable ).getAbsolutePath();
         }
         StringBuilder startCommandline = new StringBuilder( "\"\"" ).append( emulatorPath ).append( "\"\"" )
-                .append( " -avd " ).append( parsedAvd ).append( " " );
-        if ( !StringUtils.isEmpty( parsedOptions ) )
+                .append( " -avd " ).append( parsedEmulator.avd ).append( " " );
+        if ( parsedEmulator.snapshot != null )
+        {
+            if ( !parsedEmulator.options.contains( "-snapshot " ) )
+            {
+                startCommandline.append( "-snapshot " ).append( parsedEmulator.snapshot ).append( " " );
+            }
+            if ( !parsedEmulator.options.contains( "-no-snapshot-save" ) )
+            {
+                startCommandline.append( "-no-snapshot-save " );
+            }
+        }
+        if ( !StringUtils.isEmpty( parsedEmulator.options ) )
         {
-            startCommandline.append( parsedOptions );
+            startCommandline.append( parsedEmulator.options );
         }
         getLog().info( "Android emulator command: " + startCommandline );
         return startCommandline.toString();
     }
 
-    private void parseParameters()
+    /**
+     * Parse the configuration of the emulator pool, or of the single emulator if no pool is configured.
+     *
+     * @return the parsed configuration of each emulator to work with
+     * @throws MojoExecutionException if an emulator of the pool has no avd or the same avd is used twice
+     */
+    private List<ParsedEmulator> parseEmulators() throws MojoExecutionException
+    {
+        final List<ParsedEmulator> parsedEmulators = new ArrayList<ParsedEmulator>();
+        if ( emulators != null && !emulators.isEmpty() )
+        {
+            final Set<String> avds = new HashSet<String>();
+            for ( Emulator pooledEmulator : emulators )
+            {
+                if ( pooledEmulator.getAvd() == null )
+                {
+                    throw new MojoExecutionException( "Every emulator of the emulators pool requires an avd." );
+                }
+                if ( !avds.add( pooledEmulator.getAvd().toLowerCase( Locale.US ) ) )
+                {
+                    throw new MojoExecutionException( "The avd " + pooledEmulator.getAvd()
+                            + " is used more than once in the emulators pool." );
+                }
+                parsedEmulators.add( parseParameters( pooledEmulator ) );
+            }
+        }
+        else
+        {
+            parsedEmulators.add( parseParameters( emulator ) );
+        }
+        return parsedEmulators;
+    }
+
+    private ParsedEmulator parseParameters( Emulator emulatorConfig )
     {
+        final ParsedEmulator parsedEmulator = new ParsedEmulator();
         // <emulator> exist in pom file
-        if ( emulator != null )
+        if ( emulatorConfig != null )
         {
             // <emulator><avd> exists in pom file
-            if ( emulator.getAvd() != null )
+            if ( emulatorConfig.getAvd() != null )
             {
-                parsedAvd = emulator.getAvd();
+                parsedEmulator.avd = emulatorConfig.getAvd();
             }
             else
                 {
-                parsedAvd = determineAvd();
+                parsedEmulator.avd = determineAvd();
             }
             // <emulator><options> exists in pom file
-            if ( emulator.getOptions() != null )
+            if ( emulatorConfig.getOptions() != null )
             {
-                parsedOptions = emulator.getOptions();
+                parsedEmulator.options = emulatorConfig.getOptions();
             }
             else
                 {
-                parsedOptions = determineOptions();
+                parsedEmulator.options = determineOptions();
             }
             // <emulator><wait> exists in pom file
-            if ( emulator.getWait() != null )
+            if ( emulatorConfig.getWait() != null )
             {
-                parsedWait = emulator.getWait();
+                parsedEmulator.wait = emulatorConfig.getWait();
             }
             else
                 {
-                parsedWait = determineWait();
+                parsedEmulator.wait = determineWait();
+            }
+            // <emulator><connectTimeout> exists in pom file
+            if ( emulatorConfig.getConnectTimeout() != null )
+            {
+                parsedEmulator.connectTimeout = emulatorConfig.getConnectTimeout();
+            }
+            else
+            {
+                parsedEmulator.connectTimeout = determineConnectTimeout( parsedEmulator.wait );
+            }
+            // <emulator><bootTimeout> exists in pom file
+            if ( emulatorConfig.getBootTimeout() != null )
+            {
+                parsedEmulator.bootTimeout = emulatorConfig.getBootTimeout();
+            }
+            else
+            {
+                parsedEmulator.bootTimeout = emulatorBootTimeout;
             }
             // <emulator><emulatorExecutable> exists in pom file
-            if ( emulator.getExecutable() != null )
+            if ( emulatorConfig.getExecutable() != null )
             {
-                parsedExecutable = emulator.getExecutable();
+                parsedEmulator.executable = emulatorConfig.getExecutable();
             }
             else
                 {
-                parsedExecutable = determineExecutable();
+                parsedEmulator.executable = determineExecutable();
             }
             // <emulator><location> exists in pom file
-            if ( emulator.getLocation() != null )
+            if ( emulatorConfig.getLocation() != null )
+            {
+                parsedEmulator.location = emulatorConfig.getLocation();
+            }
+            else
+            {
+            parsedEmulator.location = determineEmulatorLocation();
+            }
+            // <emulator><snapshot> exists in pom file
+            if ( emulatorConfig.getSnapshot() != null )
             {
-                parsedEmulatorLocation = emulator.getLocation();
+                parsedEmulator.snapshot = emulatorConfig.getSnapshot();
             }
             else
             {
-            parsedEmulatorLocation = determineEmulatorLocation();
+                parsedEmulator.snapshot = emulatorSnapshot;
+            }
+            // <emulator><snapshotReset> exists in pom file
+            if ( emulatorConfig.getSnapshotReset() != null )
+            {
+                parsedEmulator.snapshotReset = emulatorConfig.getSnapshotReset();
+            }
+            else
+            {
+                parsedEmulator.snapshotReset = emulatorSnapshotReset;
             }
         }
         // commandline options
         else
         {
-            parsedAvd = determineAvd();
-            parsedOptions = determineOptions();
-            parsedWait = determineWait();
-            parsedExecutable = determineExecutable();
-            parsedEmulatorLocation = determineEmulatorLocation();
+            parsedEmulator.avd = determineAvd();
+            parsedEmulator.options = determineOptions();
+            parsedEmulator.wait = determineWait();
+            parsedEmulator.connectTimeout = determineConnectTimeout( parsedEmulator.wait );
+            parsedEmulator.bootTimeout = emulatorBootTimeout;
+            parsedEmulator.executable = determineExecutable();
+            parsedEmulator.location = determineEmulatorLocation();
+            parsedEmulator.snapshot = emulatorSnapshot;
+            parsedEmulator.snapshotReset = emulatorSnapshotReset;
         }
+        return parsedEmulator;
     }
 
     /**
@@ -899,6 +1442,26 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
         return wait;
     }
 
+    /**
+     * Get connect timeout value for emulator from command line option.
+     *
+     * @param wait the parsed wait value of the emulator
+     * @return if available return command line value otherwise return the wait value.
+     */
+    private String determineConnectTimeout( String wait )
+    {
+        String connectTimeout;
+        if ( emulatorConnectTimeout != null )
+        {
+            connectTimeout = emulatorConnectTimeout;
+        }
+        else
+        {
+            connectTimeout = wait;
+        }
+        return connectTimeout;
+    }
+
     /**
      * Get options value for emulator from command line option.
      *
@@ -956,4 +1519,36 @@ public abstract class AbstractEmulatorMojo extends AbstractAndroidMojo
         return location;
     }
 
-}
\ No newline at end of file
+    /**
+     * The parsed values for one emulator that will be used for the invocation, combining the plugin configuration
+     * with the command line options and defaults.
+     */
+    static final class ParsedEmulator
+    {
+        private String avd;
+        private String options;
+        private String wait;
+        private String connectTimeout;
+        private String bootTimeout;
+        private String executable;
+        private String location;
+        private String snapshot;
+        private boolean snapshotReset;
+
+        ParsedEmulator()
+        {
+        }
+
+        ParsedEmulator( String avd, String options )
+        {
+            this.avd = avd;
+            this.options = options;
+        }
+
+        String getOptions()
+        {
+            return options;
+        }
+    }
+
+}
@@ -15,21 +15,21 @@ import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.surefire.ObjectFactory;
 import org.apache.maven.surefire.Testsuite;
 
-import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBException;
-import javax.xml.bind.Marshaller;
+import javax.xml.stream.XMLStreamException;
 
 import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
 import java.text.NumberFormat;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * AndroidTestRunListener produces a nice output for the log for the test run as well as an xml file compatible with
  * the junit xml report file format understood by many tools.
  * 
- * It will do so for each device/emulator the tests run on.
+ * It will do so for each device/emulator the tests run on. The report is streamed to disk by a
+ * {@link JunitReportWriter} as test cases complete, so memory use does not grow with the size of the test suite.
  */
 public class AndroidTestRunListener implements ITestRunListener
 {
@@ -66,7 +66,8 @@ public class AndroidTestRunListener implements ITestRunListener
     private final String deviceLogLinePrefix;
 
     private final ObjectFactory objectFactory = new ObjectFactory();
-    private Testsuite report;
+    private JunitReportWriter reportWriter;
+    private String runName;
     private Testsuite.Testcase currentTestCase;
 
     /**
@@ -117,25 +118,14 @@ public class AndroidTestRunListener implements ITestRunListener
 
         if ( createReport )
         {
-            report = new Testsuite();
-            report.setName( runName );
-            final Testsuite.Properties props = new Testsuite.Properties();
-            report.getProperties().add( props );
+            this.runName = runName;
+            final Map< String, String > properties = new LinkedHashMap< String, String >();
             for ( Map.Entry< Object, Object > systemProperty : System.getProperties().entrySet() )
             {
-                final Testsuite.Properties.Property property = new Testsuite.Properties.Property();
-                property.setName( systemProperty.getKey().toString() );
-                property.setValue( systemProperty.getValue().toString() );
-                props.getProperty().add( property );
-            }
-            Map< String, String > deviceProperties = device.getProperties();
-            for ( Map.Entry< String, String > deviceProperty : deviceProperties.entrySet() )
-            {
-                final Testsuite.Properties.Property property = new Testsuite.Properties.Property();
-                property.setName( deviceProperty.getKey() );
-                property.setValue( deviceProperty.getValue() );
-                props.getProperty().add( property );
+                properties.put( systemProperty.getKey().toString(), systemProperty.getValue().toString() );
             }
+            properties.putAll( device.getProperties() );
+            startJunitReport( properties );
         }
     }
 
@@ -262,7 +252,8 @@ public class AndroidTestRunListener implements ITestRunListener
         {
             double seconds = ( System.currentTimeMillis() - currentTestCaseStartTime ) / 1000.0;
             currentTestCase.setTime( timeFormatter.format( seconds ) );
-            report.getTestcase().add( currentTestCase );
+            writeTestcaseToReport( currentTestCase );
+            currentTestCase = null;
         }
     }
 
@@ -280,20 +271,11 @@ public class AndroidTestRunListener implements ITestRunListener
                         + testFailureCount + ",  Errors: " + testErrorCount
                         + ",  Ignored: " + testIgnoredCount );
 
-        if ( createReport )
-        {
-            report.setTests( Integer.toString( testCount ) );
-            report.setFailures( Integer.toString( testFailureCount ) );
-            report.setErrors( Integer.toString( testErrorCount ) );
-            report.setSkipped( Integer.toString( testIgnoredCount ) );
-            report.setTime( timeFormatter.format( elapsedTime / 1000.0 ) );
-        }
-
         logMetrics( runMetrics );
 
         if ( createReport )
         {
-            writeJunitReportToFile();
+            writeJunitReportToFile( elapsedTime );
         }
     }
 
@@ -372,9 +354,11 @@ public class AndroidTestRunListener implements ITestRunListener
     }
 
     /**
-     * Write the junit report xml file.
+     * Open the junit report for this device and write the properties to it. Test cases are appended as they end.
+     *
+     * @param properties system and device properties recorded in the report
      */
-    private void writeJunitReportToFile()
+    private void startJunitReport( Map< String, String > properties )
     {
         try
         {
@@ -389,24 +373,80 @@ public class AndroidTestRunListener implements ITestRunListener
                 b.append( reportSuffix.replace( "/", "" ).replace( "\\", "" ) );
             }
 
-            final File reportFile = new File( b.append( ".xml" ).toString() );
-            final JAXBContext jaxbContext = JAXBContext.newInstance( ObjectFactory.class );
-            final Marshaller marshaller = jaxbContext.createMarshaller();
-            marshaller.marshal( report, reportFile );
+            reportWriter = new JunitReportWriter( new File( b.append( ".xml" ).toString() ) );
+            reportWriter.startTestSuite( properties );
+        }
+        catch ( IOException | XMLStreamException e )
+        {
+            handleReportException( e );
+        }
+    }
+
+    /**
+     * Append a finished test case to the junit report, flushing it to disk.
+     *
+     * @param testcase the test case that just ended
+     */
+    private void writeTestcaseToReport( Testsuite.Testcase testcase )
+    {
+        if ( reportWriter == null )
+        {
+            return;
+        }
+        try
+        {
+            reportWriter.writeTestcase( testcase );
+        }
+        catch ( IOException | XMLStreamException e )
+        {
+            handleReportException( e );
+        }
+    }
+
+    /**
+     * Write the junit report xml file.
+     *
+     * @param elapsedTime duration of the test run in milliseconds
+     */
+    private void writeJunitReportToFile( long elapsedTime )
+    {
+        if ( reportWriter == null )
+        {
+            return;
+        }
+        try
+        {
+            reportWriter.endTestSuite( runName, testCount, testFailureCount, testErrorCount, testIgnoredCount,
+                    timeFormatter.format( elapsedTime / 1000.0 ) );
 
-            getLog().info( deviceLogLinePrefix + "Report file written to " + reportFile.getAbsolutePath() );
+            getLog().info( deviceLogLinePrefix + "Report file written to "
+                    + reportWriter.getReportFile().getAbsolutePath() );
         }
-        catch ( IOException e )
+        catch ( IOException | XMLStreamException e )
         {
-            threwException = true;
-            exceptionMessages.append( "Failed to write test report file" );
-            exceptionMessages.append( e.getMessage() );
+            handleReportException( e );
         }
-        catch ( JAXBException e )
+    }
+
+    /**
+     * Record a problem writing the report and stop writing to it, leaving the partial report behind.
+     */
+    private void handleReportException( Exception e )
+    {
+        threwException = true;
+        exceptionMessages.append( "Failed to write test report file" );
+        exceptionMessages.append( e.getMessage() );
+        if ( reportWriter != null )
         {
-            threwException = true;
-            exceptionMessages.append( "Failed to create jaxb context" );
-            exceptionMessages.append( e.getMessage() );
+            try
+            {
+                reportWriter.closePartial();
+            }
+            catch ( IOException | XMLStreamException closeException )
+            {
+                getLog().debug( closeException );
+            }
+            reportWriter = null;
         }
     }
 
@@ -0,0 +1,252 @@
+package com.simpligility.maven.plugins.android;
+
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * EmulatorRegistry keeps track of the emulators booted by the plugin within one Maven session. Later modules of the
+ * reactor use it to reuse instances that are already booted (or still booting) instead of starting them again, and
+ * the emulator-stop goal uses it to stop every emulator of the pool at the end of the build.
+ * <p>
+ * Emulators are identified by their AVD name (case insensitive, like {@link AbstractEmulatorMojo} matches them) and
+ * map to the serial number of the running instance. The modules using an emulator lease it, so that a module of a
+ * parallel build does not reset an emulator another module is still using.
+ */
+public final class EmulatorRegistry
+{
+    /**
+     * Registries per session. Keyed by the execution request, which is shared by the session clones Maven hands to
+     * the modules of a parallel build.
+     */
+    private static final Map< Object, EmulatorRegistry > REGISTRIES = new WeakHashMap< Object, EmulatorRegistry >();
+
+    private final ConcurrentMap< String, Future< String > > emulators =
+            new ConcurrentHashMap< String, Future< String > >();
+
+    private final ConcurrentMap< String, Set< MavenProject > > leases =
+            new ConcurrentHashMap< String, Set< MavenProject > >();
+
+    private EmulatorRegistry()
+    {
+    }
+
+    /**
+     * @param session the current Maven session, may be <code>null</code> when running outside of a build
+     * @return the registry of the session
+     */
+    public static EmulatorRegistry getInstance( MavenSession session )
+    {
+        final Object key = session != null && session.getRequest() != null
+                ? session.getRequest() : EmulatorRegistry.class;
+        synchronized ( REGISTRIES )
+        {
+            EmulatorRegistry registry = REGISTRIES.get( key );
+            if ( registry == null )
+            {
+                registry = new EmulatorRegistry();
+                REGISTRIES.put( key, registry );
+            }
+            return registry;
+        }
+    }
+
+    /**
+     * Boot the emulator for the given AVD unless it is already registered. Only the first caller for an AVD has its
+     * boot task executed, all other callers get the same future and thus wait for the same boot. A failed boot is
+     * removed from the registry again, so that it can be retried.
+     *
+     * @param avd      the AVD name of the emulator
+     * @param bootTask task booting the emulator and returning the serial number of the booted instance
+     * @param executor executor running the boot task
+     * @return the future serial number of the booted emulator
+     */
+    public Future< String > boot( String avd, Callable< String > bootTask, Executor executor )
+    {
+        final String key = toKey( avd );
+        final FutureTask< String > task = new FutureTask< String >( bootTask )
+        {
+            @Override
+            protected void done()
+            {
+                if ( isCancelled() || failed( this ) )
+                {
+                    emulators.remove( key, this );
+                }
+            }
+        };
+        final Future< String > existing = emulators.putIfAbsent( key, task );
+        if ( existing != null )
+        {
+            return existing;
+        }
+        executor.execute( task );
+        return task;
+    }
+
+    /**
+     * @param avd the AVD name of the emulator
+     * @return the serial number of the emulator if it is registered and finished booting, <code>null</code> otherwise
+     */
+    public String getSerialNumber( String avd )
+    {
+        final Future< String > future = emulators.get( toKey( avd ) );
+        if ( future == null || !future.isDone() || failed( future ) )
+        {
+            return null;
+        }
+        try
+        {
+            return future.get();
+        }
+        catch ( InterruptedException | ExecutionException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * @return the AVD names and serial numbers of all emulators that finished booting
+     */
+    public Map< String, String > getBootedEmulators()
+    {
+        final Map< String, String > booted = new LinkedHashMap< String, String >();
+        for ( String avd : emulators.keySet() )
+        {
+            final String serialNumber = getSerialNumber( avd );
+            if ( serialNumber != null )
+            {
+                booted.put( avd, serialNumber );
+            }
+        }
+        return booted;
+    }
+
+    /**
+     * Lease the emulator for the given AVD to a module. The lease lasts until it is released or the module finished
+     * building. Unless another module holds a lease, the given task runs before the lease is taken, e.g. to reset the
+     * emulator, and other modules leasing the emulator meanwhile wait for it.
+     *
+     * @param avd           the AVD name of the emulator
+     * @param module        the module using the emulator
+     * @param session       the current Maven session, telling which modules finished building
+     * @param exclusiveTask task to run if the module is the only one using the emulator, may be <code>null</code>
+     * @return <code>false</code> if the task did not run as another module still holds a lease,
+     *         <code>true</code> otherwise
+     * @throws Exception if the task failed, the lease is not taken then
+     */
+    public boolean lease( String avd, MavenProject module, MavenSession session, Callable< Void > exclusiveTask )
+            throws Exception
+    {
+        final Set< MavenProject > holders = getLeaseHolders( avd );
+        synchronized ( holders )
+        {
+            boolean exclusive = true;
+            for ( MavenProject holder : holders )
+            {
+                exclusive &= holder == module || isFinished( holder, session );
+            }
+            if ( exclusive && exclusiveTask != null )
+            {
+                exclusiveTask.call();
+            }
+            holders.add( module );
+            return exclusive || exclusiveTask == null;
+        }
+    }
+
+    /**
+     * Release the lease of a module on the emulator for the given AVD.
+     *
+     * @param avd     the AVD name of the emulator
+     * @param module  the module that used the emulator
+     * @param session the current Maven session, telling which modules finished building
+     * @return <code>true</code> if no other module holds a lease on the emulator any more
+     */
+    public boolean release( String avd, MavenProject module, MavenSession session )
+    {
+        final Set< MavenProject > holders = getLeaseHolders( avd );
+        synchronized ( holders )
+        {
+            holders.remove( module );
+            for ( MavenProject holder : holders )
+            {
+                if ( !isFinished( holder, session ) )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Forget about the emulator for the given AVD, e.g. because it was stopped or is not attached any more. The
+     * leases on it end as well.
+     *
+     * @param avd the AVD name of the emulator
+     */
+    public void remove( String avd )
+    {
+        emulators.remove( toKey( avd ) );
+        leases.remove( toKey( avd ) );
+    }
+
+    private Set< MavenProject > getLeaseHolders( String avd )
+    {
+        final Set< MavenProject > holders =
+                Collections.newSetFromMap( new IdentityHashMap< MavenProject, Boolean >() );
+        final Set< MavenProject > existing = leases.putIfAbsent( toKey( avd ), holders );
+        return existing != null ? existing : holders;
+    }
+
+    /**
+     * A module that finished building has a build summary, whether it succeeded or failed.
+     */
+    private static boolean isFinished( MavenProject module, MavenSession session )
+    {
+        return session != null && session.getResult() != null
+                && session.getResult().getBuildSummary( module ) != null;
+    }
+
+    private static boolean failed( Future< String > future )
+    {
+        if ( !future.isDone() || future.isCancelled() )
+        {
+            return future.isCancelled();
+        }
+        try
+        {
+            future.get();
+            return false;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            return true;
+        }
+        catch ( ExecutionException e )
+        {
+            return true;
+        }
+    }
+
+    private static String toKey( String avd )
+    {
+        return avd.toLowerCase( Locale.US );
+    }
+}
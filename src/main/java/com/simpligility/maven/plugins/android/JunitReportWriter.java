@@ -0,0 +1,199 @@
+package com.simpligility.maven.plugins.android;
+
+import org.apache.maven.surefire.Testsuite;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Map;
+
+/**
+ * JunitReportWriter streams a junit xml report file compatible with the surefire report format to disk while the
+ * tests are running, instead of building the whole report in memory and marshalling it at the end.
+ * <p>
+ * Properties and test cases are appended to a <code>.partial</code> file next to the report and flushed after each
+ * test case, so a crashed run still leaves the results of all completed tests behind. The final report is assembled
+ * from the partial file once the totals for the root element are known.
+ */
+public class JunitReportWriter
+{
+    /**
+     * suffix of the file holding the properties and test cases written so far *
+     */
+    public static final String PARTIAL_SUFFIX = ".partial";
+
+    private static final String ENCODING = "UTF-8";
+
+    /**
+     * creating the factory involves a service lookup, so we only do it once *
+     */
+    private static final XMLOutputFactory OUTPUT_FACTORY = XMLOutputFactory.newInstance();
+
+    private final File reportFile;
+    private final File partialFile;
+
+    private OutputStream partialStream;
+    private XMLStreamWriter partialWriter;
+
+    /**
+     * @param reportFile the junit xml report file to create
+     */
+    public JunitReportWriter( File reportFile )
+    {
+        this.reportFile = reportFile;
+        this.partialFile = new File( reportFile.getPath() + PARTIAL_SUFFIX );
+    }
+
+    /**
+     * @return the junit xml report file written by {@link #endTestSuite}
+     */
+    public File getReportFile()
+    {
+        return reportFile;
+    }
+
+    /**
+     * @return the file test cases are streamed to while the run is in progress
+     */
+    public File getPartialFile()
+    {
+        return partialFile;
+    }
+
+    /**
+     * Open the partial report and write the properties of the test suite to it.
+     *
+     * @param properties the system and device properties to record in the report
+     */
+    public void startTestSuite( Map< String, String > properties ) throws IOException, XMLStreamException
+    {
+        partialStream = new BufferedOutputStream( new FileOutputStream( partialFile ) );
+        partialWriter = OUTPUT_FACTORY.createXMLStreamWriter( partialStream, ENCODING );
+
+        partialWriter.writeStartElement( "properties" );
+        for ( Map.Entry< String, String > property : properties.entrySet() )
+        {
+            partialWriter.writeEmptyElement( "property" );
+            writeAttribute( partialWriter, "name", property.getKey() );
+            writeAttribute( partialWriter, "value", property.getValue() );
+        }
+        partialWriter.writeEndElement();
+        flush();
+    }
+
+    /**
+     * Append a finished test case to the partial report and flush it to disk.
+     *
+     * @param testcase the test case including its failures and error, if any
+     */
+    public void writeTestcase( Testsuite.Testcase testcase ) throws IOException, XMLStreamException
+    {
+        partialWriter.writeStartElement( "testcase" );
+        writeAttribute( partialWriter, "name", testcase.getName() );
+        if ( testcase.getClassname() != null )
+        {
+            writeAttribute( partialWriter, "classname", testcase.getClassname() );
+        }
+        writeAttribute( partialWriter, "time", testcase.getTime() );
+
+        for ( Testsuite.Testcase.Failure failure : testcase.getFailure() )
+        {
+            writeProblem( "failure", failure.getMessage(), failure.getType(), failure.getValue() );
+        }
+        if ( testcase.getError() != null && testcase.getError().getValue() != null )
+        {
+            final Testsuite.Testcase.Error error = testcase.getError().getValue();
+            writeProblem( "error", error.getMessage(), error.getType(), error.getValue() );
+        }
+
+        partialWriter.writeEndElement();
+        flush();
+    }
+
+    /**
+     * Write the final report by wrapping the partial report in the root element carrying the totals of the run,
+     * then remove the partial report.
+     */
+    public void endTestSuite( String name, int tests, int failures, int errors, int skipped, String time )
+            throws IOException, XMLStreamException
+    {
+        closePartial();
+
+        try ( OutputStream out = new BufferedOutputStream( new FileOutputStream( reportFile ) ) )
+        {
+            final XMLStreamWriter writer = OUTPUT_FACTORY.createXMLStreamWriter( out, ENCODING );
+            writer.writeStartDocument( ENCODING, "1.0" );
+            writer.writeStartElement( "testsuite" );
+            writeAttribute( writer, "name", name );
+            writeAttribute( writer, "time", time );
+            writeAttribute( writer, "tests", Integer.toString( tests ) );
+            writeAttribute( writer, "errors", Integer.toString( errors ) );
+            writeAttribute( writer, "skipped", Integer.toString( skipped ) );
+            writeAttribute( writer, "failures", Integer.toString( failures ) );
+            // close the start tag so the partial content can be copied in verbatim
+            writer.writeCharacters( "" );
+            writer.flush();
+
+            Files.copy( partialFile.toPath(), out );
+
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.flush();
+            writer.close();
+        }
+
+        Files.delete( partialFile.toPath() );
+    }
+
+    /**
+     * Close the partial report without writing the final report, e.g. when the run is aborted.
+     */
+    public void closePartial() throws IOException, XMLStreamException
+    {
+        if ( partialWriter != null )
+        {
+            partialWriter.flush();
+            partialWriter.close();
+            partialWriter = null;
+        }
+        if ( partialStream != null )
+        {
+            partialStream.close();
+            partialStream = null;
+        }
+    }
+
+    private void writeProblem( String element, String message, String type, String trace )
+            throws XMLStreamException
+    {
+        partialWriter.writeStartElement( element );
+        if ( message != null )
+        {
+            writeAttribute( partialWriter, "message", message );
+        }
+        writeAttribute( partialWriter, "type", type );
+        if ( trace != null )
+        {
+            partialWriter.writeCharacters( trace );
+        }
+        partialWriter.writeEndElement();
+    }
+
+    private void flush() throws IOException, XMLStreamException
+    {
+        partialWriter.flush();
+        partialStream.flush();
+    }
+
+    private static void writeAttribute( XMLStreamWriter writer, String name, String value ) throws XMLStreamException
+    {
+        writer.writeAttribute( name, value != null ? value : "" );
+    }
+}
@@ -0,0 +1,240 @@
+package com.simpligility.maven.plugins.android.asm;
+
+import org.objectweb.asm.Type;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A <code>-keep</code> rule of the <code>mainDexClasses.rules</code> ProGuard configuration shipped with the
+ * build tools, e.g.
+ * <pre>
+ * -keep public class * extends android.app.Application {
+ *   &lt;init&gt;();
+ *   void attachBaseContext(android.content.Context);
+ * }
+ * </pre>
+ * Only the subset of the ProGuard syntax used by such rules is supported: a class name pattern, an optional
+ * <code>extends</code> or <code>implements</code> type and a list of methods. Access modifiers are ignored, so a rule
+ * may match more classes than ProGuard would, which is safe for a main dex list.
+ */
+final class MainDexKeepRule
+{
+    private static final Pattern RULE = Pattern.compile(
+            "-keep(?:classeswithmembers)?(?:,\\w+)*\\s+([^{;-]*?)\\s*(?:\\{([^}]*)\\}|;|(?=-)|$)" );
+
+    private static final Pattern CLASS_SPECIFICATION = Pattern.compile(
+            "(?:.*\\s)?@?(?:class|interface|enum)\\s+(\\S+)(?:\\s+(?:extends|implements)\\s+(\\S+))?" );
+
+    private static final Pattern METHOD_SPECIFICATION = Pattern.compile( "(?:.*\\s)?(\\S+)\\s*\\(([^)]*)\\)" );
+
+    private static final Map< String, String > PRIMITIVES = new HashMap< String, String >();
+
+    static
+    {
+        PRIMITIVES.put( "void", "V" );
+        PRIMITIVES.put( "boolean", "Z" );
+        PRIMITIVES.put( "byte", "B" );
+        PRIMITIVES.put( "char", "C" );
+        PRIMITIVES.put( "short", "S" );
+        PRIMITIVES.put( "int", "I" );
+        PRIMITIVES.put( "long", "J" );
+        PRIMITIVES.put( "float", "F" );
+        PRIMITIVES.put( "double", "D" );
+    }
+
+    private final Pattern className;
+    private final Pattern superName;
+    private final boolean allMethods;
+    private final List< Pattern > methods;
+
+    private MainDexKeepRule( Pattern className, Pattern superName, boolean allMethods, List< Pattern > methods )
+    {
+        this.className = className;
+        this.superName = superName;
+        this.allMethods = allMethods;
+        this.methods = methods;
+    }
+
+    /**
+     * Parse all supported <code>-keep</code> rules of a ProGuard configuration.
+     *
+     * @param configuration the content of the configuration file
+     * @return the rules, unsupported rules are left out
+     */
+    static List< MainDexKeepRule > parse( String configuration )
+    {
+        final String text = configuration.replaceAll( "#[^\\n]*", " " );
+        final List< MainDexKeepRule > rules = new ArrayList< MainDexKeepRule >();
+        final Matcher ruleMatcher = RULE.matcher( text );
+        while ( ruleMatcher.find() )
+        {
+            final Matcher classMatcher = CLASS_SPECIFICATION.matcher( ruleMatcher.group( 1 ).trim() );
+            if ( ! classMatcher.matches() )
+            {
+                continue;
+            }
+            final Pattern superPattern = classMatcher.group( 2 ) == null ? null
+                    : toPattern( classMatcher.group( 2 ), "\\." );
+
+            boolean allMethods = false;
+            final List< Pattern > methods = new ArrayList< Pattern >();
+            if ( ruleMatcher.group( 2 ) != null )
+            {
+                for ( String member : ruleMatcher.group( 2 ).split( ";" ) )
+                {
+                    final String trimmed = member.trim();
+                    if ( trimmed.equals( "*" ) || trimmed.equals( "<methods>" ) )
+                    {
+                        allMethods = true;
+                    }
+                    else
+                    {
+                        final Matcher methodMatcher = METHOD_SPECIFICATION.matcher( trimmed );
+                        if ( methodMatcher.matches() )
+                        {
+                            methods.add( toMethodPattern( methodMatcher.group( 1 ), methodMatcher.group( 2 ) ) );
+                        }
+                    }
+                }
+            }
+            rules.add( new MainDexKeepRule( toPattern( classMatcher.group( 1 ), "\\." ), superPattern, allMethods,
+                    methods ) );
+        }
+        return rules;
+    }
+
+    /**
+     * @param type       the class to test
+     * @param supertypes the internal names of all super classes and interfaces of the class
+     * @return true if the rule keeps the class
+     */
+    boolean matches( String type, Iterable< String > supertypes )
+    {
+        if ( ! className.matcher( type.replace( '/', '.' ) ).matches() )
+        {
+            return false;
+        }
+        if ( superName == null )
+        {
+            return true;
+        }
+        for ( String supertype : supertypes )
+        {
+            if ( superName.matcher( supertype.replace( '/', '.' ) ).matches() )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param method name and descriptor of a method of a matching class
+     * @return true if the rule keeps the method
+     */
+    boolean keepsMethod( String method )
+    {
+        if ( allMethods )
+        {
+            return true;
+        }
+        for ( Pattern pattern : methods )
+        {
+            if ( pattern.matcher( method ).matches() )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Translate a ProGuard name pattern, <code>**</code> matches any characters, <code>*</code> any characters but the
+     * separator and <code>?</code> a single character but the separator. A single <code>*</code> matches any name.
+     */
+    private static Pattern toPattern( String proguardPattern, String separator )
+    {
+        if ( proguardPattern.equals( "*" ) )
+        {
+            // a single wildcard matches any class in any package
+            return Pattern.compile( ".*" );
+        }
+        return Pattern.compile( toRegex( proguardPattern, separator ) );
+    }
+
+    private static String toRegex( String proguardPattern, String separator )
+    {
+        final StringBuilder regex = new StringBuilder();
+        for ( int i = 0; i < proguardPattern.length(); i++ )
+        {
+            final char c = proguardPattern.charAt( i );
+            if ( c == '*' && i + 1 < proguardPattern.length() && proguardPattern.charAt( i + 1 ) == '*' )
+            {
+                regex.append( ".*" );
+                i++;
+            }
+            else if ( c == '*' )
+            {
+                regex.append( "[^" ).append( separator ).append( "]*" );
+            }
+            else if ( c == '?' )
+            {
+                regex.append( "[^" ).append( separator ).append( "]" );
+            }
+            else
+            {
+                regex.append( Pattern.quote( String.valueOf( c ) ) );
+            }
+        }
+        return regex.toString();
+    }
+
+    /**
+     * Build a pattern for name and descriptor of a method, the return type is not matched.
+     */
+    private static Pattern toMethodPattern( String name, String arguments )
+    {
+        final StringBuilder regex = new StringBuilder( toRegex( name, "(" ) ).append( "\\(" );
+        final String trimmed = arguments.trim();
+        if ( trimmed.equals( "..." ) )
+        {
+            regex.append( "[^)]*" );
+        }
+        else if ( ! trimmed.isEmpty() )
+        {
+            for ( String argument : trimmed.split( "," ) )
+            {
+                regex.append( toDescriptorRegex( argument.trim() ) );
+            }
+        }
+        return Pattern.compile( regex.append( "\\).*" ).toString() );
+    }
+
+    private static String toDescriptorRegex( String javaType )
+    {
+        String elementType = javaType;
+        final StringBuilder regex = new StringBuilder();
+        while ( elementType.endsWith( "[]" ) )
+        {
+            regex.append( "\\[" );
+            elementType = elementType.substring( 0, elementType.length() - 2 ).trim();
+        }
+        final String primitive = PRIMITIVES.get( elementType );
+        if ( primitive != null )
+        {
+            return regex.append( primitive ).toString();
+        }
+        if ( elementType.contains( "*" ) || elementType.contains( "?" ) || elementType.equals( "%" ) )
+        {
+            // any class type, the name is matched loosely
+            return regex.append( "L[^;]*;" ).toString();
+        }
+        return regex.append( Pattern.quote( Type.getObjectType( elementType.replace( '.', '/' ) ).getDescriptor() ) )
+                .toString();
+    }
+}
@@ -0,0 +1,518 @@
+package com.simpligility.maven.plugins.android.asm;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Computes the list of classes that have to be placed in the main dex file of a legacy multidex application, without
+ * forking ProGuard and the <code>MainDexListBuilder</code> of the build tools.
+ * <p>
+ * The result follows the approach of the build tools: the classes kept by the <code>mainDexClasses.rules</code> and
+ * everything reachable from their kept methods, like the ProGuard shrinking step computes it, plus all classes these
+ * classes reference directly, together with their super classes and interfaces. Reachability is computed on method
+ * level: a method is used when it is kept, called from a used method, is a static initializer of a used class or
+ * overrides a used method or a method of the library (e.g. <code>Application.onCreate()</code>) in a used class.
+ * <p>
+ * All input classes are read with ASM in parallel.
+ */
+public final class MainDexListBuilder
+{
+    private static final int CLASSES_PER_TASK = 256;
+
+    private static final String CLASS_EXTENSION = ".class";
+
+    private static final String CONSTRUCTOR = "<init>";
+
+    private static final String STATIC_INITIALIZER = "<clinit>()V";
+
+    /**
+     * Overridable methods of <code>java.lang.Object</code>, used when the library does not contain it.
+     */
+    private static final Set< String > OBJECT_METHODS = new HashSet< String >( Arrays.asList(
+            "equals(Ljava/lang/Object;)Z", "hashCode()I", "toString()Ljava/lang/String;",
+            "clone()Ljava/lang/Object;", "finalize()V" ) );
+
+    private final int threads;
+
+    /**
+     * @param threads the number of threads used to read the classes
+     */
+    public MainDexListBuilder( int threads )
+    {
+        this.threads = Math.max( 1, threads );
+    }
+
+    /**
+     * Compute the main dex list.
+     *
+     * @param programInputs jars and class directories that will be dexed
+     * @param libraryInputs jars of the platform, e.g. the <code>shrinkedAndroid.jar</code> of the build tools, used to
+     *                      find methods overriding library methods
+     * @param rules         the ProGuard keep rules selecting the classes needed to start the application
+     * @param entryPoints   fully qualified names of further classes instantiated by the platform, e.g. the components
+     *                      declared in the manifest
+     * @return the class files for the main dex, e.g. <code>com/example/App.class</code>, sorted
+     * @throws IOException if an input cannot be read
+     */
+    public SortedSet< String > build( Collection< File > programInputs, Collection< File > libraryInputs,
+                                      String rules, Collection< String > entryPoints ) throws IOException
+    {
+        final Map< String, ProgramClass > program;
+        final Map< String, ProgramClass > library;
+        final ExecutorService executor = Executors.newFixedThreadPool( threads );
+        try
+        {
+            final List< Future< List< ProgramClass > > > libraryTasks = submit( executor, libraryInputs, false );
+            final List< Future< List< ProgramClass > > > programTasks = submit( executor, programInputs, true );
+            library = collect( libraryTasks );
+            program = collect( programTasks );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        final Marker marker = new Marker( program, library );
+        final List< MainDexKeepRule > keepRules = MainDexKeepRule.parse( rules );
+        for ( ProgramClass programClass : program.values() )
+        {
+            Set< String > supertypes = null;
+            for ( MainDexKeepRule keepRule : keepRules )
+            {
+                if ( supertypes == null )
+                {
+                    supertypes = marker.getSupertypes( programClass.getName() );
+                }
+                if ( keepRule.matches( programClass.getName(), supertypes ) )
+                {
+                    marker.markClass( programClass.getName() );
+                    for ( String method : programClass.getMethods().keySet() )
+                    {
+                        if ( keepRule.keepsMethod( method ) )
+                        {
+                            marker.markMethod( programClass.getName(), method );
+                        }
+                    }
+                }
+            }
+        }
+        for ( String entryPoint : entryPoints )
+        {
+            final ProgramClass programClass = program.get( entryPoint.replace( '.', '/' ) );
+            if ( programClass != null )
+            {
+                marker.markClass( programClass.getName() );
+                for ( String method : programClass.getMethods().keySet() )
+                {
+                    if ( method.startsWith( CONSTRUCTOR ) )
+                    {
+                        marker.markMethod( programClass.getName(), method );
+                    }
+                }
+            }
+        }
+        marker.process();
+
+        final Set< String > mainDexClasses = new HashSet< String >();
+        for ( String markedClass : marker.getMarkedClasses() )
+        {
+            addWithHierarchy( program, mainDexClasses, markedClass );
+            for ( String reference : program.get( markedClass ).getDirectReferences() )
+            {
+                addWithHierarchy( program, mainDexClasses, reference );
+            }
+        }
+
+        final SortedSet< String > classFiles = new TreeSet< String >();
+        for ( String mainDexClass : mainDexClasses )
+        {
+            classFiles.add( mainDexClass + CLASS_EXTENSION );
+        }
+        return classFiles;
+    }
+
+    private static void addWithHierarchy( Map< String, ProgramClass > program, Set< String > classes, String name )
+    {
+        final ProgramClass programClass = program.get( name );
+        if ( programClass == null || ! classes.add( name ) )
+        {
+            return;
+        }
+        if ( programClass.getSuperName() != null )
+        {
+            addWithHierarchy( program, classes, programClass.getSuperName() );
+        }
+        for ( String anInterface : programClass.getInterfaces() )
+        {
+            addWithHierarchy( program, classes, anInterface );
+        }
+    }
+
+    /**
+     * Submit tasks reading the classes of the inputs, class directories are split into chunks.
+     */
+    private static List< Future< List< ProgramClass > > > submit( ExecutorService executor, Collection< File > inputs,
+                                                                  final boolean withBodies )
+    {
+        final List< Future< List< ProgramClass > > > tasks = new ArrayList< Future< List< ProgramClass > > >();
+        for ( final File input : inputs )
+        {
+            if ( input.isDirectory() )
+            {
+                final List< File > classFiles = new ArrayList< File >();
+                collectClassFiles( input, classFiles );
+                for ( int i = 0; i < classFiles.size(); i += CLASSES_PER_TASK )
+                {
+                    final List< File > chunk = classFiles.subList( i, Math.min( i + CLASSES_PER_TASK,
+                            classFiles.size() ) );
+                    tasks.add( executor.submit( new Callable< List< ProgramClass > >()
+                    {
+                        @Override
+                        public List< ProgramClass > call() throws IOException
+                        {
+                            final List< ProgramClass > classes = new ArrayList< ProgramClass >( chunk.size() );
+                            for ( File classFile : chunk )
+                            {
+                                classes.add( ProgramClass.read( FileUtils.readFileToByteArray( classFile ),
+                                        withBodies ) );
+                            }
+                            return classes;
+                        }
+                    } ) );
+                }
+            }
+            else if ( input.isFile() )
+            {
+                tasks.add( executor.submit( new Callable< List< ProgramClass > >()
+                {
+                    @Override
+                    public List< ProgramClass > call() throws IOException
+                    {
+                        return readArchive( input, withBodies );
+                    }
+                } ) );
+            }
+        }
+        return tasks;
+    }
+
+    private static void collectClassFiles( File directory, List< File > classFiles )
+    {
+        final File[] children = directory.listFiles();
+        if ( children == null )
+        {
+            return;
+        }
+        Arrays.sort( children );
+        for ( File child : children )
+        {
+            if ( child.isDirectory() )
+            {
+                collectClassFiles( child, classFiles );
+            }
+            else if ( child.getName().endsWith( CLASS_EXTENSION ) )
+            {
+                classFiles.add( child );
+            }
+        }
+    }
+
+    private static List< ProgramClass > readArchive( File archive, boolean withBodies ) throws IOException
+    {
+        final List< ProgramClass > classes = new ArrayList< ProgramClass >();
+        try ( ZipFile zipFile = new ZipFile( archive ) )
+        {
+            final Enumeration< ? extends ZipEntry > entries = zipFile.entries();
+            while ( entries.hasMoreElements() )
+            {
+                final ZipEntry entry = entries.nextElement();
+                if ( entry.isDirectory() || ! entry.getName().endsWith( CLASS_EXTENSION ) )
+                {
+                    continue;
+                }
+                try ( InputStream in = zipFile.getInputStream( entry ) )
+                {
+                    classes.add( ProgramClass.read( IOUtils.toByteArray( in ), withBodies ) );
+                }
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new IOException( "Cannot read classes from " + archive + ": " + e.getMessage(), e );
+        }
+        return classes;
+    }
+
+    /**
+     * Merge the read classes in input order, the first definition of a class wins.
+     */
+    private static Map< String, ProgramClass > collect( List< Future< List< ProgramClass > > > tasks )
+            throws IOException
+    {
+        final Map< String, ProgramClass > classes = new HashMap< String, ProgramClass >();
+        for ( Future< List< ProgramClass > > task : tasks )
+        {
+            final List< ProgramClass > read;
+            try
+            {
+                read = task.get();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                throw new IOException( "Interrupted while reading classes", e );
+            }
+            catch ( java.util.concurrent.ExecutionException e )
+            {
+                if ( e.getCause() instanceof IOException )
+                {
+                    throw ( IOException ) e.getCause();
+                }
+                throw new IOException( "Cannot read classes: " + e.getCause(), e.getCause() );
+            }
+            for ( ProgramClass programClass : read )
+            {
+                if ( ! classes.containsKey( programClass.getName() ) )
+                {
+                    classes.put( programClass.getName(), programClass );
+                }
+            }
+        }
+        return classes;
+    }
+
+    /**
+     * Marks the used classes and methods of the program, starting from the kept ones.
+     */
+    private static final class Marker
+    {
+        private final Map< String, ProgramClass > program;
+        private final Map< String, ProgramClass > library;
+
+        private final Set< String > markedClasses = new HashSet< String >();
+        private final Set< String > markedMethods = new HashSet< String >();
+        private final Deque< String > pendingMethods = new ArrayDeque< String >();
+
+        /**
+         * Signatures of methods called virtually and the used classes declaring a method with such signature.
+         */
+        private final Set< String > calledSignatures = new HashSet< String >();
+        private final Map< String, List< String > > declaringClasses = new HashMap< String, List< String > >();
+
+        private Marker( Map< String, ProgramClass > program, Map< String, ProgramClass > library )
+        {
+            this.program = program;
+            this.library = library;
+        }
+
+        Set< String > getMarkedClasses()
+        {
+            return Collections.unmodifiableSet( markedClasses );
+        }
+
+        /**
+         * @return the internal names of all super classes and interfaces, of the program and the library
+         */
+        Set< String > getSupertypes( String name )
+        {
+            final Set< String > supertypes = new HashSet< String >();
+            collectSupertypes( name, supertypes );
+            return supertypes;
+        }
+
+        private void collectSupertypes( String name, Set< String > supertypes )
+        {
+            ProgramClass type = program.get( name );
+            if ( type == null )
+            {
+                type = library.get( name );
+            }
+            if ( type == null )
+            {
+                return;
+            }
+            if ( type.getSuperName() != null && supertypes.add( type.getSuperName() ) )
+            {
+                collectSupertypes( type.getSuperName(), supertypes );
+            }
+            for ( String anInterface : type.getInterfaces() )
+            {
+                if ( supertypes.add( anInterface ) )
+                {
+                    collectSupertypes( anInterface, supertypes );
+                }
+            }
+        }
+
+        void markClass( String name )
+        {
+            final ProgramClass programClass = program.get( name );
+            if ( programClass == null || ! markedClasses.add( name ) )
+            {
+                return;
+            }
+            if ( programClass.getSuperName() != null )
+            {
+                markClass( programClass.getSuperName() );
+            }
+            for ( String anInterface : programClass.getInterfaces() )
+            {
+                markClass( anInterface );
+            }
+
+            Set< String > librarySignatures = null;
+            for ( Map.Entry< String, ProgramClass.Method > method : programClass.getMethods().entrySet() )
+            {
+                final String signature = method.getKey();
+                if ( signature.equals( STATIC_INITIALIZER ) )
+                {
+                    markMethod( name, signature );
+                }
+                else if ( method.getValue().isVirtual() && ! signature.startsWith( CONSTRUCTOR ) )
+                {
+                    List< String > classes = declaringClasses.get( signature );
+                    if ( classes == null )
+                    {
+                        classes = new ArrayList< String >();
+                        declaringClasses.put( signature, classes );
+                    }
+                    classes.add( name );
+
+                    if ( librarySignatures == null )
+                    {
+                        librarySignatures = getLibrarySignatures( name );
+                    }
+                    if ( calledSignatures.contains( signature ) || librarySignatures == null
+                            || librarySignatures.contains( signature ) )
+                    {
+                        markMethod( name, signature );
+                    }
+                }
+            }
+        }
+
+        /**
+         * @return the signatures of the overridable methods of all library supertypes or <code>null</code> if a
+         * supertype is neither part of the program nor of the library, so any method may override one of it
+         */
+        private Set< String > getLibrarySignatures( String name )
+        {
+            final Set< String > signatures = new HashSet< String >( OBJECT_METHODS );
+            for ( String supertype : getSupertypes( name ) )
+            {
+                if ( program.containsKey( supertype ) )
+                {
+                    continue;
+                }
+                final ProgramClass libraryClass = library.get( supertype );
+                if ( libraryClass == null )
+                {
+                    if ( ! supertype.equals( "java/lang/Object" ) )
+                    {
+                        return null;
+                    }
+                    continue;
+                }
+                for ( Map.Entry< String, ProgramClass.Method > method : libraryClass.getMethods().entrySet() )
+                {
+                    if ( method.getValue().isVirtual() )
+                    {
+                        signatures.add( method.getKey() );
+                    }
+                }
+            }
+            return signatures;
+        }
+
+        void markMethod( String owner, String signature )
+        {
+            final ProgramClass programClass = program.get( owner );
+            if ( programClass == null || ! programClass.getMethods().containsKey( signature ) )
+            {
+                return;
+            }
+            final String method = owner + "." + signature;
+            if ( markedMethods.add( method ) )
+            {
+                markClass( owner );
+                pendingMethods.add( method );
+            }
+        }
+
+        /**
+         * Mark a called method, the first definition found in the class hierarchy and, for virtual calls, all
+         * overriding methods of used classes.
+         */
+        private void markCall( String owner, String signature )
+        {
+            markClass( owner );
+            String type = owner;
+            while ( type != null && program.containsKey( type ) )
+            {
+                final ProgramClass programClass = program.get( type );
+                if ( programClass.getMethods().containsKey( signature ) )
+                {
+                    markMethod( type, signature );
+                    break;
+                }
+                type = programClass.getSuperName();
+            }
+            if ( ! signature.startsWith( CONSTRUCTOR ) && ! signature.equals( STATIC_INITIALIZER )
+                    && calledSignatures.add( signature ) )
+            {
+                final List< String > classes = declaringClasses.get( signature );
+                if ( classes != null )
+                {
+                    for ( String declaringClass : new ArrayList< String >( classes ) )
+                    {
+                        markMethod( declaringClass, signature );
+                    }
+                }
+            }
+        }
+
+        void process()
+        {
+            while ( ! pendingMethods.isEmpty() )
+            {
+                final String method = pendingMethods.poll();
+                final int separator = method.indexOf( '.' );
+                final ProgramClass.Method body = program.get( method.substring( 0, separator ) ).getMethods()
+                        .get( method.substring( separator + 1 ) );
+                for ( String referencedClass : body.getReferencedClasses() )
+                {
+                    markClass( referencedClass );
+                }
+                for ( String invokedMethod : body.getInvokedMethods() )
+                {
+                    final int ownerEnd = invokedMethod.indexOf( '.' );
+                    markCall( invokedMethod.substring( 0, ownerEnd ), invokedMethod.substring( ownerEnd + 1 ) );
+                }
+            }
+        }
+    }
+}
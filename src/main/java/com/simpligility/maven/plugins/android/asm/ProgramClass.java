@@ -0,0 +1,331 @@
+package com.simpligility.maven.plugins.android.asm;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.Handle;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Summary of a class file as needed to compute the main dex list: its hierarchy, all classes it references directly
+ * and, per method, the classes and methods the method body uses.
+ *
+ * @see MainDexListBuilder
+ */
+final class ProgramClass
+{
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    /**
+     * A method declared by the class.
+     */
+    static final class Method
+    {
+        private final int access;
+        private final Set< String > referencedClasses = new HashSet< String >();
+        private final List< String > invokedMethods = new ArrayList< String >();
+
+        private Method( int access )
+        {
+            this.access = access;
+        }
+
+        /**
+         * @return true if calls to the method are dispatched virtually, so overriding methods are used as well
+         */
+        boolean isVirtual()
+        {
+            return ( access & ( Opcodes.ACC_STATIC | Opcodes.ACC_PRIVATE ) ) == 0;
+        }
+
+        /**
+         * @return internal names of all classes used by the method body and signature
+         */
+        Set< String > getReferencedClasses()
+        {
+            return referencedClasses;
+        }
+
+        /**
+         * @return the methods invoked by the method body as <code>owner.name(descriptor)</code>
+         */
+        List< String > getInvokedMethods()
+        {
+            return invokedMethods;
+        }
+    }
+
+    private final String name;
+    private final String superName;
+    private final String[] interfaces;
+    private final Set< String > directReferences;
+    private final Map< String, Method > methods;
+
+    private ProgramClass( String name, String superName, String[] interfaces, Set< String > directReferences,
+                          Map< String, Method > methods )
+    {
+        this.name = name;
+        this.superName = superName;
+        this.interfaces = interfaces;
+        this.directReferences = directReferences;
+        this.methods = methods;
+    }
+
+    /**
+     * Parse a class file.
+     *
+     * @param classFile  the bytes of the class file
+     * @param withBodies whether to analyze method bodies, not needed for library classes
+     * @return the summary of the class
+     */
+    static ProgramClass read( byte[] classFile, boolean withBodies )
+    {
+        final ClassReader reader = new ClassReader( classFile );
+        final Set< String > directReferences = withBodies ? readConstantPoolReferences( reader )
+                : Collections.< String >emptySet();
+        final Map< String, Method > methods = new LinkedHashMap< String, Method >();
+        reader.accept( new ClassVisitor( Opcodes.ASM5 )
+        {
+            @Override
+            public FieldVisitor visitField( int access, String fieldName, String desc, String signature,
+                                            Object value )
+            {
+                return null;
+            }
+
+            @Override
+            public MethodVisitor visitMethod( int access, String methodName, String desc, String signature,
+                                              String[] exceptions )
+            {
+                final Method method = new Method( access );
+                methods.put( methodName + desc, method );
+                addTypes( method.referencedClasses, desc );
+                return withBodies ? new BodyVisitor( method ) : null;
+            }
+        }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES | ( withBodies ? 0 : ClassReader.SKIP_CODE ) );
+
+        return new ProgramClass( reader.getClassName(), reader.getSuperName(), reader.getInterfaces(),
+                directReferences, methods );
+    }
+
+    String getName()
+    {
+        return name;
+    }
+
+    /**
+     * @return internal name of the super class, <code>null</code> for <code>java/lang/Object</code>
+     */
+    String getSuperName()
+    {
+        return superName;
+    }
+
+    String[] getInterfaces()
+    {
+        return interfaces;
+    }
+
+    /**
+     * @return internal names of all classes referenced from the constant pool, which the dex verifier may need
+     * when the class is loaded
+     */
+    Set< String > getDirectReferences()
+    {
+        return directReferences;
+    }
+
+    /**
+     * @return the declared methods keyed by name and descriptor, e.g.
+     * <code>attachBaseContext(Landroid/content/Context;)V</code>
+     */
+    Map< String, Method > getMethods()
+    {
+        return methods;
+    }
+
+    /**
+     * Collects the classes referenced by class entries and by the descriptors of field and method references of the
+     * constant pool.
+     */
+    private static Set< String > readConstantPoolReferences( ClassReader reader )
+    {
+        final Set< String > references = new HashSet< String >();
+        final char[] buffer = new char[ reader.getMaxStringLength() ];
+        for ( int i = 1; i < reader.getItemCount(); i++ )
+        {
+            final int offset = reader.getItem( i );
+            if ( offset == 0 )
+            {
+                // second slot of a long or double constant
+                continue;
+            }
+            final int tag = reader.b[ offset - 1 ];
+            if ( tag == CONSTANT_CLASS )
+            {
+                addClass( references, reader.readUTF8( offset, buffer ) );
+            }
+            else if ( tag == CONSTANT_NAME_AND_TYPE )
+            {
+                addTypes( references, reader.readUTF8( offset + 2, buffer ) );
+            }
+        }
+        return references;
+    }
+
+    /**
+     * @param classes        the set to add to
+     * @param internalName   internal name or array descriptor as used by class constants and type instructions
+     */
+    private static void addClass( Set< String > classes, String internalName )
+    {
+        if ( internalName.startsWith( "[" ) )
+        {
+            addType( classes, Type.getType( internalName ) );
+        }
+        else
+        {
+            classes.add( internalName );
+        }
+    }
+
+    /**
+     * @param classes    the set to add to
+     * @param descriptor a field or method descriptor
+     */
+    private static void addTypes( Set< String > classes, String descriptor )
+    {
+        if ( descriptor.startsWith( "(" ) )
+        {
+            for ( Type argumentType : Type.getArgumentTypes( descriptor ) )
+            {
+                addType( classes, argumentType );
+            }
+            addType( classes, Type.getReturnType( descriptor ) );
+        }
+        else
+        {
+            addType( classes, Type.getType( descriptor ) );
+        }
+    }
+
+    private static void addType( Set< String > classes, Type type )
+    {
+        Type elementType = type;
+        if ( type.getSort() == Type.ARRAY )
+        {
+            elementType = type.getElementType();
+        }
+        if ( elementType.getSort() == Type.OBJECT )
+        {
+            classes.add( elementType.getInternalName() );
+        }
+    }
+
+    /**
+     * Records the classes and methods used by a method body.
+     */
+    private static final class BodyVisitor extends MethodVisitor
+    {
+        private final Method method;
+
+        private BodyVisitor( Method method )
+        {
+            super( Opcodes.ASM5 );
+            this.method = method;
+        }
+
+        @Override
+        public void visitTypeInsn( int opcode, String type )
+        {
+            addClass( method.referencedClasses, type );
+        }
+
+        @Override
+        public void visitFieldInsn( int opcode, String owner, String fieldName, String desc )
+        {
+            addClass( method.referencedClasses, owner );
+            addTypes( method.referencedClasses, desc );
+        }
+
+        @Override
+        public void visitMethodInsn( int opcode, String owner, String methodName, String desc, boolean itf )
+        {
+            addClass( method.referencedClasses, owner );
+            if ( ! owner.startsWith( "[" ) )
+            {
+                method.invokedMethods.add( owner + "." + methodName + desc );
+            }
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn( String methodName, String desc, Handle bsm, Object... bsmArgs )
+        {
+            addTypes( method.referencedClasses, desc );
+            addHandle( bsm );
+            for ( Object bsmArg : bsmArgs )
+            {
+                addConstant( bsmArg );
+            }
+        }
+
+        @Override
+        public void visitLdcInsn( Object cst )
+        {
+            addConstant( cst );
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn( String desc, int dims )
+        {
+            addTypes( method.referencedClasses, desc );
+        }
+
+        @Override
+        public void visitTryCatchBlock( Label start, Label end, Label handler, String type )
+        {
+            if ( type != null )
+            {
+                addClass( method.referencedClasses, type );
+            }
+        }
+
+        private void addConstant( Object constant )
+        {
+            if ( constant instanceof Type )
+            {
+                final Type type = ( Type ) constant;
+                if ( type.getSort() == Type.METHOD )
+                {
+                    addTypes( method.referencedClasses, type.getDescriptor() );
+                }
+                else
+                {
+                    addType( method.referencedClasses, type );
+                }
+            }
+            else if ( constant instanceof Handle )
+            {
+                addHandle( ( Handle ) constant );
+            }
+        }
+
+        private void addHandle( Handle handle )
+        {
+            addClass( method.referencedClasses, handle.getOwner() );
+            method.invokedMethods.add( handle.getOwner() + "." + handle.getName() + handle.getDesc() );
+        }
+    }
+}
@@ -0,0 +1,480 @@
+package com.simpligility.maven.plugins.android.common;
+
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The package, version and instrumentation information of the manifest of an APK.
+ * <p>
+ * The binary AndroidManifest.xml is read straight from the APK, so no <code>aapt dump xmltree</code> has to be forked.
+ * The manifests read are kept for the session by the path, size and modification time of their APK, so deploying the
+ * same APK to several devices or undeploying it afterwards reads it only once.
+ */
+public final class ApkManifest
+{
+    private static final String MANIFEST_ENTRY = "AndroidManifest.xml";
+
+    /**
+     * Manifests by the request of their session, shared by the copies of the session of a parallel build.
+     */
+    private static final Map<MavenExecutionRequest, ConcurrentMap<String, ApkManifest>> SESSION_MANIFESTS =
+            new WeakHashMap<MavenExecutionRequest, ConcurrentMap<String, ApkManifest>>();
+
+    private final String packageName;
+    private final Integer versionCode;
+    private final String versionName;
+    private final List<Instrumentation> instrumentations;
+
+    private ApkManifest( String packageName, Integer versionCode, String versionName,
+                         List<Instrumentation> instrumentations )
+    {
+        this.packageName = packageName;
+        this.versionCode = versionCode;
+        this.versionName = versionName;
+        this.instrumentations = Collections.unmodifiableList( instrumentations );
+    }
+
+    /**
+     * @param apkFile the APK to read the manifest of
+     * @param log the log to report ignored manifest values to
+     * @return the manifest of the APK
+     * @throws MojoExecutionException if the APK cannot be read or has no valid manifest
+     */
+    public static ApkManifest forApk( File apkFile, Log log ) throws MojoExecutionException
+    {
+        try
+        {
+            return read( apkFile, log );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Error while reading the manifest of apk file " + apkFile, e );
+        }
+    }
+
+    /**
+     * @param apkFile the APK to read the manifest of
+     * @param session the build session to keep the manifest for, <code>null</code> to not keep it
+     * @param log the log to report ignored manifest values to
+     * @return the manifest of the APK, read already in the session unless the APK changed since
+     * @throws MojoExecutionException if the APK cannot be read or has no valid manifest
+     */
+    public static ApkManifest forApk( File apkFile, MavenSession session, Log log ) throws MojoExecutionException
+    {
+        if ( session == null )
+        {
+            return forApk( apkFile, log );
+        }
+        final ConcurrentMap<String, ApkManifest> manifests;
+        synchronized ( SESSION_MANIFESTS )
+        {
+            ConcurrentMap<String, ApkManifest> sessionManifests = SESSION_MANIFESTS.get( session.getRequest() );
+            if ( sessionManifests == null )
+            {
+                sessionManifests = new ConcurrentHashMap<String, ApkManifest>();
+                SESSION_MANIFESTS.put( session.getRequest(), sessionManifests );
+            }
+            manifests = sessionManifests;
+        }
+        return forApk( apkFile, manifests, log );
+    }
+
+    static ApkManifest forApk( File apkFile, ConcurrentMap<String, ApkManifest> manifests, Log log )
+            throws MojoExecutionException
+    {
+        final String stamp = new Fingerprint().addFileStamp( apkFile ).getValue();
+        ApkManifest manifest = manifests.get( stamp );
+        if ( manifest == null )
+        {
+            manifest = forApk( apkFile, log );
+            manifests.putIfAbsent( stamp, manifest );
+        }
+        return manifest;
+    }
+
+    /**
+     * @return the package of the manifest
+     */
+    public String getPackageName()
+    {
+        return packageName;
+    }
+
+    /**
+     * @return the <code>android:versionCode</code> of the manifest, <code>null</code> if not declared
+     */
+    public Integer getVersionCode()
+    {
+        return versionCode;
+    }
+
+    /**
+     * @return the <code>android:versionName</code> of the manifest, <code>null</code> if not declared or a reference
+     *         to a resource
+     */
+    public String getVersionName()
+    {
+        return versionName;
+    }
+
+    /**
+     * @return the instrumentation elements of the manifest, in declaration order
+     */
+    public List<Instrumentation> getInstrumentations()
+    {
+        return instrumentations;
+    }
+
+    private static ApkManifest read( File apkFile, Log log ) throws IOException, MojoExecutionException
+    {
+        final byte[] manifest;
+        try ( ZipFile apk = new ZipFile( apkFile ) )
+        {
+            final ZipEntry entry = apk.getEntry( MANIFEST_ENTRY );
+            if ( entry == null )
+            {
+                throw new MojoExecutionException( "No " + MANIFEST_ENTRY + " found in apk file " + apkFile );
+            }
+            try ( InputStream in = apk.getInputStream( entry ) )
+            {
+                final ByteArrayOutputStream out = new ByteArrayOutputStream();
+                final byte[] buffer = new byte[ 8 * 1024 ];
+                int read = in.read( buffer );
+                while ( read != -1 )
+                {
+                    out.write( buffer, 0, read );
+                    read = in.read( buffer );
+                }
+                manifest = out.toByteArray();
+            }
+        }
+        try
+        {
+            return new BinaryXmlParser( manifest, log ).parse();
+        }
+        catch ( RuntimeException e )
+        {
+            // Truncated or corrupt chunks surface as buffer underflows or bad indices.
+            throw new MojoExecutionException( "Invalid " + MANIFEST_ENTRY + " in apk file " + apkFile, e );
+        }
+    }
+
+    /**
+     * An <code>instrumentation</code> element of the manifest.
+     */
+    public static final class Instrumentation
+    {
+        private final String name;
+        private final String targetPackage;
+
+        Instrumentation( String name, String targetPackage )
+        {
+            this.name = name;
+            this.targetPackage = targetPackage;
+        }
+
+        /**
+         * @return the class name of the instrumentation runner, as declared
+         */
+        public String getName()
+        {
+            return name;
+        }
+
+        /**
+         * @return the package the instrumentation targets
+         */
+        public String getTargetPackage()
+        {
+            return targetPackage;
+        }
+    }
+
+    /**
+     * Reads the elements of the manifest needed from the binary XML format aapt compiles manifests to: a sequence of
+     * little endian chunks, starting with a string pool and a map of attribute names to resource ids.
+     */
+    private static final class BinaryXmlParser
+    {
+        private static final int XML_CHUNK = 0x0003;
+        private static final int STRING_POOL_CHUNK = 0x0001;
+        private static final int RESOURCE_MAP_CHUNK = 0x0180;
+        private static final int START_ELEMENT_CHUNK = 0x0102;
+        private static final int END_ELEMENT_CHUNK = 0x0103;
+
+        private static final int CHUNK_HEADER_SIZE_OFFSET = 2;
+        private static final int CHUNK_SIZE_OFFSET = 4;
+
+        private static final int STRING_POOL_COUNT_OFFSET = 8;
+        private static final int STRING_POOL_FLAGS_OFFSET = 16;
+        private static final int STRING_POOL_STRINGS_START_OFFSET = 20;
+        private static final int UTF8_FLAG = 1 << 8;
+
+        private static final int ELEMENT_NAME_OFFSET = 4;
+        private static final int ELEMENT_ATTRIBUTE_START_OFFSET = 8;
+        private static final int ELEMENT_ATTRIBUTE_SIZE_OFFSET = 10;
+        private static final int ELEMENT_ATTRIBUTE_COUNT_OFFSET = 12;
+
+        private static final int ATTRIBUTE_NAME_OFFSET = 4;
+        private static final int ATTRIBUTE_RAW_VALUE_OFFSET = 8;
+        private static final int ATTRIBUTE_DATA_TYPE_OFFSET = 15;
+        private static final int ATTRIBUTE_DATA_OFFSET = 16;
+
+        /**
+         * Flags a string length too long for one unit, the flag and the masked high bits preceding the low bits.
+         */
+        private static final int UTF8_LONG_LENGTH = 0x80;
+        private static final int UTF8_LENGTH_HIGH_BITS = 0x7f;
+        private static final int UTF16_LONG_LENGTH = 0x8000;
+        private static final int UTF16_LENGTH_HIGH_BITS = 0x7fff;
+
+        private static final int UINT8_MASK = 0xff;
+        private static final int UINT16_MASK = 0xffff;
+
+        private static final int TYPE_STRING = 0x03;
+        private static final int TYPE_INT_DEC = 0x10;
+        private static final int TYPE_INT_HEX = 0x11;
+
+        private static final int ATTR_NAME = 0x01010003;
+        private static final int ATTR_TARGET_PACKAGE = 0x01010021;
+        private static final int ATTR_VERSION_CODE = 0x0101021b;
+        private static final int ATTR_VERSION_NAME = 0x0101021c;
+
+        private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+        private static final Charset UTF_16LE = Charset.forName( "UTF-16LE" );
+
+        private final ByteBuffer buffer;
+        private final Log log;
+        private String[] strings = new String[ 0 ];
+        private int[] resourceIds = new int[ 0 ];
+
+        private String packageName;
+        private Integer versionCode;
+        private String versionName;
+        private final List<Instrumentation> instrumentations = new ArrayList<Instrumentation>();
+
+        BinaryXmlParser( byte[] data, Log log )
+        {
+            buffer = ByteBuffer.wrap( data ).order( ByteOrder.LITTLE_ENDIAN );
+            this.log = log;
+        }
+
+        ApkManifest parse() throws MojoExecutionException
+        {
+            if ( buffer.getShort( 0 ) != XML_CHUNK )
+            {
+                throw new MojoExecutionException( MANIFEST_ENTRY + " is not a binary XML file" );
+            }
+            int depth = 0;
+            int offset = readUInt16( CHUNK_HEADER_SIZE_OFFSET );
+            final int end = Math.min( buffer.getInt( CHUNK_SIZE_OFFSET ), buffer.limit() );
+            while ( offset < end )
+            {
+                final int type = readUInt16( offset );
+                final int size = buffer.getInt( offset + CHUNK_SIZE_OFFSET );
+                if ( size <= 0 )
+                {
+                    throw new MojoExecutionException( "Invalid chunk size in " + MANIFEST_ENTRY );
+                }
+                if ( type == STRING_POOL_CHUNK )
+                {
+                    readStringPool( offset );
+                }
+                else if ( type == RESOURCE_MAP_CHUNK )
+                {
+                    readResourceMap( offset, size );
+                }
+                else if ( type == START_ELEMENT_CHUNK )
+                {
+                    depth++;
+                    readStartElement( offset, depth );
+                }
+                else if ( type == END_ELEMENT_CHUNK )
+                {
+                    depth--;
+                }
+                offset += size;
+            }
+            if ( packageName == null )
+            {
+                throw new MojoExecutionException( "No package found in " + MANIFEST_ENTRY );
+            }
+            return new ApkManifest( packageName, versionCode, versionName, instrumentations );
+        }
+
+        private void readStringPool( int offset )
+        {
+            final int headerSize = readUInt16( offset + CHUNK_HEADER_SIZE_OFFSET );
+            final int count = buffer.getInt( offset + STRING_POOL_COUNT_OFFSET );
+            final boolean utf8 = ( buffer.getInt( offset + STRING_POOL_FLAGS_OFFSET ) & UTF8_FLAG ) != 0;
+            final int stringsStart = offset + buffer.getInt( offset + STRING_POOL_STRINGS_START_OFFSET );
+            strings = new String[ count ];
+            for ( int i = 0; i < count; i++ )
+            {
+                final int position = stringsStart + buffer.getInt( offset + headerSize + i * 4 );
+                strings[ i ] = utf8 ? readUtf8( position ) : readUtf16( position );
+            }
+        }
+
+        private String readUtf8( int position )
+        {
+            // The length in UTF-16 code units precedes the length in bytes, each taking one or two bytes.
+            int index = position + lengthSize8( position );
+            final int length = length8( index );
+            index += lengthSize8( index );
+            return new String( buffer.array(), index, length, UTF_8 );
+        }
+
+        private int lengthSize8( int position )
+        {
+            return ( buffer.get( position ) & UTF8_LONG_LENGTH ) != 0 ? 2 : 1;
+        }
+
+        private int length8( int position )
+        {
+            final int first = readUInt8( position );
+            return ( first & UTF8_LONG_LENGTH ) != 0
+                    ? ( ( first & UTF8_LENGTH_HIGH_BITS ) << 8 ) | readUInt8( position + 1 )
+                    : first;
+        }
+
+        private String readUtf16( int position )
+        {
+            final int first = readUInt16( position );
+            int length = first;
+            int index = position + 2;
+            if ( ( first & UTF16_LONG_LENGTH ) != 0 )
+            {
+                length = ( ( first & UTF16_LENGTH_HIGH_BITS ) << 16 ) | readUInt16( position + 2 );
+                index += 2;
+            }
+            return new String( buffer.array(), index, length * 2, UTF_16LE );
+        }
+
+        private void readResourceMap( int offset, int size )
+        {
+            final int headerSize = readUInt16( offset + CHUNK_HEADER_SIZE_OFFSET );
+            resourceIds = new int[ ( size - headerSize ) / 4 ];
+            for ( int i = 0; i < resourceIds.length; i++ )
+            {
+                resourceIds[ i ] = buffer.getInt( offset + headerSize + i * 4 );
+            }
+        }
+
+        private void readStartElement( int offset, int depth )
+        {
+            final int headerSize = readUInt16( offset + CHUNK_HEADER_SIZE_OFFSET );
+            final int extension = offset + headerSize;
+            final String element = getString( buffer.getInt( extension + ELEMENT_NAME_OFFSET ) );
+            if ( depth == 1 && "manifest".equals( element ) )
+            {
+                packageName = getAttribute( extension, -1, "package" );
+                versionCode = parseVersionCode( getAttribute( extension, ATTR_VERSION_CODE, "versionCode" ) );
+                versionName = getAttribute( extension, ATTR_VERSION_NAME, "versionName" );
+            }
+            else if ( depth == 2 && "instrumentation".equals( element ) )
+            {
+                instrumentations.add( new Instrumentation( getAttribute( extension, ATTR_NAME, "name" ),
+                        getAttribute( extension, ATTR_TARGET_PACKAGE, "targetPackage" ) ) );
+            }
+        }
+
+        /**
+         * Android attributes are matched by their resource id, as their names may be stripped from the string pool,
+         * the others by their name.
+         *
+         * @return the value of the attribute, <code>null</code> if missing or a reference to a resource
+         */
+        private String getAttribute( int extension, int resourceId, String name )
+        {
+            final int attributeStart = readUInt16( extension + ELEMENT_ATTRIBUTE_START_OFFSET );
+            final int attributeSize = readUInt16( extension + ELEMENT_ATTRIBUTE_SIZE_OFFSET );
+            final int attributeCount = readUInt16( extension + ELEMENT_ATTRIBUTE_COUNT_OFFSET );
+            for ( int i = 0; i < attributeCount; i++ )
+            {
+                final int attribute = extension + attributeStart + i * attributeSize;
+                final int nameIndex = buffer.getInt( attribute + ATTRIBUTE_NAME_OFFSET );
+                final boolean matches = nameIndex >= 0 && nameIndex < resourceIds.length
+                        && resourceIds[ nameIndex ] != 0
+                        ? resourceIds[ nameIndex ] == resourceId
+                        : name.equals( getString( nameIndex ) );
+                if ( !matches )
+                {
+                    continue;
+                }
+                final int rawValue = buffer.getInt( attribute + ATTRIBUTE_RAW_VALUE_OFFSET );
+                final int dataType = readUInt8( attribute + ATTRIBUTE_DATA_TYPE_OFFSET );
+                final int data = buffer.getInt( attribute + ATTRIBUTE_DATA_OFFSET );
+                if ( rawValue >= 0 )
+                {
+                    return getString( rawValue );
+                }
+                if ( dataType == TYPE_STRING )
+                {
+                    return getString( data );
+                }
+                if ( dataType == TYPE_INT_DEC || dataType == TYPE_INT_HEX )
+                {
+                    return Integer.toString( data );
+                }
+                return null;
+            }
+            return null;
+        }
+
+        /**
+         * A version code that is not an integer, such as a string a build tool passed through, is ignored rather
+         * than failing the build.
+         */
+        private Integer parseVersionCode( String code )
+        {
+            if ( code == null )
+            {
+                return null;
+            }
+            try
+            {
+                return Integer.valueOf( code );
+            }
+            catch ( NumberFormatException e )
+            {
+                log.debug( "Ignoring the versionCode '" + code + "' of " + MANIFEST_ENTRY + ", not an integer" );
+                return null;
+            }
+        }
+
+        private String getString( int index )
+        {
+            return index >= 0 && index < strings.length ? strings[ index ] : null;
+        }
+
+        private int readUInt8( int position )
+        {
+            return buffer.get( position ) & UINT8_MASK;
+        }
+
+        private int readUInt16( int position )
+        {
+            return buffer.getShort( position ) & UINT16_MASK;
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package com.simpligility.maven.plugins.android.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.security.InvalidKeyException;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Signs an APK with the APK Signature Scheme v2, which protects the whole archive instead of the single entries
+ * covered by the JAR signature, and lets devices verify the APK without uncompressing every entry.
+ * <p>
+ * The signer does not read the APK again: the contents of the zip entries are digested while they are written through
+ * {@link #newContent(OutputStream)}, and the APK signing block is created from those digests, the central directory
+ * and the end of central directory record. The block has to be written in front of the central directory, see
+ * {@link ZipAligner#align(File, File, ApkV2Signer)}. Nothing may change the APK afterwards, it has to be JAR signed
+ * and aligned already.
+ */
+public final class ApkV2Signer
+{
+    private static final int CHUNK_SIZE = 1024 * 1024;
+    private static final byte CHUNK_PREFIX = ( byte ) 0xa5;
+    private static final byte TOP_LEVEL_PREFIX = 0x5a;
+    private static final String CONTENT_DIGEST_ALGORITHM = "SHA-256";
+
+    private static final int SIGNATURE_SCHEME_V2_BLOCK_ID = 0x7109871a;
+    private static final byte[] APK_SIGNING_BLOCK_MAGIC = "APK Sig Block 42".getBytes( Charset.forName( "US-ASCII" ) );
+
+    private static final int RSA_PKCS1_V1_5_WITH_SHA256 = 0x0103;
+    private static final int ECDSA_WITH_SHA256 = 0x0201;
+    private static final int DSA_WITH_SHA256 = 0x0301;
+
+    private final PrivateKey privateKey;
+    private final List< X509Certificate > certificates;
+    private final int signatureAlgorithmId;
+    private final String signatureAlgorithm;
+
+    /**
+     * @param privateKey   the key to sign with
+     * @param certificates the certificate chain of the key, starting with the certificate of the key
+     * @throws InvalidKeyException if the key is not a RSA, EC or DSA key
+     */
+    public ApkV2Signer( PrivateKey privateKey, List< X509Certificate > certificates ) throws InvalidKeyException
+    {
+        if ( certificates.isEmpty() )
+        {
+            throw new IllegalArgumentException( "At least the certificate of the signing key is required" );
+        }
+        this.privateKey = privateKey;
+        this.certificates = new ArrayList< X509Certificate >( certificates );
+
+        final String keyAlgorithm = privateKey.getAlgorithm();
+        if ( "RSA".equalsIgnoreCase( keyAlgorithm ) )
+        {
+            signatureAlgorithmId = RSA_PKCS1_V1_5_WITH_SHA256;
+            signatureAlgorithm = "SHA256withRSA";
+        }
+        else if ( "EC".equalsIgnoreCase( keyAlgorithm ) )
+        {
+            signatureAlgorithmId = ECDSA_WITH_SHA256;
+            signatureAlgorithm = "SHA256withECDSA";
+        }
+        else if ( "DSA".equalsIgnoreCase( keyAlgorithm ) )
+        {
+            signatureAlgorithmId = DSA_WITH_SHA256;
+            signatureAlgorithm = "SHA256withDSA";
+        }
+        else
+        {
+            throw new InvalidKeyException( "Unsupported key algorithm for APK Signature Scheme v2: " + keyAlgorithm );
+        }
+    }
+
+    /**
+     * Create a signer for a key of a keystore, e.g. the debug keystore.
+     *
+     * @param keyStoreFile  the keystore, of the default keystore type of the JVM
+     * @param storePassword the password of the keystore
+     * @param alias         the alias of the key
+     * @param keyPassword   the password of the key
+     * @return the signer
+     * @throws IOException              if the keystore cannot be read
+     * @throws GeneralSecurityException if the key cannot be loaded or is not supported
+     */
+    public static ApkV2Signer fromKeyStore( File keyStoreFile, String storePassword, String alias,
+                                            String keyPassword ) throws IOException, GeneralSecurityException
+    {
+        final KeyStore keyStore = KeyStore.getInstance( KeyStore.getDefaultType() );
+        try ( InputStream in = new FileInputStream( keyStoreFile ) )
+        {
+            keyStore.load( in, storePassword.toCharArray() );
+        }
+        final KeyStore.Entry entry = keyStore.getEntry( alias,
+                new KeyStore.PasswordProtection( keyPassword.toCharArray() ) );
+        if ( !( entry instanceof KeyStore.PrivateKeyEntry ) )
+        {
+            throw new GeneralSecurityException( "No private key " + alias + " in " + keyStoreFile );
+        }
+
+        final List< X509Certificate > certificates = new ArrayList< X509Certificate >();
+        for ( Certificate certificate : ( ( KeyStore.PrivateKeyEntry ) entry ).getCertificateChain() )
+        {
+            certificates.add( ( X509Certificate ) certificate );
+        }
+        return new ApkV2Signer( ( ( KeyStore.PrivateKeyEntry ) entry ).getPrivateKey(), certificates );
+    }
+
+    /**
+     * @param out the stream the zip entries of the APK are written to
+     * @return a stream digesting everything written through it to <code>out</code>
+     */
+    Content newContent( OutputStream out ) throws GeneralSecurityException
+    {
+        return new Content( out );
+    }
+
+    /**
+     * Digests the zip entries of an APK while they are written, and creates the APK signing block afterwards.
+     */
+    final class Content extends FilterOutputStream
+    {
+        private final MessageDigest digest;
+        private final List< byte[] > chunkDigests = new ArrayList< byte[] >();
+        private final byte[] chunk = new byte[ CHUNK_SIZE ];
+        private int chunkLength;
+
+        private Content( OutputStream out ) throws GeneralSecurityException
+        {
+            super( out );
+            digest = MessageDigest.getInstance( CONTENT_DIGEST_ALGORITHM );
+        }
+
+        @Override
+        public void write( int b ) throws IOException
+        {
+            write( new byte[] { ( byte ) b }, 0, 1 );
+        }
+
+        @Override
+        public void write( byte[] b, int off, int len ) throws IOException
+        {
+            out.write( b, off, len );
+            update( b, off, len );
+        }
+
+        @Override
+        public void close()
+        {
+            // the underlying stream continues with the signing block
+        }
+
+        /**
+         * Create the APK signing block, to be written directly after the zip entries.
+         *
+         * @param centralDirectory      the central directory, written directly after the signing block
+         * @param endOfCentralDirectory the end of central directory record, pointing to the central directory as if
+         *                              it was written directly after the zip entries, without the signing block
+         * @return the APK signing block
+         */
+        byte[] sign( byte[] centralDirectory, byte[] endOfCentralDirectory ) throws GeneralSecurityException
+        {
+            finishChunk();
+            update( centralDirectory, 0, centralDirectory.length );
+            finishChunk();
+            update( endOfCentralDirectory, 0, endOfCentralDirectory.length );
+            finishChunk();
+
+            digest.update( TOP_LEVEL_PREFIX );
+            digest.update( littleEndianInt( chunkDigests.size() ) );
+            for ( byte[] chunkDigest : chunkDigests )
+            {
+                digest.update( chunkDigest );
+            }
+            return createSigningBlock( digest.digest() );
+        }
+
+        private void update( byte[] b, int off, int len )
+        {
+            while ( len > 0 )
+            {
+                final int count = Math.min( len, CHUNK_SIZE - chunkLength );
+                System.arraycopy( b, off, chunk, chunkLength, count );
+                chunkLength += count;
+                off += count;
+                len -= count;
+                if ( chunkLength == CHUNK_SIZE )
+                {
+                    finishChunk();
+                }
+            }
+        }
+
+        /**
+         * Digest the current chunk. Chunks do not span sections, so this is also called at the end of a section.
+         */
+        private void finishChunk()
+        {
+            if ( chunkLength == 0 )
+            {
+                return;
+            }
+            digest.update( CHUNK_PREFIX );
+            digest.update( littleEndianInt( chunkLength ) );
+            digest.update( chunk, 0, chunkLength );
+            chunkDigests.add( digest.digest() );
+            chunkLength = 0;
+        }
+    }
+
+    private byte[] createSigningBlock( byte[] contentDigest ) throws GeneralSecurityException
+    {
+        final List< byte[] > encodedCertificates = new ArrayList< byte[] >();
+        for ( X509Certificate certificate : certificates )
+        {
+            encodedCertificates.add( lengthPrefixed( certificate.getEncoded() ) );
+        }
+        final byte[] signedData = concat(
+                lengthPrefixed( lengthPrefixed( littleEndianInt( signatureAlgorithmId ),
+                        lengthPrefixed( contentDigest ) ) ),
+                lengthPrefixed( encodedCertificates.toArray( new byte[ encodedCertificates.size() ][] ) ),
+                lengthPrefixed() );
+
+        final Signature signature = Signature.getInstance( signatureAlgorithm );
+        signature.initSign( privateKey );
+        signature.update( signedData );
+
+        final byte[] signer = concat(
+                lengthPrefixed( signedData ),
+                lengthPrefixed( lengthPrefixed( littleEndianInt( signatureAlgorithmId ),
+                        lengthPrefixed( signature.sign() ) ) ),
+                lengthPrefixed( certificates.get( 0 ).getPublicKey().getEncoded() ) );
+        final byte[] value = lengthPrefixed( lengthPrefixed( signer ) );
+
+        // size of block, ID-value pair, size of block again and magic; the sizes do not count the first size field
+        final int blockSize = 8 + 4 + value.length + 8 + APK_SIGNING_BLOCK_MAGIC.length;
+        final ByteBuffer block = ByteBuffer.allocate( 8 + blockSize ).order( ByteOrder.LITTLE_ENDIAN );
+        block.putLong( blockSize );
+        block.putLong( 4 + value.length );
+        block.putInt( SIGNATURE_SCHEME_V2_BLOCK_ID );
+        block.put( value );
+        block.putLong( blockSize );
+        block.put( APK_SIGNING_BLOCK_MAGIC );
+        return block.array();
+    }
+
+    private static byte[] littleEndianInt( int value )
+    {
+        return ByteBuffer.allocate( 4 ).order( ByteOrder.LITTLE_ENDIAN ).putInt( value ).array();
+    }
+
+    /**
+     * @return the parts, prefixed with their total length as 32 bit little endian integer
+     */
+    private static byte[] lengthPrefixed( byte[]... parts )
+    {
+        final byte[] content = concat( parts );
+        return concat( littleEndianInt( content.length ), content );
+    }
+
+    private static byte[] concat( byte[]... parts )
+    {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        for ( byte[] part : parts )
+        {
+            result.write( part, 0, part.length );
+        }
+        return result.toByteArray();
+    }
+}
@@ -19,15 +19,32 @@ import org.apache.maven.plugin.MojoExecutionException;
 import org.codehaus.plexus.logging.Logger;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Provides convenient functions for resolving artifacts.
+ * <p>
+ * Resolutions are memoized by artifact coordinates, for the session when a {@link DependencyGraphCache} is given.
+ * Concurrent requests for the same artifact wait for the resolution already in progress instead of resolving it
+ * again.
  */
 public final class ArtifactResolverHelper
 {
@@ -38,9 +55,29 @@ public final class ArtifactResolverHelper
             Artifact.SCOPE_PROVIDED, Artifact.SCOPE_IMPORT
     );
 
+    /**
+     * The number of threads resolving a batch of artifacts, the same property and default Maven uses to resolve
+     * artifacts in parallel.
+     */
+    private static final int RESOLUTION_THREADS = Integer.getInteger( "maven.artifact.threads", 5 );
+
+    /**
+     * Runs resolutions in the requesting thread.
+     */
+    private static final Executor CALLING_THREAD = new Executor()
+    {
+        @Override
+        public void execute( Runnable command )
+        {
+            command.run();
+        }
+    };
+
     private final ArtifactResolver artifactResolver;
     private final Logger log;
     private final List<ArtifactRepository> remoteArtifactRepositories;
+    private final DependencyGraphCache cache;
+    private final ConcurrentMap<String, Future<Artifact>> resolutions;
 
     /**
      * Creates an ArtifactResolver that has no remote repositories to resolve against.
@@ -52,10 +89,26 @@ public final class ArtifactResolverHelper
 
     public ArtifactResolverHelper( ArtifactResolver artifactResolver, Logger log,
                                   final List<ArtifactRepository> remoteArtifactRepositories )
+    {
+        this( artifactResolver, log, remoteArtifactRepositories, null );
+    }
+
+    /**
+     * Creates an ArtifactResolver that shares its resolved artifacts with the session.
+     *
+     * @param cache the cache of the session, or <code>null</code> to only memoize resolutions of this helper.
+     */
+    public ArtifactResolverHelper( ArtifactResolver artifactResolver, Logger log,
+                                  final List<ArtifactRepository> remoteArtifactRepositories,
+                                  DependencyGraphCache cache )
     {
         this.artifactResolver = artifactResolver;
         this.log = log;
         this.remoteArtifactRepositories = remoteArtifactRepositories;
+        this.cache = cache;
+        this.resolutions = cache != null
+                ? cache.getResolvedArtifacts()
+                : new ConcurrentHashMap<String, Future<Artifact>>();
     }
 
     /**
@@ -118,7 +171,7 @@ public final class ArtifactResolverHelper
      */
     public File resolveArtifactToFile( Artifact artifact ) throws MojoExecutionException
     {
-        final Artifact resolvedArtifact = resolveArtifact( artifact );
+        final Artifact resolvedArtifact = await( artifact, submit( artifact, CALLING_THREAD ) );
         final File jar = resolvedArtifact.getFile();
         if ( jar == null )
         {
@@ -129,14 +182,157 @@ public final class ArtifactResolverHelper
         return jar;
     }
 
+    /**
+     * Resolves a batch of artifacts concurrently. Artifacts already resolved, or being resolved by another thread,
+     * are not resolved again.
+     *
+     * @param artifacts to resolve
+     * @return the resolved artifacts, in the order of the given artifacts.
+     * @throws org.apache.maven.plugin.MojoExecutionException if any of the artifacts could not be resolved.
+     */
     public Set<Artifact> resolveArtifacts( Collection<Artifact> artifacts ) throws MojoExecutionException
     {
         final Set<Artifact> resolvedArtifacts = new LinkedHashSet<Artifact>();
-        for ( final Artifact artifact : artifacts )
+        if ( artifacts.size() < 2 )
+        {
+            for ( final Artifact artifact : artifacts )
+            {
+                resolvedArtifacts.add( await( artifact, submit( artifact, CALLING_THREAD ) ) );
+            }
+            return resolvedArtifacts;
+        }
+
+        final int threads = Math.max( 1, Math.min( artifacts.size(), RESOLUTION_THREADS ) );
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor( threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory()
+                {
+                    @Override
+                    public Thread newThread( Runnable runnable )
+                    {
+                        final Thread thread = new Thread( runnable, "android-artifact-resolver" );
+                        thread.setDaemon( true );
+                        return thread;
+                    }
+                } );
+        boolean completed = false;
+        try
         {
-            resolvedArtifacts.add( resolveArtifact( artifact ) );
+            final List<Future<Artifact>> pending = new ArrayList<Future<Artifact>>( artifacts.size() );
+            for ( final Artifact artifact : artifacts )
+            {
+                pending.add( submit( artifact, executor ) );
+            }
+            int index = 0;
+            for ( final Artifact artifact : artifacts )
+            {
+                resolvedArtifacts.add( await( artifact, pending.get( index++ ) ) );
+            }
+            completed = true;
+            return resolvedArtifacts;
+        }
+        finally
+        {
+            // Running resolutions may be awaited by other requests, so they are completed, not interrupted.
+            executor.shutdown();
+            if ( !completed )
+            {
+                abandonQueued( executor );
+            }
         }
-        return resolvedArtifacts;
+    }
+
+    /**
+     * Cancels and forgets the resolutions of a failed batch that have not started, so that later requests for their
+     * artifacts resolve them again instead of waiting for a resolution that never runs.
+     */
+    private void abandonQueued( ThreadPoolExecutor executor )
+    {
+        final List<Runnable> queued = new ArrayList<Runnable>();
+        executor.getQueue().drainTo( queued );
+        for ( final Runnable runnable : queued )
+        {
+            final Resolution resolution = ( Resolution ) runnable;
+            resolution.cancel( false );
+            resolutions.remove( resolution.artifactId, resolution );
+        }
+    }
+
+    /**
+     * Returns the resolution of an artifact, starting it with the executor unless it is already in progress or
+     * done. Artifacts built by the projects of the session are always resolved again.
+     */
+    private Future<Artifact> submit( final Artifact artifact, Executor executor )
+    {
+        final Resolution task = new Resolution( artifact.getId(), new Callable<Artifact>()
+        {
+            @Override
+            public Artifact call() throws MojoExecutionException
+            {
+                return resolveArtifact( artifact );
+            }
+        } );
+        if ( cache != null && cache.isReactorArtifact( artifact ) )
+        {
+            executor.execute( task );
+            return task;
+        }
+
+        final Future<Artifact> existing = resolutions.putIfAbsent( artifact.getId(), task );
+        if ( existing != null )
+        {
+            log.debug( "Using resolution of " + artifact.getId() );
+            return existing;
+        }
+        executor.execute( task );
+        return task;
+    }
+
+    /**
+     * Waits for the resolution of an artifact. A failed resolution is forgotten, so it is attempted again by the
+     * next request. A resolution cancelled with a failed batch is attempted again right away.
+     */
+    private Artifact await( Artifact artifact, Future<Artifact> resolution ) throws MojoExecutionException
+    {
+        final Artifact resolvedArtifact;
+        try
+        {
+            resolvedArtifact = resolution.get();
+        }
+        catch ( CancellationException e )
+        {
+            resolutions.remove( artifact.getId(), resolution );
+            return await( artifact, submit( artifact, CALLING_THREAD ) );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while resolving artifact " + artifact, e );
+        }
+        catch ( ExecutionException e )
+        {
+            resolutions.remove( artifact.getId(), resolution );
+            final Throwable cause = e.getCause();
+            if ( cause instanceof MojoExecutionException )
+            {
+                throw ( MojoExecutionException ) cause;
+            }
+            if ( cause instanceof RuntimeException )
+            {
+                throw ( RuntimeException ) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw ( Error ) cause;
+            }
+            throw new MojoExecutionException( "Could not resolve artifact " + artifact, cause );
+        }
+
+        // A resolution shared with another request resolved another instance of the artifact.
+        if ( resolvedArtifact != artifact && artifact.getFile() == null )
+        {
+            artifact.setFile( resolvedArtifact.getFile() );
+        }
+        return resolvedArtifact;
     }
 
     /**
@@ -173,4 +369,18 @@ public final class ArtifactResolverHelper
         log.debug( "Resolved : " + resolvedArtifact );
         return resolvedArtifact;
     }
+
+    /**
+     * The resolution of an artifact, knowing the id it is memoized by.
+     */
+    private static final class Resolution extends FutureTask<Artifact>
+    {
+        private final String artifactId;
+
+        Resolution( String artifactId, Callable<Artifact> callable )
+        {
+            super( callable );
+            this.artifactId = artifactId;
+        }
+    }
 }
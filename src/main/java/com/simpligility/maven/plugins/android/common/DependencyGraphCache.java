@@ -0,0 +1,165 @@
+package com.simpligility.maven.plugins.android.common;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.execution.MavenExecutionRequest;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Exclusion;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+
+/**
+ * Dependency graphs, library dependencies and resolved artifacts shared by the lifecycle participant and all mojos of
+ * a build session, so that a multi module build does not build the same graph or resolve the same artifacts over and
+ * over again.
+ * <p>
+ * Dependency graphs are keyed by the project coordinates and the declared dependencies of the project model, so they
+ * are not used anymore once the dependencies of the model are changed, e.g. by the lifecycle participant adding the
+ * classes of AAR dependencies. Library entries and resolved artifacts are keyed by the artifact coordinates, which
+ * determine their dependencies and files. Artifacts of the projects of the session are not cached, their files
+ * change while the session builds them.
+ */
+public final class DependencyGraphCache
+{
+    /**
+     * Caches by the request of their session. The request is shared by the copies of the session that Maven creates
+     * for the projects of a parallel build.
+     */
+    private static final Map< MavenExecutionRequest, DependencyGraphCache > CACHES =
+            new WeakHashMap< MavenExecutionRequest, DependencyGraphCache >();
+
+    private final ConcurrentMap< String, DependencyNode > dependencyGraphs =
+            new ConcurrentHashMap< String, DependencyNode >();
+    private final ConcurrentMap< String, Set< Artifact > > libraryDependencies =
+            new ConcurrentHashMap< String, Set< Artifact > >();
+    private final ConcurrentMap< String, Future< Artifact > > resolvedArtifacts =
+            new ConcurrentHashMap< String, Future< Artifact > >();
+
+    /**
+     * The coordinates of the projects of the session.
+     */
+    private final Set< String > reactorProjects = new HashSet< String >();
+
+    DependencyGraphCache()
+    {
+    }
+
+    private DependencyGraphCache( MavenSession session )
+    {
+        if ( session.getProjects() != null )
+        {
+            for ( MavenProject project : session.getProjects() )
+            {
+                reactorProjects.add( project.getGroupId() + ":" + project.getArtifactId() + ":"
+                        + project.getVersion() );
+            }
+        }
+    }
+
+    /**
+     * @param session the build session
+     * @return the cache of the session
+     */
+    public static DependencyGraphCache forSession( MavenSession session )
+    {
+        synchronized ( CACHES )
+        {
+            DependencyGraphCache cache = CACHES.get( session.getRequest() );
+            if ( cache == null )
+            {
+                cache = new DependencyGraphCache( session );
+                CACHES.put( session.getRequest(), cache );
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * @param project the project
+     * @param filter  the name of the filter the graph was built with
+     * @return the dependency graph of the project, <code>null</code> if not cached
+     */
+    public DependencyNode getDependencyGraph( MavenProject project, String filter )
+    {
+        return dependencyGraphs.get( getProjectKey( project ) + '|' + filter );
+    }
+
+    /**
+     * @param project the project
+     * @param filter  the name of the filter the graph was built with
+     * @param graph   the dependency graph of the project
+     */
+    public void putDependencyGraph( MavenProject project, String filter, DependencyNode graph )
+    {
+        dependencyGraphs.put( getProjectKey( project ) + '|' + filter, graph );
+    }
+
+    /**
+     * @param artifact the library
+     * @return the APK, APKLIB and AAR dependencies of the library, <code>null</code> if not cached
+     */
+    public Set< Artifact > getLibraryDependencies( Artifact artifact )
+    {
+        return libraryDependencies.get( artifact.getId() );
+    }
+
+    /**
+     * @param artifact     the library
+     * @param dependencies the APK, APKLIB and AAR dependencies of the library
+     * @return the cached dependencies
+     */
+    public Set< Artifact > putLibraryDependencies( Artifact artifact, Set< Artifact > dependencies )
+    {
+        final Set< Artifact > cached = Collections.unmodifiableSet( dependencies );
+        libraryDependencies.put( artifact.getId(), cached );
+        return cached;
+    }
+
+    /**
+     * @return the resolutions of artifacts, finished or in progress, by {@link Artifact#getId()}
+     */
+    ConcurrentMap< String, Future< Artifact > > getResolvedArtifacts()
+    {
+        return resolvedArtifacts;
+    }
+
+    /**
+     * @param artifact an artifact
+     * @return true if the artifact is built by a project of the session, so its resolution must not be cached
+     */
+    boolean isReactorArtifact( Artifact artifact )
+    {
+        return reactorProjects.contains( artifact.getGroupId() + ":" + artifact.getArtifactId() + ":"
+                + artifact.getBaseVersion() );
+    }
+
+    /**
+     * @return the coordinates of the project and a fingerprint of its declared dependencies
+     */
+    private static String getProjectKey( MavenProject project )
+    {
+        final Fingerprint fingerprint = new Fingerprint();
+        for ( Dependency dependency : project.getDependencies() )
+        {
+            fingerprint.add( dependency.getManagementKey() )
+                    .add( dependency.getVersion() )
+                    .add( dependency.getScope() )
+                    .add( String.valueOf( dependency.isOptional() ) )
+                    .add( dependency.getSystemPath() );
+            for ( Exclusion exclusion : dependency.getExclusions() )
+            {
+                fingerprint.add( exclusion.getGroupId() + ":" + exclusion.getArtifactId() );
+            }
+        }
+        return project.getId() + '@' + fingerprint.getValue();
+    }
+}
@@ -61,7 +61,7 @@ public final class DependencyResolver
      * @param session           MavenSession in which to resolve the artifacts.
      * @param repositorySystem  RepositorySystem with which to resolve the artifacts.
      * @param artifact          Artifact for whom to get the dependencies.
-     * @return Set of APK, APKLIB and AAR dependencies.
+     * @return Set of APK, APKLIB and AAR dependencies, cached for the session.
      * @throws org.apache.maven.plugin.MojoExecutionException if it couldn't resolve any of the dependencies.
      */
     public Set<Artifact> getLibraryDependenciesFor( MavenSession session,
@@ -69,6 +69,13 @@ public final class DependencyResolver
                                                     Artifact artifact )
             throws MojoExecutionException
     {
+        final DependencyGraphCache cache = DependencyGraphCache.forSession( session );
+        final Set<Artifact> cached = cache.getLibraryDependencies( artifact );
+        if ( cached != null )
+        {
+            return cached;
+        }
+
         // Set a filter that should only return interesting artifacts.
         final ArtifactFilter filter = new ArtifactFilter()
         {
@@ -103,6 +110,6 @@ public final class DependencyResolver
             }
         }
 
-        return libraryDeps;
+        return cache.putLibraryDependencies( artifact, libraryDeps );
     }
 }
@@ -0,0 +1,126 @@
+package com.simpligility.maven.plugins.android.common;
+
+import com.android.ddmlib.AndroidDebugBridge;
+import com.android.ddmlib.IDevice;
+
+/**
+ * Waits for a condition on the devices attached to the Android Debug Bridge. Instead of sleeping for fixed intervals
+ * the condition is re-evaluated as soon as the bridge reports a device being connected, disconnected or changing its
+ * state, so a wait ends right when the device is ready.
+ * <p>
+ * Some changes, like the bridge receiving an empty initial device list, are not signalled by an event, therefore the
+ * condition is also re-checked after {@link #MAX_MILLIS_BETWEEN_CHECKS} without an event.
+ *
+ * @see AndroidDebugBridge#addDeviceChangeListener(AndroidDebugBridge.IDeviceChangeListener)
+ */
+public final class DeviceChangeWaiter implements AndroidDebugBridge.IDeviceChangeListener
+{
+    /**
+     * Upper bound for the time between two evaluations of the condition.
+     */
+    public static final long MAX_MILLIS_BETWEEN_CHECKS = 200;
+
+    /**
+     * A condition on the state of the Android Debug Bridge or its devices.
+     */
+    public interface Condition
+    {
+        /**
+         * @return true once the state waited for has been reached
+         */
+        boolean isSatisfied();
+    }
+
+    private final Object lock = new Object();
+
+    /**
+     * Number of device change events received, guarded by {@link #lock}.
+     */
+    private long changes;
+
+    /**
+     * Start listening to device changes. Must be paired with {@link #unregister()}.
+     *
+     * @return this waiter
+     */
+    public DeviceChangeWaiter register()
+    {
+        AndroidDebugBridge.addDeviceChangeListener( this );
+        return this;
+    }
+
+    /**
+     * Stop listening to device changes.
+     */
+    public void unregister()
+    {
+        AndroidDebugBridge.removeDeviceChangeListener( this );
+    }
+
+    /**
+     * Wait until the condition is satisfied or the timeout is reached.
+     * <p>
+     * The condition is evaluated without holding any lock of this waiter, so it may safely query the bridge and its
+     * devices while the bridge delivers events.
+     *
+     * @param condition     the condition to wait for
+     * @param timeoutMillis maximum time to wait in milliseconds
+     * @return true if the condition was satisfied, false on timeout
+     * @throws InterruptedException if the waiting thread was interrupted
+     */
+    public boolean await( Condition condition, long timeoutMillis ) throws InterruptedException
+    {
+        final long deadline = System.currentTimeMillis() + timeoutMillis;
+        while ( true )
+        {
+            final long seenChanges;
+            synchronized ( lock )
+            {
+                seenChanges = changes;
+            }
+            if ( condition.isSatisfied() )
+            {
+                return true;
+            }
+            final long remaining = deadline - System.currentTimeMillis();
+            if ( remaining <= 0 )
+            {
+                return false;
+            }
+            synchronized ( lock )
+            {
+                if ( changes == seenChanges )
+                {
+                    lock.wait( Math.min( remaining, MAX_MILLIS_BETWEEN_CHECKS ) );
+                }
+            }
+        }
+    }
+
+    @Override
+    public void deviceConnected( IDevice device )
+    {
+        signal();
+    }
+
+    @Override
+    public void deviceDisconnected( IDevice device )
+    {
+        signal();
+    }
+
+    @Override
+    public void deviceChanged( IDevice device, int changeMask )
+    {
+        signal();
+    }
+
+    private void signal()
+    {
+        synchronized ( lock )
+        {
+            changes++;
+            lock.notifyAll();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.simpligility.maven.plugins.android.common;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Helper methods to compute message digests of files.
+ */
+public final class FileHashHelper
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private FileHashHelper()
+    {
+        // no instances
+    }
+
+    /**
+     * @param file the file to hash
+     * @return the MD5 digest of the file content as lower case hex string, like <code>md5sum</code> prints it
+     * @throws IOException if the file cannot be read
+     */
+    public static String md5Hex( File file ) throws IOException
+    {
+        return digestHex( file, "MD5" );
+    }
+
+    /**
+     * @param file      the file to hash
+     * @param algorithm the name of the digest algorithm, e.g. <code>SHA-256</code>
+     * @return the digest of the file content as lower case hex string
+     * @throws IOException if the file cannot be read
+     */
+    public static String digestHex( File file, String algorithm ) throws IOException
+    {
+        final MessageDigest digest = createDigest( algorithm );
+        update( digest, file );
+        return toHex( digest.digest() );
+    }
+
+    /**
+     * Feed the content of a file into a digest.
+     *
+     * @param digest the digest to update
+     * @param file   the file to read
+     * @throws IOException if the file cannot be read
+     */
+    public static void update( MessageDigest digest, File file ) throws IOException
+    {
+        final byte[] buffer = new byte[ BUFFER_SIZE ];
+        try ( InputStream in = new FileInputStream( file ) )
+        {
+            int read = in.read( buffer );
+            while ( read != -1 )
+            {
+                digest.update( buffer, 0, read );
+                read = in.read( buffer );
+            }
+        }
+    }
+
+    /**
+     * @param algorithm the name of the digest algorithm
+     * @return a new digest, every JVM has to support MD5, SHA-1 and SHA-256
+     */
+    public static MessageDigest createDigest( String algorithm )
+    {
+        try
+        {
+            return MessageDigest.getInstance( algorithm );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            throw new IllegalArgumentException( "Unsupported digest algorithm " + algorithm, e );
+        }
+    }
+
+    /**
+     * @param bytes the bytes to convert
+     * @return the bytes as lower case hex string
+     */
+    public static String toHex( byte[] bytes )
+    {
+        final char[] hex = new char[ bytes.length * 2 ];
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            hex[ i * 2 ] = HEX_DIGITS[ ( bytes[ i ] >> 4 ) & 0xf ];
+            hex[ i * 2 + 1 ] = HEX_DIGITS[ bytes[ i ] & 0xf ];
+        }
+        return new String( hex );
+    }
+}
@@ -0,0 +1,147 @@
+package com.simpligility.maven.plugins.android.common;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+/**
+ * Fingerprint of the inputs of a build step, used to skip the step when its inputs did not change since the last
+ * run. Values and files are fed into a SHA-256 digest; the resulting fingerprint is persisted in a stamp file next
+ * to the outputs of the step and compared on the next run.
+ * <p>
+ * Files can either be added with their content, which is exact and meant for small files like configurations, or
+ * with their stamp (path, size and modification time), which is cheap and meant for large inputs like jars and
+ * class directories.
+ */
+public final class Fingerprint
+{
+    private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+    private final MessageDigest digest = FileHashHelper.createDigest( "SHA-256" );
+
+    private String value;
+
+    /**
+     * @param text the value to add, may be <code>null</code>
+     * @return this fingerprint
+     */
+    public Fingerprint add( String text )
+    {
+        checkNotFinished();
+        final byte[] bytes = String.valueOf( text ).getBytes( UTF_8 );
+        // length prefix, so that "ab" + "c" and "a" + "bc" differ
+        digest.update( Integer.toString( bytes.length ).getBytes( UTF_8 ) );
+        digest.update( (byte) ':' );
+        digest.update( bytes );
+        return this;
+    }
+
+    /**
+     * Add the path and the content of a file. A missing file is recorded as such.
+     *
+     * @param file the file to add
+     * @return this fingerprint
+     * @throws IOException if the file cannot be read
+     */
+    public Fingerprint addFileContent( File file ) throws IOException
+    {
+        add( file.getAbsolutePath() );
+        if ( file.isFile() )
+        {
+            FileHashHelper.update( digest, file );
+        }
+        else
+        {
+            add( "missing" );
+        }
+        return this;
+    }
+
+    /**
+     * Add the path, size and modification time of a file, or of all files below a directory.
+     *
+     * @param file the file or directory to add
+     * @return this fingerprint
+     */
+    public Fingerprint addFileStamp( File file )
+    {
+        add( file.getAbsolutePath() );
+        if ( file.isDirectory() )
+        {
+            final File[] children = file.listFiles();
+            if ( children != null )
+            {
+                Arrays.sort( children );
+                for ( File child : children )
+                {
+                    addFileStamp( child );
+                }
+            }
+        }
+        else if ( file.isFile() )
+        {
+            add( Long.toString( file.length() ) );
+            add( Long.toString( file.lastModified() ) );
+        }
+        else
+        {
+            add( "missing" );
+        }
+        return this;
+    }
+
+    /**
+     * @return the fingerprint as hex string, no further values can be added afterwards
+     */
+    public String getValue()
+    {
+        if ( value == null )
+        {
+            value = FileHashHelper.toHex( digest.digest() );
+        }
+        return value;
+    }
+
+    /**
+     * @param stampFile the stamp file written by a previous run
+     * @return true if the stamp file exists and holds this fingerprint
+     */
+    public boolean matches( File stampFile )
+    {
+        if ( ! stampFile.isFile() )
+        {
+            return false;
+        }
+        try
+        {
+            return getValue().equals( FileUtils.readFileToString( stampFile, UTF_8 ).trim() );
+        }
+        catch ( IOException e )
+        {
+            return false;
+        }
+    }
+
+    /**
+     * Persist this fingerprint, after the step completed successfully.
+     *
+     * @param stampFile the stamp file to write
+     * @throws IOException if the stamp file cannot be written
+     */
+    public void store( File stampFile ) throws IOException
+    {
+        FileUtils.writeStringToFile( stampFile, getValue(), UTF_8 );
+    }
+
+    private void checkNotFinished()
+    {
+        if ( value != null )
+        {
+            throw new IllegalStateException( "Fingerprint is already computed" );
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.simpligility.maven.plugins.android.common;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Mirrors the files of several folders into one target folder, e.g. the assets of a project and its libraries into
+ * the single assets folder aapt accepts.
+ * <p>
+ * A file of a later source folder overlays the file with the same path of an earlier one. The files are hard linked
+ * into the target folder, or copied where the source folder is on another file store. Files of the target folder that
+ * already are a link to their source, or a copy with the size and modification time of their source, are kept. Files
+ * of the target folder without source are removed, so the target folder holds exactly the overlay of the source
+ * folders.
+ */
+public final class FolderMirror
+{
+    private final Log log;
+
+    public FolderMirror( Log log )
+    {
+        this.log = log;
+    }
+
+    /**
+     * @param sourceFolders the folders to mirror, by increasing precedence. Missing folders are skipped.
+     * @param targetFolder  the folder to mirror into, created if missing and removed if there are no files to mirror
+     * @throws MojoExecutionException if the target folder cannot be updated
+     */
+    public void mirror( List<File> sourceFolders, File targetFolder ) throws MojoExecutionException
+    {
+        final Map<String, Source> sources = new TreeMap<String, Source>();
+        try
+        {
+            final FileStore targetStore = getFileStore( targetFolder );
+            for ( File sourceFolder : sourceFolders )
+            {
+                if ( sourceFolder.isDirectory() )
+                {
+                    collect( sourceFolder, "", targetStore.equals( getFileStore( sourceFolder ) ), sources );
+                }
+            }
+
+            if ( sources.isEmpty() )
+            {
+                // Like a copy of missing folders, leave no target folder behind.
+                FileUtils.deleteDirectory( targetFolder );
+                return;
+            }
+            removeStale( targetFolder, "", sources );
+
+            int updated = 0;
+            for ( Map.Entry<String, Source> entry : sources.entrySet() )
+            {
+                final Source source = entry.getValue();
+                final File target = new File( targetFolder, entry.getKey() );
+                if ( !isUpToDate( source, target ) )
+                {
+                    update( source, target );
+                    updated++;
+                }
+            }
+            log.debug( "Mirrored " + sources.size() + " files into " + targetFolder + ", updated " + updated );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Could not mirror " + sourceFolders + " into " + targetFolder, e );
+        }
+    }
+
+    private static void collect( File folder, String prefix, boolean linked, Map<String, Source> sources )
+    {
+        final File[] files = folder.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        for ( File file : files )
+        {
+            final String path = prefix + file.getName();
+            if ( file.isDirectory() )
+            {
+                collect( file, path + "/", linked, sources );
+            }
+            else
+            {
+                sources.put( path, new Source( file, linked ) );
+            }
+        }
+    }
+
+    /**
+     * Removes the files of the target folder that have no source and the folders that end up empty.
+     */
+    private static void removeStale( File folder, String prefix, Map<String, Source> sources ) throws IOException
+    {
+        final File[] files = folder.listFiles();
+        if ( files == null )
+        {
+            return;
+        }
+        for ( File file : files )
+        {
+            final String path = prefix + file.getName();
+            if ( file.isDirectory() && !sources.containsKey( path ) )
+            {
+                removeStale( file, path + "/", sources );
+                final String[] remaining = file.list();
+                if ( remaining != null && remaining.length == 0 )
+                {
+                    Files.delete( file.toPath() );
+                }
+            }
+            else if ( file.isDirectory() )
+            {
+                FileUtils.deleteDirectory( file );
+            }
+            else if ( !sources.containsKey( path ) )
+            {
+                Files.delete( file.toPath() );
+            }
+        }
+    }
+
+    private static boolean isUpToDate( Source source, File target ) throws IOException
+    {
+        if ( !target.isFile() )
+        {
+            return false;
+        }
+        if ( source.linked )
+        {
+            // Not a copy, a link to the file a previous build mirrored may have the same size and time.
+            return Files.isSameFile( source.file.toPath(), target.toPath() );
+        }
+        return target.length() == source.file.length() && target.lastModified() == source.file.lastModified();
+    }
+
+    private void update( Source source, File target ) throws IOException
+    {
+        final File parent = target.getParentFile();
+        if ( !parent.isDirectory() && !parent.mkdirs() )
+        {
+            throw new IOException( "Could not create " + parent );
+        }
+        Files.deleteIfExists( target.toPath() );
+        if ( source.linked )
+        {
+            try
+            {
+                Files.createLink( target.toPath(), source.file.toPath() );
+                return;
+            }
+            catch ( UnsupportedOperationException | IOException e )
+            {
+                log.debug( "Could not link " + source.file + ", copying it: " + e.getMessage() );
+            }
+        }
+        Files.copy( source.file.toPath(), target.toPath(), StandardCopyOption.COPY_ATTRIBUTES );
+    }
+
+    /**
+     * @return the file store of a file, or of its closest existing parent
+     */
+    private static FileStore getFileStore( File file ) throws IOException
+    {
+        File existing = file.getAbsoluteFile();
+        while ( !existing.exists() && existing.getParentFile() != null )
+        {
+            existing = existing.getParentFile();
+        }
+        return Files.getFileStore( existing.toPath() );
+    }
+
+    /**
+     * A file to mirror and whether it is linked rather than copied.
+     */
+    private static final class Source
+    {
+        private final File file;
+        private final boolean linked;
+
+        Source( File file, boolean linked )
+        {
+            this.file = file;
+            this.linked = linked;
+        }
+    }
+}
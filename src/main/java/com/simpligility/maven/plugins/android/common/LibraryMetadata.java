@@ -0,0 +1,249 @@
+package com.simpligility.maven.plugins.android.common;
+
+import com.android.builder.core.DefaultManifestParser;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * The metadata of an unpacked AAR or APKLIB library the build looks up repeatedly: the package name and minimum SDK
+ * version of its manifest, the names of its layout files and the number of symbols of its R.txt.
+ * <p>
+ * The metadata is collected once per unpacked library and stored in the library folder, next to the extraction
+ * marker. It is collected again when the library was unpacked again or its manifest or R.txt changed.
+ */
+public final class LibraryMetadata
+{
+    /**
+     * Name of the file in an unpacked library folder holding its metadata.
+     */
+    static final String METADATA_FILE = ".metadata.properties";
+
+    /**
+     * Changes whenever the metadata collected changes, so that metadata stored by other versions is collected again.
+     */
+    private static final String FORMAT = "1";
+
+    private static final String LAYOUT_INCLUDES = "layout*/*.xml";
+    private static final String SEPARATOR = ",";
+
+    private static final String KEY = "key";
+    private static final String PACKAGE_NAME = "packageName";
+    private static final String MIN_SDK_VERSION = "minSdkVersion";
+    private static final String LAYOUT_FILE_NAMES = "layoutFileNames";
+    private static final String SYMBOL_COUNT = "symbolCount";
+
+    private final String packageName;
+    private final String minSdkVersion;
+    private final String[] layoutFileNames;
+    private final int symbolCount;
+
+    private LibraryMetadata( String packageName, String minSdkVersion, String[] layoutFileNames, int symbolCount )
+    {
+        this.packageName = packageName;
+        this.minSdkVersion = minSdkVersion;
+        this.layoutFileNames = layoutFileNames;
+        this.symbolCount = symbolCount;
+    }
+
+    /**
+     * @param unpackedLibFolder the folder the library is unpacked to
+     * @return the metadata of the library, collected now unless stored for the current content of the folder
+     * @throws MojoExecutionException if the R.txt of the library cannot be read
+     */
+    public static LibraryMetadata forLibrary( File unpackedLibFolder ) throws MojoExecutionException
+    {
+        final String key = new Fingerprint()
+                .add( FORMAT )
+                .addFileStamp( new File( unpackedLibFolder, UnpackedLibHelper.EXTRACTION_MARKER ) )
+                .addFileStamp( new File( unpackedLibFolder, UnpackedLibStore.STORE_MARKER ) )
+                .addFileStamp( getManifest( unpackedLibFolder ) )
+                .addFileStamp( getSymbolFile( unpackedLibFolder ) )
+                .getValue();
+
+        final File metadataFile = new File( unpackedLibFolder, METADATA_FILE );
+        final Properties properties = load( metadataFile );
+        if ( properties != null && key.equals( properties.getProperty( KEY ) ) )
+        {
+            final String layouts = properties.getProperty( LAYOUT_FILE_NAMES, "" );
+            return new LibraryMetadata( properties.getProperty( PACKAGE_NAME ),
+                    properties.getProperty( MIN_SDK_VERSION ),
+                    layouts.isEmpty() ? new String[ 0 ] : layouts.split( SEPARATOR ),
+                    Integer.parseInt( properties.getProperty( SYMBOL_COUNT, "-1" ) ) );
+        }
+
+        final LibraryMetadata metadata = collect( unpackedLibFolder );
+        metadata.store( metadataFile, key );
+        return metadata;
+    }
+
+    /**
+     * @return the package name of the library manifest, <code>null</code> if the library has no manifest
+     */
+    public String getPackageName()
+    {
+        return packageName;
+    }
+
+    /**
+     * @return the minimum SDK version of the library manifest, <code>null</code> if not declared
+     */
+    public String getMinSdkVersion()
+    {
+        return minSdkVersion;
+    }
+
+    /**
+     * @return the paths of the layout files, relative to the resource folder of the library
+     */
+    public String[] getLayoutFileNames()
+    {
+        return layoutFileNames.clone();
+    }
+
+    /**
+     * @return true if the library has an R.txt
+     */
+    public boolean hasSymbols()
+    {
+        return symbolCount >= 0;
+    }
+
+    /**
+     * @return the number of symbols of the R.txt of the library, -1 if it has none
+     */
+    public int getSymbolCount()
+    {
+        return symbolCount;
+    }
+
+    private static LibraryMetadata collect( File unpackedLibFolder ) throws MojoExecutionException
+    {
+        String packageName = null;
+        String minSdkVersion = null;
+        final File manifest = getManifest( unpackedLibFolder );
+        if ( manifest.isFile() )
+        {
+            final DefaultManifestParser parser = new DefaultManifestParser( manifest );
+            packageName = parser.getPackage();
+            final Object minSdk = parser.getMinSdkVersion();
+            minSdkVersion = minSdk != null ? minSdk.toString() : null;
+        }
+
+        final String[] layoutFileNames = new FileRetriever( LAYOUT_INCLUDES )
+                .getFileNames( new File( unpackedLibFolder, "res" ) );
+
+        int symbolCount = -1;
+        final File symbolFile = getSymbolFile( unpackedLibFolder );
+        if ( symbolFile.isFile() )
+        {
+            try
+            {
+                symbolCount = 0;
+                final List<String> lines = FileUtils.readLines( symbolFile, "UTF-8" );
+                for ( String line : lines )
+                {
+                    if ( !line.trim().isEmpty() )
+                    {
+                        symbolCount++;
+                    }
+                }
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Could not read " + symbolFile, e );
+            }
+        }
+        return new LibraryMetadata( packageName, minSdkVersion, layoutFileNames, symbolCount );
+    }
+
+    private static Properties load( File metadataFile )
+    {
+        if ( !metadataFile.isFile() )
+        {
+            return null;
+        }
+        final Properties properties = new Properties();
+        try ( InputStream in = new FileInputStream( metadataFile ) )
+        {
+            properties.load( in );
+            return properties;
+        }
+        catch ( IOException e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the metadata through a temporary file, as projects sharing the unpacked libs folder may read it
+     * concurrently. The metadata is collected again by the next build if it cannot be stored.
+     */
+    private void store( File metadataFile, String key )
+    {
+        final Properties properties = new Properties();
+        properties.setProperty( KEY, key );
+        if ( packageName != null )
+        {
+            properties.setProperty( PACKAGE_NAME, packageName );
+        }
+        if ( minSdkVersion != null )
+        {
+            properties.setProperty( MIN_SDK_VERSION, minSdkVersion );
+        }
+        final StringBuilder layouts = new StringBuilder();
+        for ( String layoutFileName : layoutFileNames )
+        {
+            layouts.append( layouts.length() > 0 ? SEPARATOR : "" ).append( layoutFileName );
+        }
+        properties.setProperty( LAYOUT_FILE_NAMES, layouts.toString() );
+        properties.setProperty( SYMBOL_COUNT, Integer.toString( symbolCount ) );
+
+        final File folder = metadataFile.getParentFile();
+        if ( !folder.isDirectory() )
+        {
+            return;
+        }
+        File temporaryFile = null;
+        try
+        {
+            temporaryFile = File.createTempFile( METADATA_FILE, ".tmp", folder );
+            try ( OutputStream out = new FileOutputStream( temporaryFile ) )
+            {
+                properties.store( out, null );
+            }
+            Files.move( temporaryFile.toPath(), metadataFile.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+        catch ( IOException e )
+        {
+            // The metadata is only a cache.
+        }
+        finally
+        {
+            if ( temporaryFile != null )
+            {
+                FileUtils.deleteQuietly( temporaryFile );
+            }
+        }
+    }
+
+    private static File getManifest( File unpackedLibFolder )
+    {
+        return new File( unpackedLibFolder, "AndroidManifest.xml" );
+    }
+
+    private static File getSymbolFile( File unpackedLibFolder )
+    {
+        return new File( unpackedLibFolder, "R.txt" );
+    }
+}
@@ -17,14 +17,17 @@ import org.apache.maven.plugin.logging.Log;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.shared.dependency.graph.DependencyGraphBuilder;
 import org.apache.maven.shared.dependency.graph.DependencyNode;
-import org.apache.maven.shared.dependency.graph.traversal.CollectingDependencyNodeVisitor;
+import org.apache.maven.shared.dependency.graph.traversal.DependencyNodeVisitor;
 
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
 
@@ -39,15 +42,31 @@ public class NativeHelper
 
     public static final int NDK_REQUIRED_VERSION = 7;
 
+    /**
+     * Name of the compile, runtime and test scope, non optional filter of the cached dependency graph.
+     */
+    private static final String NATIVE_DEPENDENCY_GRAPH_FILTER = "native";
+
     private MavenProject project;
     private DependencyGraphBuilder dependencyGraphBuilder;
     private Log log;
+    private DependencyGraphCache dependencyGraphCache;
 
     public NativeHelper( MavenProject project, DependencyGraphBuilder dependencyGraphBuilder, Log log )
+    {
+        this( project, dependencyGraphBuilder, log, null );
+    }
+
+    /**
+     * @param dependencyGraphCache the cache of the session, <code>null</code> to not share the dependency graph
+     */
+    public NativeHelper( MavenProject project, DependencyGraphBuilder dependencyGraphBuilder, Log log,
+                         DependencyGraphCache dependencyGraphCache )
     {
         this.project = project;
         this.dependencyGraphBuilder = dependencyGraphBuilder;
         this.log = log;
+        this.dependencyGraphCache = dependencyGraphCache != null ? dependencyGraphCache : new DependencyGraphCache();
     }
 
     public Set<Artifact> getNativeDependenciesArtifacts(
@@ -154,74 +173,116 @@ public class NativeHelper
         );
     }
 
+    /**
+     * Collects the native libraries among the transitive dependencies with a single traversal of the dependency graph.
+     * The graph is cached, so all mojos of the module share it.
+     */
     private Set<Artifact> processTransitiveDependencies( List<Dependency> dependencies, boolean sharedLibraries )
             throws MojoExecutionException
     {
-        final Set<Artifact> transitiveArtifacts = new LinkedHashSet<Artifact>();
+        if ( dependencies.isEmpty() )
+        {
+            return Collections.emptySet();
+        }
+
+        final Map<String, Dependency> dependenciesByKey = new HashMap<String, Dependency>();
         for ( Dependency dependency : dependencies )
         {
-            if ( ! Artifact.SCOPE_PROVIDED.equals( dependency.getScope() ) && ! dependency.isOptional() )
+            dependenciesByKey.put( dependency.getManagementKey(), dependency );
+        }
+
+        final ArtifactFilter optionalFilter = new ArtifactFilter()
+        {
+            @Override
+            public boolean include( Artifact artifact )
+            {
+                return !artifact.isOptional();
+            }
+        };
+        final AndArtifactFilter filter = new AndArtifactFilter();
+        filter.add( new OrArtifactFilter( Arrays.<ArtifactFilter>asList( new ScopeArtifactFilter( "compile" ),
+                                                                        new ScopeArtifactFilter( "runtime" ),
+                                                                        new ScopeArtifactFilter( "test" ) ) ) );
+        filter.add( optionalFilter );
+
+        DependencyNode root = dependencyGraphCache.getDependencyGraph( project, NATIVE_DEPENDENCY_GRAPH_FILTER );
+        if ( root == null )
+        {
+            try
+            {
+                root = dependencyGraphBuilder.buildDependencyGraph( project, filter );
+            }
+            catch ( Exception e )
             {
-                final Set<Artifact> transArtifactsFor = processTransitiveDependencies( dependency, sharedLibraries );
-                log.debug( "Found transitive dependencies for : " + dependency + " transDeps : " + transArtifactsFor );
-                transitiveArtifacts.addAll( transArtifactsFor );
+                throw new MojoExecutionException( "Error while processing transitive dependencies", e );
             }
+            dependencyGraphCache.putDependencyGraph( project, NATIVE_DEPENDENCY_GRAPH_FILTER, root );
         }
 
-        return transitiveArtifacts;
-
-    }
-
-    private Set<Artifact> processTransitiveDependencies( Dependency dependency, boolean sharedLibraries )
-            throws MojoExecutionException
-    {
-        try
+        final Set<Artifact> transitiveArtifacts = new LinkedHashSet<Artifact>();
+        for ( DependencyNode child : root.getChildren() )
         {
-            final Set<Artifact> artifacts = new LinkedHashSet<Artifact>();
+            final Dependency dependency = dependenciesByKey.get( child.getArtifact().getDependencyConflictId() );
+            if ( dependency != null
+                    && ( Artifact.SCOPE_PROVIDED.equals( dependency.getScope() ) || dependency.isOptional() ) )
+            {
+                continue;
+            }
 
             final List<String> exclusionPatterns = new ArrayList<String>();
-            if ( dependency.getExclusions() != null && ! dependency.getExclusions().isEmpty() )
+            if ( dependency != null && dependency.getExclusions() != null )
             {
                 for ( final Exclusion exclusion : dependency.getExclusions() )
                 {
                     exclusionPatterns.add( exclusion.getGroupId() + ":" + exclusion.getArtifactId() );
                 }
             }
-            final ArtifactFilter optionalFilter = new ArtifactFilter()
-            {
-                @Override
-                public boolean include( Artifact artifact )
-                {
-                    return !artifact.isOptional();
-                }
-            };
+            final Set<Artifact> artifacts = new LinkedHashSet<Artifact>();
+            child.accept( new NativeLibraryCollector( new ExcludesArtifactFilter( exclusionPatterns ),
+                    sharedLibraries, artifacts ) );
+            log.debug( "Found transitive dependencies for : " + child.getArtifact() + " transDeps : " + artifacts );
+            transitiveArtifacts.addAll( artifacts );
+        }
+
+        return transitiveArtifacts;
+    }
 
-            final AndArtifactFilter filter = new AndArtifactFilter();
-            filter.add( new ExcludesArtifactFilter( exclusionPatterns ) );
-            filter.add( new OrArtifactFilter( Arrays.<ArtifactFilter>asList( new ScopeArtifactFilter( "compile" ),
-                                                                            new ScopeArtifactFilter( "runtime" ),
-                                                                            new ScopeArtifactFilter( "test" ) ) ) );
-            filter.add( optionalFilter );
+    /**
+     * Collects the native libraries of a subtree of the dependency graph, skipping excluded artifacts with their
+     * dependencies.
+     */
+    private final class NativeLibraryCollector implements DependencyNodeVisitor
+    {
+        private final ArtifactFilter exclusionFilter;
+        private final boolean sharedLibraries;
+        private final Set<Artifact> artifacts;
 
-            final DependencyNode node = dependencyGraphBuilder.buildDependencyGraph( project, filter );
-            final CollectingDependencyNodeVisitor collectingVisitor = new CollectingDependencyNodeVisitor();
-            node.accept( collectingVisitor );
+        private NativeLibraryCollector( ArtifactFilter exclusionFilter, boolean sharedLibraries,
+                                        Set<Artifact> artifacts )
+        {
+            this.exclusionFilter = exclusionFilter;
+            this.sharedLibraries = sharedLibraries;
+            this.artifacts = artifacts;
+        }
 
-            final List<DependencyNode> dependencies = collectingVisitor.getNodes();
-            for ( final DependencyNode dep : dependencies )
+        @Override
+        public boolean visit( DependencyNode node )
+        {
+            if ( !exclusionFilter.include( node.getArtifact() ) )
             {
-                final boolean isNativeLibrary = isNativeLibrary( sharedLibraries, dep.getArtifact().getType() );
-                if ( isNativeLibrary )
-                {
-                    artifacts.add( dep.getArtifact() );
-                }
+                return false;
             }
-
-            return artifacts;
+            if ( isNativeLibrary( sharedLibraries, node.getArtifact().getType() ) )
+            {
+                artifacts.add( node.getArtifact() );
+            }
+            return true;
         }
-        catch ( Exception e )
+
+        @Override
+        public boolean endVisit( DependencyNode node )
         {
-            throw new MojoExecutionException( "Error while processing transitive dependencies", e );
+            return true;
         }
     }
 
@@ -0,0 +1,184 @@
+package com.simpligility.maven.plugins.android.common;
+
+import com.android.ddmlib.AdbCommandRejectedException;
+import com.android.ddmlib.IDevice;
+import com.android.ddmlib.SyncException;
+import com.android.ddmlib.SyncService;
+import com.android.ddmlib.TimeoutException;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Transfers files to or from a device over several sync connections in parallel. Each connection works through a
+ * shared queue of transfers, largest files first, and a throughput summary is logged at the end.
+ *
+ * @see IDevice#getSyncService()
+ */
+public final class ParallelSyncTransfer
+{
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+    private static final double MILLIS_PER_SECOND = 1000.0;
+
+    /**
+     * A single file transfer, executed on the sync connection handed to it.
+     */
+    public interface Transfer
+    {
+        /**
+         * @param syncService the sync connection to use
+         */
+        void execute( SyncService syncService ) throws SyncException, IOException, TimeoutException;
+
+        /**
+         * @return the number of bytes transferred, used for ordering and the throughput summary
+         */
+        long getSize();
+
+        /**
+         * @return description of the transfer used in log and error messages
+         */
+        String getDescription();
+    }
+
+    private final IDevice device;
+    private final int connections;
+    private final Log log;
+
+    /**
+     * @param device      the device to transfer files to or from
+     * @param connections the maximum number of sync connections to open in parallel
+     * @param log         the log to report progress to
+     */
+    public ParallelSyncTransfer( IDevice device, int connections, Log log )
+    {
+        this.device = device;
+        this.connections = Math.max( 1, connections );
+        this.log = log;
+    }
+
+    /**
+     * Execute all transfers and wait for them to finish. Once a transfer failed no further transfers are started.
+     *
+     * @param transfers the transfers to execute
+     * @throws MojoExecutionException if a transfer failed
+     */
+    public void run( List< ? extends Transfer > transfers ) throws MojoExecutionException
+    {
+        final String deviceLogLinePrefix = DeviceHelper.getDeviceLogLinePrefix( device );
+        if ( transfers.isEmpty() )
+        {
+            log.info( deviceLogLinePrefix + "No files to transfer." );
+            return;
+        }
+
+        final List< Transfer > ordered = new ArrayList< Transfer >( transfers );
+        Collections.sort( ordered, new Comparator< Transfer >()
+        {
+            @Override
+            public int compare( Transfer left, Transfer right )
+            {
+                return Long.compare( right.getSize(), left.getSize() );
+            }
+        } );
+        final Queue< Transfer > queue = new ConcurrentLinkedQueue< Transfer >( ordered );
+        final AtomicReference< MojoExecutionException > failure = new AtomicReference< MojoExecutionException >();
+        final AtomicLong bytes = new AtomicLong();
+        final AtomicInteger files = new AtomicInteger();
+
+        final int threads = Math.min( connections, ordered.size() );
+        final long start = System.currentTimeMillis();
+        final ExecutorService executor = Executors.newFixedThreadPool( threads );
+        final List< Future< Void > > workers = new ArrayList< Future< Void > >();
+        for ( int i = 0; i < threads; i++ )
+        {
+            workers.add( executor.submit( new Callable< Void >()
+            {
+                @Override
+                public Void call() throws TimeoutException, AdbCommandRejectedException, IOException
+                {
+                    final SyncService syncService = device.getSyncService();
+                    if ( syncService == null )
+                    {
+                        throw new IOException( "Unable to open sync connection" );
+                    }
+                    try
+                    {
+                        while ( failure.get() == null )
+                        {
+                            final Transfer transfer = queue.poll();
+                            if ( transfer == null )
+                            {
+                                break;
+                            }
+                            try
+                            {
+                                transfer.execute( syncService );
+                            }
+                            catch ( SyncException | IOException | TimeoutException e )
+                            {
+                                failure.compareAndSet( null,
+                                        new MojoExecutionException( transfer.getDescription() + " failed.", e ) );
+                                break;
+                            }
+                            bytes.addAndGet( transfer.getSize() );
+                            files.incrementAndGet();
+                            log.info( transfer.getDescription() + " successful." );
+                        }
+                    }
+                    finally
+                    {
+                        syncService.close();
+                    }
+                    return null;
+                }
+            } ) );
+        }
+        executor.shutdown();
+
+        for ( Future< Void > worker : workers )
+        {
+            try
+            {
+                worker.get();
+            }
+            catch ( ExecutionException e )
+            {
+                failure.compareAndSet( null, new MojoExecutionException( deviceLogLinePrefix
+                        + "Opening sync connection failed.", e.getCause() ) );
+            }
+            catch ( InterruptedException e )
+            {
+                executor.shutdownNow();
+                throw new MojoExecutionException( deviceLogLinePrefix + "Interrupted while transferring files." );
+            }
+        }
+        if ( failure.get() != null )
+        {
+            throw failure.get();
+        }
+
+        final long millis = Math.max( 1, System.currentTimeMillis() - start );
+        final double megabytes = bytes.get() / BYTES_PER_MEGABYTE;
+        log.info( deviceLogLinePrefix + String.format( Locale.ENGLISH,
+                "Transferred %d files, %.1f MB in %.1f s (%.1f MB/s) over %d connection(s).", files.get(),
+                megabytes, millis / MILLIS_PER_SECOND, megabytes / ( millis / MILLIS_PER_SECOND ), threads ) );
+    }
+}
@@ -19,33 +19,57 @@ import org.apache.commons.io.FileUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.project.MavenProject;
-import org.codehaus.plexus.archiver.ArchiverException;
-import org.codehaus.plexus.archiver.UnArchiver;
-import org.codehaus.plexus.archiver.zip.ZipUnArchiver;
 import org.codehaus.plexus.logging.Logger;
-import org.codehaus.plexus.logging.console.ConsoleLogger;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
 
 import static com.simpligility.maven.plugins.android.common.AndroidExtension.AAR;
 import static com.simpligility.maven.plugins.android.common.AndroidExtension.APK;
+import static com.simpligility.maven.plugins.android.common.AndroidExtension.APKLIB;
 
 /**
  * Provides convenience methods for unpacking Android libraries so that their contents can be used in the build.
  */
 public final class UnpackedLibHelper
 {
+    /**
+     * Name of the file in an unpacked library folder that records the archive and plugin version it was unpacked from.
+     */
+    static final String EXTRACTION_MARKER = ".extracted";
+
     private final ArtifactResolverHelper artifactResolverHelper;
     private final Logger log;
 
     // ${project.build.directory}/unpacked-libs
     private final File unpackedLibsDirectory;
 
+    // Shared store of unpacked libraries, null if libraries are unpacked by each project.
+    private final UnpackedLibStore unpackedLibStore;
+
+    // Recorded in the extraction marker, so that libraries are unpacked again by other plugin versions.
+    private final String pluginVersion;
+
     public UnpackedLibHelper( ArtifactResolverHelper artifactResolverHelper, MavenProject project, Logger log,
                               File unpackedLibsFolder )
+    {
+        this( artifactResolverHelper, project, log, unpackedLibsFolder, null, null );
+    }
+
+    /**
+     * @param unpackedLibsStore folder of a store of unpacked libraries shared with other projects and builds,
+     *                          <code>null</code> to unpack the libraries into the unpacked libs folder only.
+     * @param pluginVersion     the version of the plugin unpacking the libraries.
+     */
+    public UnpackedLibHelper( ArtifactResolverHelper artifactResolverHelper, MavenProject project, Logger log,
+                              File unpackedLibsFolder, File unpackedLibsStore, String pluginVersion )
     {
         this.artifactResolverHelper = artifactResolverHelper;
+        this.unpackedLibStore = unpackedLibsStore != null ? new UnpackedLibStore( unpackedLibsStore, log ) : null;
+        this.pluginVersion = pluginVersion;
         if ( unpackedLibsFolder != null )
         {
             // if absolute then use it.
@@ -73,30 +97,31 @@ public final class UnpackedLibHelper
             return;
         }
 
-        final UnArchiver unArchiver = new ZipUnArchiver( apkLibFile )
+        final File apklibDirectory = getUnpackedLibFolder( apklibArtifact );
+        final UnpackedLibStore.Unpacker unpacker = new UnpackedLibStore.Unpacker()
         {
             @Override
-            protected Logger getLogger()
+            public void unpack( File directory ) throws MojoExecutionException
             {
-                return new ConsoleLogger( log.getThreshold(), "dependencies-unarchiver" );
+                unpackApklib( apkLibFile, directory );
             }
         };
-
-        final File apklibDirectory = getUnpackedLibFolder( apklibArtifact );
-        apklibDirectory.mkdirs();
-        unArchiver.setDestDirectory( apklibDirectory );
-        log.debug( "Extracting APKLIB to " + apklibDirectory );
-        try
+        if ( unpackedLibStore != null )
         {
-            unArchiver.extract();
+            unpackedLibStore.unpack( APKLIB, apkLibFile, apklibDirectory, unpacker );
         }
-        catch ( ArchiverException e )
+        else
         {
-            throw new MojoExecutionException( "ArchiverException while extracting " + apklibDirectory
-                    + ". Message: " + e.getLocalizedMessage(), e );
+            unpackIfChanged( APKLIB, apkLibFile, apklibDirectory, unpacker );
         }
     }
 
+    private void unpackApklib( File apkLibFile, File apklibDirectory ) throws MojoExecutionException
+    {
+        log.debug( "Extracting APKLIB to " + apklibDirectory );
+        new ZipExtractor( log ).extract( apkLibFile, apklibDirectory );
+    }
+
     public void extractAarLib( Artifact aarArtifact ) throws MojoExecutionException
     {
         final File aarFile = artifactResolverHelper.resolveArtifactToFile( aarArtifact );
@@ -107,28 +132,29 @@ public final class UnpackedLibHelper
             return;
         }
 
-        final UnArchiver unArchiver = new ZipUnArchiver( aarFile )
+        final File aarDirectory = getUnpackedLibFolder( aarArtifact );
+        final UnpackedLibStore.Unpacker unpacker = new UnpackedLibStore.Unpacker()
         {
             @Override
-            protected Logger getLogger()
+            public void unpack( File directory ) throws MojoExecutionException
             {
-                return new ConsoleLogger( log.getThreshold(), "dependencies-unarchiver" );
+                unpackAar( aarFile, directory );
             }
         };
-
-        final File aarDirectory = getUnpackedLibFolder( aarArtifact );
-        aarDirectory.mkdirs();
-        unArchiver.setDestDirectory( aarDirectory );
-        log.debug( "Extracting AAR to " + aarDirectory );
-        try
+        if ( unpackedLibStore != null )
         {
-            unArchiver.extract();
+            unpackedLibStore.unpack( AAR, aarFile, aarDirectory, unpacker );
         }
-        catch ( ArchiverException e )
+        else
         {
-            throw new MojoExecutionException( "ArchiverException while extracting " + aarDirectory.getAbsolutePath()
-                    + ". Message: " + e.getLocalizedMessage(), e );
+            unpackIfChanged( AAR, aarFile, aarDirectory, unpacker );
         }
+    }
+
+    private void unpackAar( File aarFile, File aarDirectory ) throws MojoExecutionException
+    {
+        log.debug( "Extracting AAR to " + aarDirectory );
+        new ZipExtractor( log ).extract( aarFile, aarDirectory );
 
         // Move native libraries from libs to jni folder for legacy AARs.
         // This ensures backward compatibility with older AARs where libs are in "libs" folder.
@@ -156,6 +182,59 @@ public final class UnpackedLibHelper
         }
     }
 
+    /**
+     * Unpacks a library into its folder unless the extraction marker of the folder shows that the same archive was
+     * unpacked by the same plugin version already. The library is unpacked into a temporary folder that then replaces
+     * the library folder, so an interrupted extraction never leaves a partially unpacked library behind.
+     */
+    void unpackIfChanged( String type, File archive, File libraryFolder, UnpackedLibStore.Unpacker unpacker )
+            throws MojoExecutionException
+    {
+        final Fingerprint fingerprint = new Fingerprint().add( type ).add( pluginVersion );
+        try
+        {
+            fingerprint.addFileContent( archive );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Could not read " + archive, e );
+        }
+        final File marker = new File( libraryFolder, EXTRACTION_MARKER );
+        if ( fingerprint.matches( marker ) )
+        {
+            log.debug( "Skipping extraction of unchanged " + archive );
+            return;
+        }
+
+        final File parent = libraryFolder.getParentFile();
+        final File temporaryFolder = new File( parent, libraryFolder.getName() + "." + UUID.randomUUID() + ".tmp" );
+        final File previousFolder = new File( parent, libraryFolder.getName() + "." + UUID.randomUUID() + ".old" );
+        try
+        {
+            unpacker.unpack( temporaryFolder );
+            fingerprint.store( new File( temporaryFolder, EXTRACTION_MARKER ) );
+            if ( libraryFolder.exists() )
+            {
+                Files.move( libraryFolder.toPath(), previousFolder.toPath(), StandardCopyOption.ATOMIC_MOVE );
+            }
+            Files.move( temporaryFolder.toPath(), libraryFolder.toPath(), StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch ( IOException e )
+        {
+            // Another project sharing the unpacked libs folder may have unpacked the same archive meanwhile.
+            if ( !fingerprint.matches( marker ) )
+            {
+                throw new MojoExecutionException( "Could not replace " + libraryFolder + " with " + temporaryFolder,
+                        e );
+            }
+        }
+        finally
+        {
+            FileUtils.deleteQuietly( temporaryFolder );
+            FileUtils.deleteQuietly( previousFolder );
+        }
+    }
+
     public File getArtifactToFile( Artifact artifact ) throws MojoExecutionException
     {
         final File artifactFile = artifactResolverHelper.resolveArtifactToFile( artifact );
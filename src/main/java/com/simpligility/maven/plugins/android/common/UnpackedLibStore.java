@@ -0,0 +1,240 @@
+package com.simpligility.maven.plugins.android.common;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.codehaus.plexus.logging.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.UUID;
+
+/**
+ * A store of unpacked AAR and APKLIB libraries shared by all projects and builds using it.
+ * <p>
+ * Each library is unpacked once per archive content into a folder named after the SHA-256 digest of the archive.
+ * It is unpacked into a temporary folder first that is then renamed, so a library folder of the store is either
+ * complete or missing, even when several builds populate the store at the same time. The files of the store are made
+ * read-only before they are published, so they cannot be modified through the hard links projects get the content
+ * by. Projects get read-only copies instead where their file system does not support hard links to the store.
+ */
+public final class UnpackedLibStore
+{
+    /**
+     * Name of the file in an unpacked library folder of a project that names the store folder it is linked to.
+     */
+    static final String STORE_MARKER = ".unpacked-lib-store";
+
+    /**
+     * Unpacks a library archive.
+     */
+    public interface Unpacker
+    {
+        /**
+         * @param directory the empty folder to unpack the library into
+         * @throws MojoExecutionException if the library cannot be unpacked
+         */
+        void unpack( File directory ) throws MojoExecutionException;
+    }
+
+    private final File directory;
+    private final Logger log;
+
+    /**
+     * @param directory the folder of the store
+     * @param log       the logger
+     */
+    public UnpackedLibStore( File directory, Logger log )
+    {
+        this.directory = directory;
+        this.log = log;
+    }
+
+    /**
+     * Makes the content of a library available in an unpacked library folder of a project, unpacking it into the
+     * store first unless another project already did.
+     *
+     * @param type            the type of the library, part of the key as the types are unpacked differently
+     * @param archive         the library archive
+     * @param libraryFolder   the unpacked library folder of the project
+     * @param unpacker        unpacks the archive
+     * @throws MojoExecutionException if the library cannot be unpacked or linked
+     */
+    public void unpack( String type, File archive, File libraryFolder, Unpacker unpacker )
+            throws MojoExecutionException
+    {
+        final File storeFolder;
+        try
+        {
+            storeFolder = new File( directory, type + "-" + FileHashHelper.digestHex( archive, "SHA-256" ) );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Could not read " + archive, e );
+        }
+
+        if ( !storeFolder.isDirectory() )
+        {
+            publish( storeFolder, unpacker );
+        }
+        else
+        {
+            log.debug( "Using unpacked library " + storeFolder + " for " + archive );
+        }
+
+        link( storeFolder, libraryFolder );
+    }
+
+    private void publish( File storeFolder, Unpacker unpacker ) throws MojoExecutionException
+    {
+        final File temporaryFolder = new File( directory, storeFolder.getName() + "." + UUID.randomUUID() + ".tmp" );
+        if ( !temporaryFolder.mkdirs() )
+        {
+            throw new MojoExecutionException( "Could not create " + temporaryFolder );
+        }
+        try
+        {
+            log.debug( "Unpacking library into " + storeFolder );
+            unpacker.unpack( temporaryFolder );
+            setReadOnly( temporaryFolder );
+            Files.move( temporaryFolder.toPath(), storeFolder.toPath(), StandardCopyOption.ATOMIC_MOVE );
+        }
+        catch ( FileSystemException e )
+        {
+            // Published by another build in the meantime.
+            if ( !storeFolder.isDirectory() )
+            {
+                throw new MojoExecutionException( "Could not publish " + storeFolder, e );
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Could not publish " + storeFolder, e );
+        }
+        finally
+        {
+            if ( temporaryFolder.exists() )
+            {
+                delete( temporaryFolder );
+            }
+        }
+    }
+
+    private void link( File storeFolder, File libraryFolder ) throws MojoExecutionException
+    {
+        final File marker = new File( libraryFolder, STORE_MARKER );
+        try
+        {
+            if ( marker.isFile() && storeFolder.getAbsolutePath().equals(
+                    FileUtils.readFileToString( marker, "UTF-8" ) ) )
+            {
+                log.debug( libraryFolder + " is linked to " + storeFolder );
+                return;
+            }
+
+            // Drop the previous content, its links must not be written through.
+            delete( libraryFolder );
+            linkFiles( storeFolder, libraryFolder );
+            FileUtils.writeStringToFile( marker, storeFolder.getAbsolutePath(), "UTF-8" );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Could not link " + storeFolder + " to " + libraryFolder, e );
+        }
+    }
+
+    private void linkFiles( File source, File target ) throws IOException
+    {
+        final File[] files = source.listFiles();
+        if ( files == null )
+        {
+            throw new IOException( "Could not list " + source );
+        }
+        if ( !target.isDirectory() && !target.mkdirs() )
+        {
+            throw new IOException( "Could not create " + target );
+        }
+        for ( File file : files )
+        {
+            final File targetFile = new File( target, file.getName() );
+            if ( file.isDirectory() )
+            {
+                linkFiles( file, targetFile );
+                continue;
+            }
+            final Path link = targetFile.toPath();
+            try
+            {
+                Files.createLink( link, file.toPath() );
+            }
+            catch ( UnsupportedOperationException | IOException e )
+            {
+                log.debug( "Could not link " + file + ", copying it: " + e.getMessage() );
+                Files.copy( file.toPath(), link, StandardCopyOption.COPY_ATTRIBUTES );
+            }
+        }
+    }
+
+    private static void setReadOnly( File folder ) throws IOException
+    {
+        final File[] files = folder.listFiles();
+        if ( files == null )
+        {
+            throw new IOException( "Could not list " + folder );
+        }
+        for ( File file : files )
+        {
+            if ( file.isDirectory() )
+            {
+                setReadOnly( file );
+            }
+            else if ( !file.setWritable( false, false ) )
+            {
+                throw new IOException( "Could not make " + file + " read-only" );
+            }
+        }
+    }
+
+    private static void setWritable( File folder )
+    {
+        final File[] files = folder.listFiles();
+        if ( files != null )
+        {
+            for ( File file : files )
+            {
+                if ( file.isDirectory() )
+                {
+                    setWritable( file );
+                }
+                else
+                {
+                    file.setWritable( true );
+                }
+            }
+        }
+    }
+
+    private static void delete( File folder ) throws MojoExecutionException
+    {
+        try
+        {
+            FileUtils.deleteDirectory( folder );
+        }
+        catch ( IOException e )
+        {
+            // File systems like the one of Windows do not delete read-only files.
+            setWritable( folder );
+            try
+            {
+                FileUtils.deleteDirectory( folder );
+            }
+            catch ( IOException retry )
+            {
+                throw new MojoExecutionException( "Could not delete " + folder, retry );
+            }
+        }
+    }
+}
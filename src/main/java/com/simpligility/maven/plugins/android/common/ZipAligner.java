@@ -0,0 +1,556 @@
+package com.simpligility.maven.plugins.android.common;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+/**
+ * Rewrites a zip archive, typically an APK, so that the data of every uncompressed entry starts at an offset aligned
+ * to 4 bytes, like the <code>zipalign</code> tool of the build tools does, and uncompressed native libraries start at
+ * a page boundary. Optionally compressed native libraries are stored uncompressed, which allows the platform to map
+ * them directly from the APK when <code>android:extractNativeLibs</code> is false.
+ * <p>
+ * Entries are copied without recompressing them. The uncompressed content of all entries is kept, so an existing
+ * JAR signature stays valid. The alignment padding is written as alignment extra field
+ * (<code>0xd935</code>) into the local file headers, the same way <code>apksigner</code> does.
+ */
+public final class ZipAligner
+{
+    /**
+     * The alignment of uncompressed entries required by Android.
+     */
+    public static final int DEFAULT_ALIGNMENT = 4;
+
+    /**
+     * The alignment of uncompressed native libraries, so they can be mapped into memory directly from the APK.
+     */
+    public static final int PAGE_ALIGNMENT = 4096;
+
+    private static final int LOCAL_FILE_HEADER_SIGNATURE = 0x04034b50;
+    private static final int CENTRAL_DIRECTORY_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int LOCAL_FILE_HEADER_SIZE = 30;
+    private static final int CENTRAL_DIRECTORY_HEADER_SIZE = 46;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xffff;
+
+    private static final int LFH_NAME_LENGTH_OFFSET = 26;
+    private static final int LFH_EXTRA_LENGTH_OFFSET = 28;
+    private static final int EOCD_ENTRY_COUNT_OFFSET = 10;
+    private static final int EOCD_CENTRAL_DIRECTORY_SIZE_OFFSET = 12;
+    private static final int EOCD_CENTRAL_DIRECTORY_OFFSET_OFFSET = 16;
+    private static final int EOCD_COMMENT_LENGTH_OFFSET = 20;
+
+    private static final int UINT16_MASK = 0xffff;
+    private static final long UINT32_MASK = 0xffffffffL;
+
+    /**
+     * The values of 16 and 32 bit fields whose actual value is stored in a ZIP64 record.
+     */
+    private static final int ZIP64_UINT16 = 0xffff;
+    private static final long ZIP64_UINT32 = 0xffffffffL;
+
+    private static final int ALIGNMENT_EXTRA_ID = 0xd935;
+    private static final int ALIGNMENT_EXTRA_MIN_SIZE = 6;
+
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final int DATA_DESCRIPTOR_FLAG = 0x08;
+    private static final int COMPRESSION_OPTION_FLAGS = 0x06;
+
+    private static final String NATIVE_LIBRARY_SUFFIX = ".so";
+
+    private static final Charset UTF_8 = Charset.forName( "UTF-8" );
+
+    private final boolean storeNativeLibraries;
+
+    /**
+     * @param storeNativeLibraries whether compressed native libraries (<code>.so</code> files) are stored uncompressed
+     */
+    public ZipAligner( boolean storeNativeLibraries )
+    {
+        this.storeNativeLibraries = storeNativeLibraries;
+    }
+
+    /**
+     * Write an aligned copy of an archive.
+     *
+     * @param input  the archive to align
+     * @param output the aligned archive, must not be the input
+     * @throws IOException if the input cannot be read, is not a supported zip archive or the output cannot be written
+     */
+    public void align( File input, File output ) throws IOException
+    {
+        try
+        {
+            align( input, output, null );
+        }
+        catch ( GeneralSecurityException e )
+        {
+            throw new IllegalStateException( "Unexpected signing failure without signer", e );
+        }
+    }
+
+    /**
+     * Write an aligned copy of an archive, signed with the APK Signature Scheme v2 in the same pass. The APK signing
+     * block is written between the zip entries and the central directory.
+     *
+     * @param input  the archive to align, already JAR signed if the APK is to be installed on devices older than
+     *               Android 7.0
+     * @param output the aligned archive, must not be the input
+     * @param signer the signer, <code>null</code> to only align the archive
+     * @throws IOException              if the input cannot be read, is not a supported zip archive or the output
+     *                                  cannot be written
+     * @throws GeneralSecurityException if the archive cannot be signed
+     */
+    public void align( File input, File output, ApkV2Signer signer ) throws IOException, GeneralSecurityException
+    {
+        try ( RandomAccessFile in = new RandomAccessFile( input, "r" );
+              ZipFile zipFile = new ZipFile( input );
+              OutputStream out = new BufferedOutputStream( new FileOutputStream( output ) ) )
+        {
+            final ApkV2Signer.Content content = signer != null ? signer.newContent( out ) : null;
+            final OutputStream entriesOut = content != null ? content : out;
+            final Archive archive = readArchive( in, input );
+            final List< Entry > entries = new ArrayList< Entry >( archive.entries );
+            Collections.sort( entries, new Comparator< Entry >()
+            {
+                @Override
+                public int compare( Entry first, Entry second )
+                {
+                    return Long.compare( first.localHeaderOffset, second.localHeaderOffset );
+                }
+            } );
+
+            long position = 0;
+            final byte[] buffer = new byte[ 64 * 1024 ];
+            for ( Entry entry : entries )
+            {
+                final long dataOffset = readDataOffset( in, entry );
+                final boolean store = storeNativeLibraries && entry.method == DEFLATED && entry.isNativeLibrary();
+
+                entry.flags &= ~DATA_DESCRIPTOR_FLAG;
+                if ( store )
+                {
+                    entry.method = STORED;
+                    entry.flags &= ~COMPRESSION_OPTION_FLAGS;
+                    entry.compressedSize = entry.uncompressedSize;
+                }
+
+                final byte[] extra = alignExtra( readLocalExtra( in, entry ), position + LOCAL_FILE_HEADER_SIZE
+                        + entry.name.length, entry.getAlignment() );
+                entry.localHeaderOffset = position;
+                final byte[] header = entry.toLocalFileHeader( extra );
+                entriesOut.write( header );
+                position += header.length;
+
+                if ( store )
+                {
+                    try ( InputStream data = zipFile.getInputStream( zipFile.getEntry( entry.getName() ) ) )
+                    {
+                        long remaining = entry.uncompressedSize;
+                        int read;
+                        while ( remaining > 0 && ( read = data.read( buffer, 0,
+                                ( int ) Math.min( buffer.length, remaining ) ) ) != -1 )
+                        {
+                            entriesOut.write( buffer, 0, read );
+                            remaining -= read;
+                        }
+                        if ( remaining != 0 )
+                        {
+                            throw new IOException( "Unexpected end of entry " + entry.getName() + " in " + input );
+                        }
+                    }
+                }
+                else
+                {
+                    in.seek( dataOffset );
+                    long remaining = entry.compressedSize;
+                    while ( remaining > 0 )
+                    {
+                        final int read = in.read( buffer, 0, ( int ) Math.min( buffer.length, remaining ) );
+                        if ( read == -1 )
+                        {
+                            throw new IOException( "Unexpected end of entry " + entry.getName() + " in " + input );
+                        }
+                        entriesOut.write( buffer, 0, read );
+                        remaining -= read;
+                    }
+                }
+                position += entry.compressedSize;
+            }
+
+            final ByteArrayOutputStream centralDirectory = new ByteArrayOutputStream();
+            for ( Entry entry : archive.entries )
+            {
+                final byte[] header = entry.toCentralDirectoryHeader();
+                centralDirectory.write( header, 0, header.length );
+            }
+
+            long centralDirectoryOffset = position;
+            if ( content != null )
+            {
+                final byte[] signingBlock = content.sign( centralDirectory.toByteArray(),
+                        toEndOfCentralDirectory( archive, centralDirectoryOffset, centralDirectory.size() ) );
+                out.write( signingBlock );
+                centralDirectoryOffset += signingBlock.length;
+            }
+            checkZip32( centralDirectoryOffset + centralDirectory.size(), input );
+
+            centralDirectory.writeTo( out );
+            out.write( toEndOfCentralDirectory( archive, centralDirectoryOffset, centralDirectory.size() ) );
+        }
+    }
+
+    /**
+     * Verify the alignment of an archive, like <code>zipalign -c -p 4</code> does.
+     *
+     * @param file the archive to verify
+     * @return true if all uncompressed entries are aligned, uncompressed native libraries to page boundaries
+     * @throws IOException if the archive cannot be read or is not a supported zip archive
+     */
+    public static boolean isAligned( File file ) throws IOException
+    {
+        try ( RandomAccessFile in = new RandomAccessFile( file, "r" ) )
+        {
+            for ( Entry entry : readArchive( in, file ).entries )
+            {
+                final int alignment = entry.getAlignment();
+                if ( alignment > 0 && readDataOffset( in, entry ) % alignment != 0 )
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static byte[] toEndOfCentralDirectory( Archive archive, long centralDirectoryOffset,
+                                                   int centralDirectorySize )
+    {
+        final ByteBuffer end = ByteBuffer.allocate( END_OF_CENTRAL_DIRECTORY_SIZE + archive.comment.length )
+                .order( ByteOrder.LITTLE_ENDIAN );
+        end.putInt( END_OF_CENTRAL_DIRECTORY_SIGNATURE );
+        end.putShort( ( short ) 0 );
+        end.putShort( ( short ) 0 );
+        end.putShort( ( short ) archive.entries.size() );
+        end.putShort( ( short ) archive.entries.size() );
+        end.putInt( centralDirectorySize );
+        end.putInt( ( int ) centralDirectoryOffset );
+        end.putShort( ( short ) archive.comment.length );
+        end.put( archive.comment );
+        return end.array();
+    }
+
+    private static void checkZip32( long value, File file ) throws IOException
+    {
+        if ( value >= ZIP64_UINT32 )
+        {
+            throw new IOException( "ZIP64 archives are not supported: " + file );
+        }
+    }
+
+    private static Archive readArchive( RandomAccessFile in, File file ) throws IOException
+    {
+        final long length = in.length();
+        final int searchSize = ( int ) Math.min( length, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_SIZE );
+        final ByteBuffer tail = ByteBuffer.allocate( searchSize ).order( ByteOrder.LITTLE_ENDIAN );
+        in.seek( length - searchSize );
+        in.readFully( tail.array() );
+
+        for ( int offset = searchSize - END_OF_CENTRAL_DIRECTORY_SIZE; offset >= 0; offset-- )
+        {
+            if ( tail.getInt( offset ) != END_OF_CENTRAL_DIRECTORY_SIGNATURE )
+            {
+                continue;
+            }
+            final int commentLength = readUInt16( tail, offset + EOCD_COMMENT_LENGTH_OFFSET );
+            if ( offset + END_OF_CENTRAL_DIRECTORY_SIZE + commentLength != searchSize )
+            {
+                continue;
+            }
+
+            final int entryCount = readUInt16( tail, offset + EOCD_ENTRY_COUNT_OFFSET );
+            final long centralDirectorySize = readUInt32( tail, offset + EOCD_CENTRAL_DIRECTORY_SIZE_OFFSET );
+            final long centralDirectoryOffset = readUInt32( tail, offset + EOCD_CENTRAL_DIRECTORY_OFFSET_OFFSET );
+            if ( entryCount == ZIP64_UINT16 || centralDirectorySize == ZIP64_UINT32
+                    || centralDirectoryOffset == ZIP64_UINT32 )
+            {
+                throw new IOException( "ZIP64 archives are not supported: " + file );
+            }
+
+            final Archive archive = new Archive();
+            archive.comment = new byte[ commentLength ];
+            System.arraycopy( tail.array(), offset + END_OF_CENTRAL_DIRECTORY_SIZE, archive.comment, 0,
+                    commentLength );
+
+            final ByteBuffer centralDirectory = ByteBuffer.allocate( ( int ) centralDirectorySize )
+                    .order( ByteOrder.LITTLE_ENDIAN );
+            in.seek( centralDirectoryOffset );
+            in.readFully( centralDirectory.array() );
+            for ( int i = 0; i < entryCount; i++ )
+            {
+                archive.entries.add( Entry.read( centralDirectory, file ) );
+            }
+            return archive;
+        }
+        throw new IOException( "Not a zip archive: " + file );
+    }
+
+    private static long readDataOffset( RandomAccessFile in, Entry entry ) throws IOException
+    {
+        final ByteBuffer header = readLocalFileHeader( in, entry );
+        return entry.localHeaderOffset + LOCAL_FILE_HEADER_SIZE + readUInt16( header, LFH_NAME_LENGTH_OFFSET )
+                + readUInt16( header, LFH_EXTRA_LENGTH_OFFSET );
+    }
+
+    private static byte[] readLocalExtra( RandomAccessFile in, Entry entry ) throws IOException
+    {
+        final ByteBuffer header = readLocalFileHeader( in, entry );
+        final byte[] extra = new byte[ readUInt16( header, LFH_EXTRA_LENGTH_OFFSET ) ];
+        in.seek( entry.localHeaderOffset + LOCAL_FILE_HEADER_SIZE + readUInt16( header, LFH_NAME_LENGTH_OFFSET ) );
+        in.readFully( extra );
+        return extra;
+    }
+
+    private static ByteBuffer readLocalFileHeader( RandomAccessFile in, Entry entry ) throws IOException
+    {
+        final ByteBuffer header = ByteBuffer.allocate( LOCAL_FILE_HEADER_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+        in.seek( entry.localHeaderOffset );
+        in.readFully( header.array() );
+        if ( header.getInt( 0 ) != LOCAL_FILE_HEADER_SIGNATURE )
+        {
+            throw new IOException( "Invalid local file header of entry " + entry.getName() );
+        }
+        return header;
+    }
+
+    /**
+     * Remove previous alignment padding from the extra field of a local file header and add the padding needed to
+     * align the data following the header.
+     *
+     * @param extra       the extra field of the local file header
+     * @param extraOffset the offset the extra field will be written to
+     * @param alignment   the required alignment of the data, 0 if the data does not need to be aligned
+     * @return the new extra field
+     */
+    private static byte[] alignExtra( byte[] extra, long extraOffset, int alignment )
+    {
+        final ByteBuffer source = ByteBuffer.wrap( extra ).order( ByteOrder.LITTLE_ENDIAN );
+        final ByteBuffer kept = ByteBuffer.allocate( extra.length + ALIGNMENT_EXTRA_MIN_SIZE + PAGE_ALIGNMENT )
+                .order( ByteOrder.LITTLE_ENDIAN );
+        while ( source.remaining() >= 4 )
+        {
+            final int id = readUInt16( source );
+            final int size = readUInt16( source );
+            if ( size > source.remaining() )
+            {
+                // not a valid extra field, e.g. the zero padding written by zipalign
+                kept.clear();
+                break;
+            }
+            if ( id == ALIGNMENT_EXTRA_ID || id == 0 )
+            {
+                source.position( source.position() + size );
+                continue;
+            }
+            kept.putShort( ( short ) id );
+            kept.putShort( ( short ) size );
+            kept.put( extra, source.position(), size );
+            source.position( source.position() + size );
+        }
+
+        if ( alignment > 0 )
+        {
+            int padding = ( int ) ( ( alignment - ( extraOffset + kept.position() ) % alignment ) % alignment );
+            if ( padding > 0 )
+            {
+                while ( padding < ALIGNMENT_EXTRA_MIN_SIZE )
+                {
+                    padding += alignment;
+                }
+                kept.putShort( ( short ) ALIGNMENT_EXTRA_ID );
+                kept.putShort( ( short ) ( padding - 4 ) );
+                kept.putShort( ( short ) alignment );
+                kept.put( new byte[ padding - ALIGNMENT_EXTRA_MIN_SIZE ] );
+            }
+        }
+
+        final byte[] result = new byte[ kept.position() ];
+        System.arraycopy( kept.array(), 0, result, 0, result.length );
+        return result;
+    }
+
+    private static int readUInt16( ByteBuffer buffer )
+    {
+        return buffer.getShort() & UINT16_MASK;
+    }
+
+    private static int readUInt16( ByteBuffer buffer, int offset )
+    {
+        return buffer.getShort( offset ) & UINT16_MASK;
+    }
+
+    private static long readUInt32( ByteBuffer buffer )
+    {
+        return buffer.getInt() & UINT32_MASK;
+    }
+
+    private static long readUInt32( ByteBuffer buffer, int offset )
+    {
+        return buffer.getInt( offset ) & UINT32_MASK;
+    }
+
+    /**
+     * The central directory and comment of an archive.
+     */
+    private static final class Archive
+    {
+        private final List< Entry > entries = new ArrayList< Entry >();
+        private byte[] comment;
+    }
+
+    /**
+     * An entry of the central directory.
+     */
+    private static final class Entry
+    {
+        private int versionMadeBy;
+        private int versionNeeded;
+        private int flags;
+        private int method;
+        private int time;
+        private int date;
+        private int crc;
+        private long compressedSize;
+        private long uncompressedSize;
+        private int diskNumberStart;
+        private int internalAttributes;
+        private int externalAttributes;
+        private long localHeaderOffset;
+        private byte[] name;
+        private byte[] extra;
+        private byte[] comment;
+
+        private static Entry read( ByteBuffer centralDirectory, File file ) throws IOException
+        {
+            if ( centralDirectory.remaining() < CENTRAL_DIRECTORY_HEADER_SIZE
+                    || centralDirectory.getInt() != CENTRAL_DIRECTORY_SIGNATURE )
+            {
+                throw new IOException( "Invalid central directory in " + file );
+            }
+            final Entry entry = new Entry();
+            entry.versionMadeBy = readUInt16( centralDirectory );
+            entry.versionNeeded = readUInt16( centralDirectory );
+            entry.flags = readUInt16( centralDirectory );
+            entry.method = readUInt16( centralDirectory );
+            entry.time = readUInt16( centralDirectory );
+            entry.date = readUInt16( centralDirectory );
+            entry.crc = centralDirectory.getInt();
+            entry.compressedSize = readUInt32( centralDirectory );
+            entry.uncompressedSize = readUInt32( centralDirectory );
+            final int nameLength = readUInt16( centralDirectory );
+            final int extraLength = readUInt16( centralDirectory );
+            final int commentLength = readUInt16( centralDirectory );
+            entry.diskNumberStart = readUInt16( centralDirectory );
+            entry.internalAttributes = readUInt16( centralDirectory );
+            entry.externalAttributes = centralDirectory.getInt();
+            entry.localHeaderOffset = readUInt32( centralDirectory );
+            entry.name = new byte[ nameLength ];
+            centralDirectory.get( entry.name );
+            entry.extra = new byte[ extraLength ];
+            centralDirectory.get( entry.extra );
+            entry.comment = new byte[ commentLength ];
+            centralDirectory.get( entry.comment );
+            if ( entry.compressedSize == ZIP64_UINT32 || entry.uncompressedSize == ZIP64_UINT32
+                    || entry.localHeaderOffset == ZIP64_UINT32 )
+            {
+                throw new IOException( "ZIP64 archives are not supported: " + file );
+            }
+            return entry;
+        }
+
+        private String getName()
+        {
+            return new String( name, UTF_8 );
+        }
+
+        private boolean isNativeLibrary()
+        {
+            return getName().endsWith( NATIVE_LIBRARY_SUFFIX );
+        }
+
+        /**
+         * @return the alignment of the data, 0 for compressed entries which need no alignment
+         */
+        private int getAlignment()
+        {
+            if ( method != STORED )
+            {
+                return 0;
+            }
+            return isNativeLibrary() ? PAGE_ALIGNMENT : DEFAULT_ALIGNMENT;
+        }
+
+        private byte[] toLocalFileHeader( byte[] localExtra )
+        {
+            final ByteBuffer header = ByteBuffer.allocate( LOCAL_FILE_HEADER_SIZE + name.length + localExtra.length )
+                    .order( ByteOrder.LITTLE_ENDIAN );
+            header.putInt( LOCAL_FILE_HEADER_SIGNATURE );
+            header.putShort( ( short ) versionNeeded );
+            header.putShort( ( short ) flags );
+            header.putShort( ( short ) method );
+            header.putShort( ( short ) time );
+            header.putShort( ( short ) date );
+            header.putInt( crc );
+            header.putInt( ( int ) compressedSize );
+            header.putInt( ( int ) uncompressedSize );
+            header.putShort( ( short ) name.length );
+            header.putShort( ( short ) localExtra.length );
+            header.put( name );
+            header.put( localExtra );
+            return header.array();
+        }
+
+        private byte[] toCentralDirectoryHeader()
+        {
+            final ByteBuffer header = ByteBuffer.allocate( CENTRAL_DIRECTORY_HEADER_SIZE + name.length + extra.length
+                    + comment.length ).order( ByteOrder.LITTLE_ENDIAN );
+            header.putInt( CENTRAL_DIRECTORY_SIGNATURE );
+            header.putShort( ( short ) versionMadeBy );
+            header.putShort( ( short ) versionNeeded );
+            header.putShort( ( short ) flags );
+            header.putShort( ( short ) method );
+            header.putShort( ( short ) time );
+            header.putShort( ( short ) date );
+            header.putInt( crc );
+            header.putInt( ( int ) compressedSize );
+            header.putInt( ( int ) uncompressedSize );
+            header.putShort( ( short ) name.length );
+            header.putShort( ( short ) extra.length );
+            header.putShort( ( short ) comment.length );
+            header.putShort( ( short ) diskNumberStart );
+            header.putShort( ( short ) internalAttributes );
+            header.putInt( externalAttributes );
+            header.putInt( ( int ) localHeaderOffset );
+            header.put( name );
+            header.put( extra );
+            header.put( comment );
+            return header.array();
+        }
+    }
+}
@@ -2,62 +2,236 @@ package com.simpligility.maven.plugins.android.common;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
-import org.codehaus.plexus.archiver.ArchiverException;
-import org.codehaus.plexus.archiver.UnArchiver;
-import org.codehaus.plexus.archiver.zip.ZipUnArchiver;
-import org.codehaus.plexus.components.io.fileselectors.FileInfo;
-import org.codehaus.plexus.components.io.fileselectors.FileSelector;
 import org.codehaus.plexus.logging.Logger;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 /**
  * Extract an archive to a given location.
+ * <p>
+ * The entries are filtered by name before any data is read, all folders are created up front and the entries are
+ * then decompressed concurrently, each thread reusing one buffer. Archives with few entries are extracted by the
+ * calling thread.
  */
 public final class ZipExtractor
 {
-    private final Log log;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Archives with less entries are not worth to hand over to other threads.
+     */
+    private static final int MIN_ENTRIES_PER_THREAD = 16;
+
+    private final Logger log;
 
     public ZipExtractor( Log log )
+    {
+        this( new MavenToPlexusLogAdapter( log ) );
+    }
+
+    public ZipExtractor( Logger log )
     {
         this.log = log;
     }
 
+    /**
+     * Extracts all entries of an archive.
+     *
+     * @param zipFile      the archive
+     * @param targetFolder the folder to extract into, created if missing
+     * @throws MojoExecutionException if the archive cannot be extracted
+     */
+    public void extract( File zipFile, File targetFolder ) throws MojoExecutionException
+    {
+        extract( zipFile, targetFolder, null );
+    }
+
+    /**
+     * Extracts the entries of an archive that do not end with a suffix.
+     *
+     * @param zipFile         the archive
+     * @param targetFolder    the folder to extract into, created if missing
+     * @param suffixToExclude the suffix of the entries to skip, <code>null</code> to extract all entries
+     * @throws MojoExecutionException if the archive cannot be extracted
+     */
     public void extract( File zipFile, File targetFolder, final String suffixToExclude ) throws MojoExecutionException
     {
-        final UnArchiver unArchiver = new ZipUnArchiver( zipFile )
+        log.debug( "Extracting archive to " + targetFolder );
+        try ( ZipFile archive = new ZipFile( zipFile ) )
         {
-            @Override
-            protected Logger getLogger()
+            final Path targetPath = targetFolder.toPath().toAbsolutePath().normalize();
+            final List<ZipEntry> entries = new ArrayList<ZipEntry>();
+            final Set<File> folders = new TreeSet<File>();
+            folders.add( targetFolder );
+
+            final Enumeration<? extends ZipEntry> enumeration = archive.entries();
+            while ( enumeration.hasMoreElements() )
             {
-                return new MavenToPlexusLogAdapter( log );
+                final ZipEntry entry = enumeration.nextElement();
+                if ( suffixToExclude != null && entry.getName().endsWith( suffixToExclude ) )
+                {
+                    continue;
+                }
+                final Path path = targetPath.resolve( entry.getName() ).normalize();
+                if ( !path.startsWith( targetPath ) )
+                {
+                    throw new MojoExecutionException( "Entry " + entry.getName() + " of " + zipFile
+                            + " is outside of the target folder " + targetFolder );
+                }
+                if ( entry.isDirectory() )
+                {
+                    folders.add( path.toFile() );
+                }
+                else
+                {
+                    folders.add( path.getParent().toFile() );
+                    entries.add( entry );
+                }
             }
-        };
 
-        targetFolder.mkdirs();
+            for ( File folder : folders )
+            {
+                if ( !folder.isDirectory() && !folder.mkdirs() )
+                {
+                    throw new MojoExecutionException( "Could not create folder " + folder );
+                }
+            }
 
-        final FileSelector exclusionFilter = new FileSelector()
+            extractEntries( archive, entries, targetFolder );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "IOException while extracting " + zipFile.getAbsolutePath()
+                    + ". Message: " + e.getLocalizedMessage(), e );
+        }
+    }
+
+    private void extractEntries( ZipFile archive, List<ZipEntry> entries, File targetFolder )
+            throws IOException, MojoExecutionException
+    {
+        final int threads = Math.min( Runtime.getRuntime().availableProcessors(),
+                entries.size() / MIN_ENTRIES_PER_THREAD );
+        final EntryExtraction extraction = new EntryExtraction( archive, entries, targetFolder );
+
+        if ( threads < 2 )
+        {
+            extraction.call();
+            return;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool( threads, new ThreadFactory()
         {
             @Override
-            public boolean isSelected( FileInfo fileInfo ) throws IOException
+            public Thread newThread( Runnable runnable )
+            {
+                final Thread thread = new Thread( runnable, "android-zip-extractor" );
+                thread.setDaemon( true );
+                return thread;
+            }
+        } );
+        try
+        {
+            final List<Future<Void>> futures = new ArrayList<Future<Void>>( threads );
+            for ( int i = 0; i < threads; i++ )
+            {
+                futures.add( executor.submit( extraction ) );
+            }
+            for ( Future<Void> future : futures )
+            {
+                future.get();
+            }
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while extracting " + archive.getName(), e );
+        }
+        catch ( ExecutionException e )
+        {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof IOException )
             {
-                return !fileInfo.getName().endsWith( suffixToExclude );
+                throw ( IOException ) cause;
             }
-        };
+            if ( cause instanceof RuntimeException )
+            {
+                throw ( RuntimeException ) cause;
+            }
+            if ( cause instanceof Error )
+            {
+                throw ( Error ) cause;
+            }
+            throw new MojoExecutionException( "Could not extract " + archive.getName(), cause );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
 
-        unArchiver.setDestDirectory( targetFolder );
-        unArchiver.setFileSelectors( new FileSelector[] { exclusionFilter } );
+    /**
+     * Extracts the entries not taken by another thread yet, one buffer per thread running it.
+     */
+    private static final class EntryExtraction implements Callable<Void>
+    {
+        private final ZipFile archive;
+        private final List<ZipEntry> entries;
+        private final File targetFolder;
+        private final AtomicInteger next = new AtomicInteger();
 
-        log.debug( "Extracting archive to " + targetFolder );
-        try
+        EntryExtraction( ZipFile archive, List<ZipEntry> entries, File targetFolder )
         {
-            unArchiver.extract();
+            this.archive = archive;
+            this.entries = entries;
+            this.targetFolder = targetFolder;
         }
-        catch ( ArchiverException e )
+
+        @Override
+        public Void call() throws IOException
         {
-            throw new MojoExecutionException( "ArchiverException while extracting " + zipFile.getAbsolutePath()
-                    + ". Message: " + e.getLocalizedMessage(), e );
+            final byte[] buffer = new byte[ BUFFER_SIZE ];
+            for ( int index = next.getAndIncrement(); index < entries.size(); index = next.getAndIncrement() )
+            {
+                extractEntry( entries.get( index ), buffer );
+            }
+            return null;
+        }
+
+        private void extractEntry( ZipEntry entry, byte[] buffer ) throws IOException
+        {
+            final File file = new File( targetFolder, entry.getName() );
+            try ( InputStream in = archive.getInputStream( entry ); OutputStream out = new FileOutputStream( file ) )
+            {
+                int read = in.read( buffer );
+                while ( read != -1 )
+                {
+                    out.write( buffer, 0, read );
+                    read = in.read( buffer );
+                }
+            }
+            if ( entry.getTime() != -1 )
+            {
+                file.setLastModified( entry.getTime() );
+            }
         }
     }
 }
@@ -30,4 +30,19 @@ public class Apk
      * Mirror of {@link com.simpligility.maven.plugins.android.phase09package.ApkMojo#apkNativeToolchain}.
      */
     private String   nativeToolchain;
+
+    /**
+     * Mirror of {@link com.simpligility.maven.plugins.android.phase09package.ApkMojo#apkStripNativeLibraries}.
+     */
+    private Boolean  stripNativeLibraries;
+
+    /**
+     * Mirror of {@link com.simpligility.maven.plugins.android.phase09package.ApkMojo#apkUncompressedNativeLibraries}.
+     */
+    private Boolean  uncompressedNativeLibraries;
+
+    /**
+     * Mirror of {@link com.simpligility.maven.plugins.android.phase09package.ApkMojo#apkAlign}.
+     */
+    private Boolean  align;
 }
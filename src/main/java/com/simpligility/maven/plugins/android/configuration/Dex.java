@@ -57,6 +57,10 @@ public class Dex
      * Mirror of {@link com.simpligility.maven.plugins.android.phase08preparepackage.DexMojo#generateMainDexList}
      */
     private Boolean generateMainDexList;
+    /**
+     * Mirror of {@link com.simpligility.maven.plugins.android.phase08preparepackage.DexMojo#builtInMainDexList}
+     */
+    private Boolean builtInMainDexList;
 
     private String dexArguments;
 
@@ -119,6 +123,11 @@ public class Dex
     {
         return generateMainDexList;
     }
+
+    public Boolean isBuiltInMainDexList()
+    {
+        return builtInMainDexList;
+    }
     
     public String getDexArguments()
     {
@@ -18,6 +18,16 @@ public class Emulator
      */
     private String wait;
 
+    /**
+     * Mirror of {@link com.simpligility.maven.plugins.android.AbstractEmulatorMojo#emulatorConnectTimeout}
+     */
+    private String connectTimeout;
+
+    /**
+     * Mirror of {@link com.simpligility.maven.plugins.android.AbstractEmulatorMojo#emulatorBootTimeout}
+     */
+    private String bootTimeout;
+
     /**
      * Mirror of {@link com.simpligility.maven.plugins.android.AbstractEmulatorMojo#emulatorOptions}
      */
@@ -28,6 +38,16 @@ public class Emulator
      */
     private String executable;
 
+    /**
+     * Mirror of {@link com.simpligility.maven.plugins.android.AbstractEmulatorMojo#emulatorSnapshot}
+     */
+    private String snapshot;
+
+    /**
+     * Mirror of {@link com.simpligility.maven.plugins.android.AbstractEmulatorMojo#emulatorSnapshotReset}
+     */
+    private Boolean snapshotReset;
+
     public String getLocation()
     {
         return location;
@@ -45,6 +65,16 @@ public class Emulator
         return wait;
     }
 
+    public String getConnectTimeout()
+    {
+        return connectTimeout;
+    }
+
+    public String getBootTimeout()
+    {
+        return bootTimeout;
+    }
+
     public String getOptions()
     {
         return options;
@@ -54,4 +84,14 @@ public class Emulator
     {
         return executable;
     }
+
+    public String getSnapshot()
+    {
+        return snapshot;
+    }
+
+    public Boolean getSnapshotReset()
+    {
+        return snapshotReset;
+    }
 }
@@ -68,6 +68,12 @@ public class Manifest
      */
     protected Boolean debuggable;
 
+    /**
+     * Mirror of
+     * {@link com.simpligility.maven.plugins.android.standalonemojos.ManifestUpdateMojo#manifestExtractNativeLibs}.
+     */
+    protected Boolean extractNativeLibs;
+
     /**
      * Mirror of
      * {@link com.simpligility.maven.plugins.android.standalonemojos.ManifestUpdateMojo#manifestSupportsScreens}
@@ -140,6 +146,11 @@ public class Manifest
         return debuggable;
     }
 
+    public Boolean getExtractNativeLibs()
+    {
+        return extractNativeLibs;
+    }
+
     public SupportsScreens getSupportsScreens()
     {
         return supportsScreens;
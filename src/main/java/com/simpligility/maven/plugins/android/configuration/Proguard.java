@@ -31,6 +31,11 @@ public class Proguard
     private Boolean includeJdkLibs;
     private String[] options;
     private Boolean attachMap;
+    private Boolean fork;
+    private Boolean dump;
+    private Boolean printSeeds;
+    private Boolean printUsage;
+    private Boolean compressDiagnostics;
 
     public Boolean isSkip()
     {
@@ -86,4 +91,29 @@ public class Proguard
     {
         return options;
     }
+
+    public Boolean isFork()
+    {
+        return fork;
+    }
+
+    public Boolean isDump()
+    {
+        return dump;
+    }
+
+    public Boolean isPrintSeeds()
+    {
+        return printSeeds;
+    }
+
+    public Boolean isPrintUsage()
+    {
+        return printUsage;
+    }
+
+    public Boolean isCompressDiagnostics()
+    {
+        return compressDiagnostics;
+    }
 }
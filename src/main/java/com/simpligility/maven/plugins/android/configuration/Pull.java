@@ -17,6 +17,14 @@ public class Pull
      * Mirror of {@link com.simpligility.maven.plugins.android.standalonemojos.PullMojo#destination}
      */
     private String destination;
+    /**
+     * Mirror of {@link com.simpligility.maven.plugins.android.standalonemojos.PullMojo#incremental}
+     */
+    private Boolean incremental;
+    /**
+     * Mirror of {@link com.simpligility.maven.plugins.android.standalonemojos.PullMojo#threads}
+     */
+    private Integer threads;
 
     public String getSource()
     {
@@ -27,4 +35,14 @@ public class Pull
     {
         return destination;
     }
+
+    public Boolean getIncremental()
+    {
+        return incremental;
+    }
+
+    public Integer getThreads()
+    {
+        return threads;
+    }
 }
@@ -17,6 +17,22 @@ public class Push
      * Mirror of {@link com.simpligility.maven.plugins.android.standalonemojos.PushMojo#destination}
      */
     private String destination;
+    /**
+     * Mirror of {@link com.simpligility.maven.plugins.android.standalonemojos.PushMojo#sync}
+     */
+    private Boolean sync;
+    /**
+     * Mirror of {@link com.simpligility.maven.plugins.android.standalonemojos.PushMojo#delete}
+     */
+    private Boolean delete;
+    /**
+     * Mirror of {@link com.simpligility.maven.plugins.android.standalonemojos.PushMojo#checksum}
+     */
+    private Boolean checksum;
+    /**
+     * Mirror of {@link com.simpligility.maven.plugins.android.standalonemojos.PushMojo#threads}
+     */
+    private Integer threads;
 
     public String getSource()
     {
@@ -27,4 +43,24 @@ public class Push
     {
         return destination;
     }
+
+    public Boolean getSync()
+    {
+        return sync;
+    }
+
+    public Boolean getDelete()
+    {
+        return delete;
+    }
+
+    public Boolean getChecksum()
+    {
+        return checksum;
+    }
+
+    public Integer getThreads()
+    {
+        return threads;
+    }
 }
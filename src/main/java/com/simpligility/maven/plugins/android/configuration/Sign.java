@@ -39,8 +39,21 @@ public class Sign
     @Parameter (  property = "android.sign.debug", defaultValue = "auto" )
     private String debug;
 
+    /**
+     * Whether to sign with APK Signature Scheme v2 in addition to the JAR signature, which speeds up the verification
+     * of the APK on Android 7.0 and newer. The APK is signed while it is aligned, so it must not be changed afterwards,
+     * e.g. by running zipalign on an APK that is not aligned by the apk goal.
+     */
+    @Parameter ( property = "android.sign.v2", defaultValue = "false" )
+    private Boolean v2;
+
     public String getDebug()
     {
         return debug;
     }
+
+    public Boolean getV2()
+    {
+        return v2;
+    }
 }
\ No newline at end of file
@@ -23,6 +23,7 @@ import com.simpligility.maven.plugins.android.common.AaptCommandBuilder;
 import com.simpligility.maven.plugins.android.common.AaptCommandBuilder.AaptPackageCommandBuilder;
 import com.simpligility.maven.plugins.android.common.DependencyResolver;
 import com.simpligility.maven.plugins.android.common.FileRetriever;
+import com.simpligility.maven.plugins.android.common.FolderMirror;
 import com.simpligility.maven.plugins.android.configuration.BuildConfigConstant;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
@@ -215,10 +216,12 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
             extractSourceDependencies();
 
             // Extract the apklib and aar dependencies into unpacked-libs so that they can be referenced in the build.
-            extractLibraryDependencies();
+            final List<File> assetsFolders = extractLibraryDependencies();
 
-            // Copy project assets to combinedAssets so that aapt has a single assets folder to load.
-            copyFolder( assetsDirectory, combinedAssets );
+            // Mirror the library and project assets to combinedAssets so that aapt has a single assets folder to load.
+            // The project assets come last, they overlay the library assets.
+            assetsFolders.add( assetsDirectory );
+            new FolderMirror( getLog() ).mirror( assetsFolders, combinedAssets );
 
             final String[] relativeAidlFileNames1 = findRelativeAidlFileNames( aidlSourceDirectory );
             final String[] relativeAidlFileNames2 = findRelativeAidlFileNames( extractedDependenciesJavaSources );
@@ -434,7 +437,10 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
         }
     }
 
-    private void extractLibraryDependencies() throws MojoExecutionException
+    /**
+     * @return the assets folders of the extracted libraries to combine, in the order of the dependencies.
+     */
+    private List<File> extractLibraryDependencies() throws MojoExecutionException
     {
         final Collection<Artifact> artifacts = getTransitiveDependencyArtifacts(
                 EXCLUDED_DEPENDENCY_SCOPES_FOR_EXTRACTION );
@@ -445,6 +451,19 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
         // Any APKLIB classes have already been compiled into the APK.
         final boolean instrumentationTest = isInstrumentationTest();
 
+        // Resolve the libraries to extract as one batch, so they are downloaded concurrently.
+        final List<Artifact> libraries = new ArrayList<Artifact>();
+        for ( Artifact artifact : artifacts )
+        {
+            final String type = artifact.getType();
+            if ( ( type.equals( APKLIB ) && !instrumentationTest ) || type.equals( AAR ) )
+            {
+                libraries.add( artifact );
+            }
+        }
+        getArtifactResolverHelper().resolveArtifacts( libraries );
+
+        final List<File> assetsFolders = new ArrayList<File>();
         for ( Artifact artifact : artifacts )
         {
             final String type = artifact.getType();
@@ -452,11 +471,19 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
             {
                 getLog().info( "Extracting apklib " + artifact.getArtifactId() + "..." );
                 extractApklib( artifact );
+                assetsFolders.add( getUnpackedLibAssetsFolder( artifact ) );
             }
             else if ( type.equals( AAR ) )
             {
                 getLog().info( "Extracting aar " + artifact.getArtifactId() + "..." );
                 extractAarLib( artifact );
+
+                // Only combine the assets if an APK build. Ie we only want to package assets that we own.
+                // Assets should only live within their owners or the final APK.
+                if ( isAPKBuild() )
+                {
+                    assetsFolders.add( getUnpackedLibAssetsFolder( artifact ) );
+                }
             }
             else if ( type.equals( APK ) )
             {
@@ -468,6 +495,7 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
                 getLog().debug( "Not extracting " + artifact.getArtifactId() + "..." );
             }
         }
+        return assetsFolders;
     }
 
     /**
@@ -477,12 +505,9 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
     {
         getUnpackedLibHelper().extractApklib( apklibArtifact );
 
-        // Copy the assets to the the combinedAssets folder.
         // Add the apklib source and resource to the compile.
         // NB apklib sources are added to compileSourceRoot because we may need to compile against them.
         //    This means the apklib classes will be compiled into target/classes and packaged with this build.
-        copyFolder( getUnpackedLibAssetsFolder( apklibArtifact ), combinedAssets );
-
         final File apklibSourceFolder = getUnpackedApkLibSourceFolder( apklibArtifact );
         final List<String> resourceExclusions = Arrays.asList( "**/*.java", "**/*.aidl" );
         projectHelper.addResource( project, apklibSourceFolder.getAbsolutePath(), null, resourceExclusions );
@@ -496,14 +521,6 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
     {
         getUnpackedLibHelper().extractAarLib( aarArtifact );
 
-        // Copy the assets to the the combinedAssets folder, but only if an APK build.
-        // Ie we only want to package assets that we own.
-        // Assets should only live within their owners or the final APK.
-        if ( isAPKBuild() )
-        {
-            copyFolder( getUnpackedLibAssetsFolder( aarArtifact ), combinedAssets );
-        }
-
         // Aar lib resources should only be included if we are building an apk.
         // So we need to extract them into a folder that we then add to the resource classpath.
         if ( isAPKBuild() )
@@ -683,7 +700,7 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
         for ( final Artifact dependency : getTransitiveDependencyArtifacts( AAR, APKLIB ) )
         {
             final String packageName = extractPackageNameFromAndroidArtifact( dependency );
-            final String[] layoutFiles = retriever.getFileNames( getUnpackedLibResourceFolder( dependency ) );
+            final String[] layoutFiles = getLibraryMetadata( dependency ).getLayoutFileNames();
             detector.addLayoutFiles( packageName, layoutFiles );
         }
 
@@ -938,19 +955,19 @@ public class GenerateSourcesMojo extends AbstractAndroidMojo
 
         // Create combinedAssets for this apklib dependency - can't have multiple -A args
         final File apklibCombAssets = new File( getUnpackedLibFolder( apklibArtifact ), "combined-assets" );
+        final List<File> apklibAssetsFolders = new ArrayList<File>();
         for ( Artifact dependency : apklibDeps )
         {
             // Accumulate assets for dependencies of the apklib (if they exist).
             final String extension = dependency.getType();
-            final File dependencyAssetsDir = getUnpackedLibAssetsFolder( dependency );
             if ( ( extension.equals( APKLIB ) || extension.equals( AAR ) ) )
             {
-                copyFolder( dependencyAssetsDir, apklibCombAssets );
+                apklibAssetsFolders.add( getUnpackedLibAssetsFolder( dependency ) );
             }
         }
         // Overlay the apklib dependency assets (if they exist)
-        final File apkLibAssetsDir = getUnpackedLibAssetsFolder( apklibArtifact );
-        copyFolder( apkLibAssetsDir, apklibCombAssets );
+        apklibAssetsFolders.add( getUnpackedLibAssetsFolder( apklibArtifact ) );
+        new FolderMirror( getLog() ).mirror( apklibAssetsFolders, apklibCombAssets );
 
         final CommandExecutor executor = CommandExecutor.Factory.createDefaultCommmandExecutor();
         executor.setLogger( getLog() );
@@ -1,10 +1,11 @@
 package com.simpligility.maven.plugins.android.phase01generatesources;
 
-import com.android.builder.core.DefaultManifestParser;
 import com.android.builder.symbols.RGeneration;
 import com.android.builder.symbols.SymbolIo;
 import com.android.builder.symbols.SymbolTable;
+import com.simpligility.maven.plugins.android.common.LibraryMetadata;
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.logging.Log;
 
 import java.io.File;
@@ -49,8 +50,9 @@ final class ResourceClassGenerator
      * com.android.builder.internal.aapt.AaptPackageConfig.Builder, boolean)}
      *
      * @param libraries AAR libraries for which to generate R java files.
+     * @throws MojoExecutionException if the metadata of one of the libraries cannot be collected.
      */
-    public void generateLibraryRs( final Set<Artifact> libraries )
+    public void generateLibraryRs( final Set<Artifact> libraries ) throws MojoExecutionException
     {
         // list of all the symbol tables
         final List<SymbolTable> symbolTables = new ArrayList<>( libraries.size() );
@@ -60,11 +62,11 @@ final class ResourceClassGenerator
         {
             final File unpackedLibDirectory = mojo.getUnpackedLibFolder( lib );
             final File rFile = new File( unpackedLibDirectory, "R.txt" );
+            final LibraryMetadata metadata = LibraryMetadata.forLibrary( unpackedLibDirectory );
 
-            if ( rFile.isFile() )
+            if ( metadata.hasSymbols() )
             {
-                final File libManifestFile = new File( unpackedLibDirectory, "AndroidManifest.xml" );
-                final String packageName = new DefaultManifestParser( libManifestFile ).getPackage();
+                final String packageName = metadata.getPackageName();
                 if ( rJavaAlreadyExists( packageName ) )
                 {
                     log.info( "Not creating R for " + packageName + " as it already exists" );
@@ -0,0 +1,206 @@
+package com.simpligility.maven.plugins.android.phase04processclasses;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * Runs ProGuard on the Maven JVM instead of forking <code>java -jar proguard.jar</code> for every module.
+ * <p>
+ * The ProGuard jar is loaded into an isolated class loader that is kept for the lifetime of the Maven JVM, so all
+ * modules of a reactor share the loaded and warmed up ProGuard classes. ProGuard is driven through reflection using
+ * its public <code>ConfigurationParser</code> and <code>ProGuard</code> classes, which allows any ProGuard version
+ * configured by the user to be used.
+ * <p>
+ * ProGuard prints its notes and warnings to {@link System#out} and {@link System#err}. While it runs, the output of
+ * the running thread is redirected to the Maven log. Because of this redirection, and since ProGuard was not written
+ * with concurrent runs in mind, all runs are serialized, whichever ProGuard jar they use.
+ */
+final class InProcessProguard
+{
+    private static final Map< String, ClassLoader > CLASS_LOADERS = new HashMap< String, ClassLoader >();
+
+    /**
+     * Held while {@link System#out} and {@link System#err} are redirected, they are shared by the whole JVM.
+     */
+    private static final Object SYSTEM_STREAMS_LOCK = new Object();
+
+    private final File proguardJar;
+    private final Log log;
+
+    /**
+     * Set while a line is passed to the log, which may itself write to the redirected streams.
+     */
+    private volatile boolean logging;
+
+    /**
+     * @param proguardJar the ProGuard jar to load
+     * @param log         the log to forward the ProGuard output to
+     */
+    InProcessProguard( File proguardJar, Log log )
+    {
+        this.proguardJar = proguardJar;
+        this.log = log;
+    }
+
+    /**
+     * Parse the arguments like the ProGuard command line does and run ProGuard with the resulting configuration.
+     *
+     * @param arguments the ProGuard command line arguments
+     * @throws MojoExecutionException if ProGuard cannot be loaded or fails
+     */
+    void execute( String[] arguments ) throws MojoExecutionException
+    {
+        final ClassLoader classLoader = getClassLoader( proguardJar );
+        synchronized ( SYSTEM_STREAMS_LOCK )
+        {
+            final Thread thread = Thread.currentThread();
+            final ClassLoader contextClassLoader = thread.getContextClassLoader();
+            final PrintStream out = System.out;
+            final PrintStream err = System.err;
+            final LogOutputStream infoStream = new LogOutputStream( thread, out, false );
+            final LogOutputStream warnStream = new LogOutputStream( thread, err, true );
+            try
+            {
+                thread.setContextClassLoader( classLoader );
+                System.setOut( new PrintStream( infoStream, true ) );
+                System.setErr( new PrintStream( warnStream, true ) );
+
+                final Class< ? > configurationClass = classLoader.loadClass( "proguard.Configuration" );
+                final Object configuration = configurationClass.getConstructor().newInstance();
+
+                final Class< ? > parserClass = classLoader.loadClass( "proguard.ConfigurationParser" );
+                final Object parser = parserClass.getConstructor( String[].class, Properties.class )
+                        .newInstance( arguments, System.getProperties() );
+                try
+                {
+                    parserClass.getMethod( "parse", configurationClass ).invoke( parser, configuration );
+                }
+                finally
+                {
+                    parserClass.getMethod( "close" ).invoke( parser );
+                }
+
+                final Class< ? > proguardClass = classLoader.loadClass( "proguard.ProGuard" );
+                final Object proguard = proguardClass.getConstructor( configurationClass ).newInstance( configuration );
+                proguardClass.getMethod( "execute" ).invoke( proguard );
+            }
+            catch ( InvocationTargetException e )
+            {
+                throw new MojoExecutionException( "ProGuard failed: " + e.getCause().getMessage(), e.getCause() );
+            }
+            catch ( ReflectiveOperationException e )
+            {
+                throw new MojoExecutionException( "Cannot run ProGuard from " + proguardJar
+                        + " in process, use a ProGuard version providing the ConfigurationParser API or set"
+                        + " android.proguard.fork to true", e );
+            }
+            finally
+            {
+                infoStream.flushLine();
+                warnStream.flushLine();
+                System.setOut( out );
+                System.setErr( err );
+                thread.setContextClassLoader( contextClassLoader );
+            }
+        }
+    }
+
+    private static ClassLoader getClassLoader( File proguardJar ) throws MojoExecutionException
+    {
+        final String key = proguardJar.getAbsolutePath();
+        synchronized ( CLASS_LOADERS )
+        {
+            ClassLoader classLoader = CLASS_LOADERS.get( key );
+            if ( classLoader == null )
+            {
+                try
+                {
+                    // only the JDK is visible to ProGuard, not the plugin class path
+                    classLoader = new URLClassLoader( new URL[] { proguardJar.toURI().toURL() },
+                            ClassLoader.getSystemClassLoader().getParent() );
+                }
+                catch ( MalformedURLException e )
+                {
+                    throw new MojoExecutionException( "Invalid ProGuard jar path " + proguardJar, e );
+                }
+                CLASS_LOADERS.put( key, classLoader );
+            }
+            return classLoader;
+        }
+    }
+
+    /**
+     * Forwards complete lines written by one thread to the Maven log, output of other threads and of the log itself
+     * goes to the original stream unchanged.
+     */
+    private final class LogOutputStream extends OutputStream
+    {
+        private final Thread owner;
+        private final PrintStream original;
+        private final boolean warning;
+        private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        private LogOutputStream( Thread owner, PrintStream original, boolean warning )
+        {
+            this.owner = owner;
+            this.original = original;
+            this.warning = warning;
+        }
+
+        @Override
+        public void write( int b )
+        {
+            if ( Thread.currentThread() != owner || logging )
+            {
+                original.write( b );
+            }
+            else if ( b == '\n' )
+            {
+                flushLine();
+            }
+            else if ( b != '\r' )
+            {
+                line.write( b );
+            }
+        }
+
+        private synchronized void flushLine()
+        {
+            if ( line.size() == 0 )
+            {
+                return;
+            }
+            final String message = new String( line.toByteArray(), Charset.defaultCharset() );
+            line.reset();
+            logging = true;
+            try
+            {
+                if ( warning )
+                {
+                    log.warn( message );
+                }
+                else
+                {
+                    log.info( message );
+                }
+            }
+            finally
+            {
+                logging = false;
+            }
+        }
+    }
+}
@@ -5,11 +5,13 @@ import com.simpligility.maven.plugins.android.AbstractAndroidMojo;
 import com.simpligility.maven.plugins.android.CommandExecutor;
 import com.simpligility.maven.plugins.android.ExecutionException;
 import com.simpligility.maven.plugins.android.IncludeExcludeSet;
+import com.simpligility.maven.plugins.android.common.Fingerprint;
 import com.simpligility.maven.plugins.android.config.ConfigHandler;
 import com.simpligility.maven.plugins.android.config.ConfigPojo;
 import com.simpligility.maven.plugins.android.config.PullParameter;
 import com.simpligility.maven.plugins.android.configuration.Proguard;
 
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.SystemUtils;
 import org.apache.maven.artifact.Artifact;
@@ -24,6 +26,8 @@ import org.codehaus.plexus.interpolation.os.Os;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -31,6 +35,8 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
 
 import static com.simpligility.maven.plugins.android.InclusionExclusionResolver.filterArtifacts;
 import static com.simpligility.maven.plugins.android.common.AndroidExtension.AAR;
@@ -73,6 +79,11 @@ public class ProguardMojo extends AbstractAndroidMojo
      *     &lt;jvmArgument&gt;-Xms256m&lt;/jvmArgument&gt;
      *     &lt;jvmArgument&gt;-Xmx512m&lt;/jvmArgument&gt;
      *   &lt;/jvmArguments&gt;
+     *    &lt;fork&gt;true|false&lt;/fork&gt;
+     *    &lt;dump&gt;true|false&lt;/dump&gt;
+     *    &lt;printSeeds&gt;true|false&lt;/printSeeds&gt;
+     *    &lt;printUsage&gt;true|false&lt;/printUsage&gt;
+     *    &lt;compressDiagnostics&gt;true|false&lt;/compressDiagnostics&gt;
      * &lt;/proguard&gt;
      * </pre>
      * <p>
@@ -142,9 +153,9 @@ public class ProguardMojo extends AbstractAndroidMojo
      * Path relative to the project's build directory (target) where proguard puts folowing files:
      * 
      * <ul>
-     *   <li>dump.txt</li>
-     *   <li>seeds.txt</li>
-     *   <li>usage.txt</li>
+     *   <li>dump.txt (if dump is enabled)</li>
+     *   <li>seeds.txt (if printSeeds is enabled)</li>
+     *   <li>usage.txt (if printUsage is enabled)</li>
      *   <li>mapping.txt</li>
      * </ul>
      * 
@@ -182,6 +193,57 @@ public class ProguardMojo extends AbstractAndroidMojo
     @PullParameter( defaultValueGetterMethod = "getDefaultJvmArguments" )
     private String[] parsedJvmArguments;
 
+    /**
+     * If set to false ProGuard runs inside the Maven JVM instead of a forked <code>java -jar proguard.jar</code>
+     * process. The ProGuard classes are loaded once and shared by all modules of the build, which saves the JVM
+     * start-up and warm-up per module. The jvmArguments are ignored in this mode. Defaults to true.
+     */
+    @Parameter( property = "android.proguard.fork" )
+    private Boolean proguardFork;
+
+    @PullParameter( defaultValue = "true" )
+    private Boolean parsedFork;
+
+    /**
+     * If set to true ProGuard writes the internal structure of all processed classes to dump.txt in the output
+     * directory. This file gets very large for big applications. Defaults to false.
+     */
+    @Parameter( property = "android.proguard.dump" )
+    private Boolean proguardDump;
+
+    @PullParameter( defaultValue = "false" )
+    private Boolean parsedDump;
+
+    /**
+     * If set to true ProGuard lists the classes and members matched by the keep options in seeds.txt in the output
+     * directory. Defaults to false.
+     */
+    @Parameter( property = "android.proguard.printSeeds" )
+    private Boolean proguardPrintSeeds;
+
+    @PullParameter( defaultValue = "false" )
+    private Boolean parsedPrintSeeds;
+
+    /**
+     * If set to true ProGuard lists the dead code it removed in usage.txt in the output directory. Defaults to
+     * false.
+     */
+    @Parameter( property = "android.proguard.printUsage" )
+    private Boolean proguardPrintUsage;
+
+    @PullParameter( defaultValue = "false" )
+    private Boolean parsedPrintUsage;
+
+    /**
+     * If set to true the enabled diagnostic outputs dump.txt, seeds.txt and usage.txt are gzip compressed after
+     * ProGuard ran, e.g. to archive them on a CI server. mapping.txt is never compressed. Defaults to false.
+     */
+    @Parameter( property = "android.proguard.compressDiagnostics" )
+    private Boolean proguardCompressDiagnostics;
+
+    @PullParameter( defaultValue = "false" )
+    private Boolean parsedCompressDiagnostics;
+
     /**
      * If set to true will add a filter to remove META-INF/maven/* files. Defaults to false.
      */
@@ -291,6 +353,11 @@ public class ProguardMojo extends AbstractAndroidMojo
 
     private static final Collection< String > META_INF_MANIFEST = Arrays.asList( "META-INF/MANIFEST.MF" );
 
+    /**
+     * Suffix of the file next to the obfuscated jar holding the fingerprint of the inputs of the last run.
+     */
+    private static final String FINGERPRINT_SUFFIX = ".fingerprint";
+
     /**
      * For Proguard is required only jar type dependencies, all other like .so or .apklib can be skipped.
      */
@@ -462,12 +529,21 @@ public class ProguardMojo extends AbstractAndroidMojo
         proguardCommands.add( "-outjars" );
         proguardCommands.add( obfuscatedJar );
 
-        proguardCommands.add( "-dump" );
-        proguardCommands.add( proguardDir + File.separator + "dump.txt" );
-        proguardCommands.add( "-printseeds" );
-        proguardCommands.add( proguardDir + File.separator + "seeds.txt" );
-        proguardCommands.add( "-printusage" );
-        proguardCommands.add( proguardDir + File.separator + "usage.txt" );
+        final List< File > diagnosticFiles = new ArrayList< File >();
+        if ( parsedDump )
+        {
+            diagnosticFiles.add( addOutputOption( proguardCommands, "-dump", new File( proguardDir, "dump.txt" ) ) );
+        }
+        if ( parsedPrintSeeds )
+        {
+            diagnosticFiles.add( addOutputOption( proguardCommands, "-printseeds",
+                    new File( proguardDir, "seeds.txt" ) ) );
+        }
+        if ( parsedPrintUsage )
+        {
+            diagnosticFiles.add( addOutputOption( proguardCommands, "-printusage",
+                    new File( proguardDir, "usage.txt" ) ) );
+        }
 
         File mapFile = new File( proguardDir, "mapping.txt" );
 
@@ -480,11 +556,43 @@ public class ProguardMojo extends AbstractAndroidMojo
 
         getLog().debug( javaExecutable + " " + commands.toString() + proguardCommands.toString() );
 
+        final File fingerprintFile = new File( obfuscatedJar + FINGERPRINT_SUFFIX );
+        final Fingerprint fingerprint = computeFingerprint( proguardCommands, proguardDir );
+        if ( fingerprint.matches( fingerprintFile ) && new File( obfuscatedJar ).isFile() && mapFile.isFile() )
+        {
+            getLog().info( "ProGuard inputs are unchanged, reusing " + obfuscatedJar );
+        }
+        else
+        {
+            FileUtils.deleteQuietly( fingerprintFile );
+            runProguard( executor, javaExecutable, commands, proguardCommands, proguardDir );
+            if ( parsedCompressDiagnostics )
+            {
+                compressDiagnostics( diagnosticFiles );
+            }
+            try
+            {
+                fingerprint.store( fingerprintFile );
+            }
+            catch ( IOException e )
+            {
+                getLog().warn( "Cannot write ProGuard fingerprint " + fingerprintFile, e );
+            }
+        }
+
+        if ( parsedAttachMap )
+        {
+            projectHelper.attachArtifact( project, "map", mapFile );
+        }
+    }
+
+    private void runProguard( CommandExecutor executor, String javaExecutable, List< String > commands,
+                              List< String > proguardCommands, File proguardDir ) throws MojoExecutionException
+    {
+        final File tempConfigFile = new File( proguardDir, "temp_config.cfg" );
         FileOutputStream tempConfigFileOutputStream = null;
         try
         {
-            File tempConfigFile = new File ( proguardDir , "temp_config.cfg" );
-
             StringBuilder commandStringBuilder = new StringBuilder();
             for ( String command : proguardCommands )
             {
@@ -493,14 +601,6 @@ public class ProguardMojo extends AbstractAndroidMojo
             }
             tempConfigFileOutputStream = new FileOutputStream( tempConfigFile );
             IOUtils.write( commandStringBuilder, tempConfigFileOutputStream );
-
-            executor.setCaptureStdOut( true );
-            commands.add( "@" + tempConfigFile.getAbsolutePath() + "" );
-            executor.executeCommand( javaExecutable, commands, project.getBasedir(), false );
-        }
-        catch ( ExecutionException e )
-        {
-            throw new MojoExecutionException( "", e );
         }
         catch ( IOException e )
         {
@@ -511,12 +611,161 @@ public class ProguardMojo extends AbstractAndroidMojo
             IOUtils.closeQuietly( tempConfigFileOutputStream );
         }
 
-        if ( parsedAttachMap )
+        if ( parsedFork )
         {
-            projectHelper.attachArtifact( project, "map", mapFile );
+            try
+            {
+                executor.setCaptureStdOut( true );
+                commands.add( "@" + tempConfigFile.getAbsolutePath() + "" );
+                executor.executeCommand( javaExecutable, commands, project.getBasedir(), false );
+            }
+            catch ( ExecutionException e )
+            {
+                throw new MojoExecutionException( "", e );
+            }
+        }
+        else
+        {
+            if ( parsedProguardJarPath == null )
+            {
+                throw new MojoExecutionException( "Cannot run ProGuard in process, no ProGuard jar found in the "
+                        + "plugin dependencies and no proguardJarPath configured" );
+            }
+            getLog().debug( "Running ProGuard in process from " + parsedProguardJarPath );
+            new InProcessProguard( new File( parsedProguardJarPath ), getLog() )
+                    .execute( new String[] { "@" + tempConfigFile.getAbsolutePath() } );
         }
     }
 
+    private static File addOutputOption( List< String > proguardCommands, String option, File outputFile )
+    {
+        proguardCommands.add( option );
+        proguardCommands.add( outputFile.toString() );
+        return outputFile;
+    }
+
+    /**
+     * Replaces each diagnostic output of ProGuard with a gzip compressed copy.
+     */
+    private void compressDiagnostics( List< File > diagnosticFiles ) throws MojoExecutionException
+    {
+        for ( File diagnosticFile : diagnosticFiles )
+        {
+            if ( ! diagnosticFile.isFile() )
+            {
+                continue;
+            }
+            final File compressedFile = new File( diagnosticFile.getPath() + ".gz" );
+            try ( OutputStream out = new GZIPOutputStream( new FileOutputStream( compressedFile ) ) )
+            {
+                Files.copy( diagnosticFile.toPath(), out );
+            }
+            catch ( IOException e )
+            {
+                throw new MojoExecutionException( "Cannot compress " + diagnosticFile, e );
+            }
+            FileUtils.deleteQuietly( diagnosticFile );
+            getLog().debug( "Compressed " + diagnosticFile + " to " + compressedFile );
+        }
+    }
+
+    /**
+     * Computes the fingerprint of a ProGuard run from the ProGuard version, the command line, the content of all
+     * configuration files and the stamps of all input and library jars.
+     */
+    private Fingerprint computeFingerprint( List< String > proguardCommands, File proguardDir )
+            throws MojoExecutionException
+    {
+        final Fingerprint fingerprint = new Fingerprint();
+        fingerprint.add( parsedProguardJarPath );
+        if ( parsedProguardJarPath != null )
+        {
+            fingerprint.addFileStamp( new File( parsedProguardJarPath ) );
+        }
+        try
+        {
+            final Set< File > visitedConfigs = new HashSet< File >();
+            String previous = null;
+            for ( String command : proguardCommands )
+            {
+                fingerprint.add( command );
+                if ( command.startsWith( "@" ) )
+                {
+                    // included from temp_config.cfg, so relative paths are resolved against its directory
+                    addConfigFile( fingerprint, resolve( proguardDir, command.substring( 1 ) ), visitedConfigs );
+                }
+                else if ( "-injars".equals( previous ) || "-libraryjars".equals( previous ) )
+                {
+                    addClassPath( fingerprint, proguardDir, command );
+                }
+                previous = command;
+            }
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Cannot read ProGuard configuration", e );
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Adds a ProGuard configuration file to the fingerprint, including the files it includes and the jars it
+     * declares.
+     */
+    private void addConfigFile( Fingerprint fingerprint, File configFile, Set< File > visitedConfigs )
+            throws IOException
+    {
+        if ( ! visitedConfigs.add( configFile.getAbsoluteFile() ) )
+        {
+            return;
+        }
+        fingerprint.addFileContent( configFile );
+        if ( ! configFile.isFile() )
+        {
+            return;
+        }
+        final File baseDir = configFile.getAbsoluteFile().getParentFile();
+        for ( String line : FileUtils.readLines( configFile ) )
+        {
+            final String option = line.trim();
+            if ( option.startsWith( "@" ) )
+            {
+                addConfigFile( fingerprint, resolve( baseDir, option.substring( 1 ) ), visitedConfigs );
+            }
+            else if ( option.startsWith( "-include " ) )
+            {
+                addConfigFile( fingerprint, resolve( baseDir, option.substring( "-include ".length() ) ),
+                        visitedConfigs );
+            }
+            else if ( option.startsWith( "-injars " ) || option.startsWith( "-libraryjars " ) )
+            {
+                addClassPath( fingerprint, baseDir, option.substring( option.indexOf( ' ' ) + 1 ) );
+            }
+        }
+    }
+
+    /**
+     * Adds the stamps of all entries of a ProGuard class path, ignoring their filters.
+     */
+    private static void addClassPath( Fingerprint fingerprint, File baseDir, String classPath )
+    {
+        for ( String entry : classPath.split( File.pathSeparator ) )
+        {
+            final int filterStart = entry.indexOf( '(' );
+            final String path = filterStart >= 0 ? entry.substring( 0, filterStart ) : entry;
+            if ( ! path.trim().isEmpty() )
+            {
+                fingerprint.addFileStamp( resolve( baseDir, path ) );
+            }
+        }
+    }
+
+    private static File resolve( File baseDir, String path )
+    {
+        final File file = new File( path.trim().replace( "\"", "" ).replace( "'", "" ) );
+        return file.isAbsolute() ? file : new File( baseDir, file.getPath() );
+    }
+
     /**
      * Convert the jvm arguments in parsedJvmArguments as populated by the config in format as needed by the java
      * command. Also preserve backwards compatibility in terms of dashes required or not..
@@ -23,12 +23,19 @@ import static com.simpligility.maven.plugins.android.common.AndroidExtension.APK
 
 import java.io.File;
 import java.io.IOException;
+import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.xml.DocumentContainer;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.model.Resource;
@@ -46,6 +53,8 @@ import com.simpligility.maven.plugins.android.AbstractAndroidMojo;
 import com.simpligility.maven.plugins.android.CommandExecutor;
 import com.simpligility.maven.plugins.android.ExecutionException;
 import com.simpligility.maven.plugins.android.IncludeExcludeSet;
+import com.simpligility.maven.plugins.android.asm.MainDexListBuilder;
+import com.simpligility.maven.plugins.android.common.Fingerprint;
 import com.simpligility.maven.plugins.android.common.Const;
 import com.simpligility.maven.plugins.android.common.ZipExtractor;
 import com.simpligility.maven.plugins.android.configuration.Dex;
@@ -62,6 +71,19 @@ import com.simpligility.maven.plugins.android.configuration.Dex;
 )
 public class DexMojo extends AbstractAndroidMojo
 {
+    private static final String FINGERPRINT_SUFFIX = ".fingerprint";
+
+    /**
+     * Changes whenever the built-in main dex list computation changes, so that cached lists are computed again.
+     */
+    private static final String BUILT_IN_MAIN_DEX_LIST_VERSION = "built-in-main-dex-list-1";
+
+    private static final String[] MAIN_DEX_MANIFEST_ENTRY_POINTS = {
+        "manifest/application/@android:name",
+        "manifest/application/@android:backupAgent",
+        "manifest/application/provider/@android:name",
+        "manifest/instrumentation/@android:name"
+    };
 
     /**
      * Configuration for the dex command execution. It can be configured in the plugin configuration like so
@@ -82,6 +104,7 @@ public class DexMojo extends AbstractAndroidMojo
      *   &lt;incremental&gt;true|false&lt;/incremental&gt;
      *   &lt;multiDex&gt;true|false&lt;/multiDex&gt;
      *   &lt;generateMainDexList&gt;true|false&lt;/generateMainDexList&gt;
+     *   &lt;builtInMainDexList&gt;true|false&lt;/builtInMainDexList&gt;
      *   &lt;mainDexList&gt;path to class list file&lt;/mainDexList&gt;
      *   &lt;minimalMainDex&gt;true|false&lt;/minimalMainDex&gt;
      * &lt;/dex&gt;
@@ -184,6 +207,16 @@ public class DexMojo extends AbstractAndroidMojo
     @Parameter( property = "android.dex.generatemaindexlist", defaultValue = "false" )
     private boolean dexGenerateMainDexList;
 
+    /**
+     * Decides whether the generated main dex list is computed by the plugin itself, reading the classes in parallel,
+     * instead of forking ProGuard and the MainDexListBuilder of the build tools. The list is only computed again when
+     * the dex inputs, the main dex rules or the manifest changed.
+     *
+     * Only used if dexGenerateMainDexList is set to true.
+     */
+    @Parameter( property = "android.dex.builtinmaindexlist", defaultValue = "false" )
+    private boolean dexBuiltInMainDexList;
+
     /**
      * Additional command line parameters passed to dx.
      */
@@ -250,9 +283,15 @@ public class DexMojo extends AbstractAndroidMojo
     private String parsedMainDexList;
     private boolean parsedMinimalMainDex;
     private boolean parsedGenerateMainDexList;
+    private boolean parsedBuiltInMainDexList;
     private String parsedDexArguments;
     private DexCompiler parsedDexCompiler;
 
+    /**
+     * The dex inputs, computed once per execution by {@link #getDexInputFiles()}.
+     */
+    private Set< File > dexInputFiles;
+
     /**
      * @throws MojoExecutionException
      * @throws MojoFailureException
@@ -286,7 +325,9 @@ public class DexMojo extends AbstractAndroidMojo
             {
                 getAndroidSdk().assertThatBuildToolsVersionIsAtLeast(
                     "22.0.0", "generate main dex list" );
-                File generatedMainDexClassesList = generateMainDexClassesList( executor );
+                File generatedMainDexClassesList = parsedBuiltInMainDexList
+                    ? generateBuiltInMainDexClassesList()
+                    : generateMainDexClassesList( executor );
                 parsedMainDexList = generatedMainDexClassesList.getAbsolutePath();
                 parsedMinimalMainDex = true;
             }
@@ -316,12 +357,18 @@ public class DexMojo extends AbstractAndroidMojo
     }
 
     /**
-     * Gets the input files for dex. This is a combination of directories and jar files.
+     * Gets the input files for dex. This is a combination of directories and jar files. They are computed on the
+     * first call only, later calls return the same inputs.
      *
      * @return
      */
     private Set< File > getDexInputFiles() throws MojoExecutionException
     {
+        if ( dexInputFiles != null )
+        {
+            return dexInputFiles;
+        }
+
         Set< File > inputs = new HashSet< File >();
 
         if ( obfuscatedJar != null && obfuscatedJar.exists() )
@@ -362,11 +409,7 @@ public class DexMojo extends AbstractAndroidMojo
                     // as they will already have been generated to target/classes. The R values from the APK will be
                     // the correct ones, so best solution is to extract the APK classes (including all Rs) to
                     // target/classes overwriting any generated Rs and let dex pick up the values from there.
-                    getLog().debug( "Extracting APK classes to target/classes : " + artifact.getArtifactId() );
-                    final File apkClassesJar = getUnpackedLibHelper().getJarFileForApk( artifact );
-                    getLog().debug( "Extracting APK : " + apkClassesJar + " to " + targetDirectory );
-                    final ZipExtractor extractor = new ZipExtractor( getLog() );
-                    extractor.extract( apkClassesJar, targetDirectory, ".class" );
+                    extractApkClasses( artifact );
                 }
                 else
                 {
@@ -376,7 +419,43 @@ public class DexMojo extends AbstractAndroidMojo
             }
         }
 
-        return inputs;
+        dexInputFiles = Collections.unmodifiableSet( inputs );
+        return dexInputFiles;
+    }
+
+    /**
+     * Extracts the classes jar of an APK dependency to the target directory, unless the same jar was already
+     * extracted by a previous build.
+     *
+     * @param artifact the APK dependency
+     * @throws MojoExecutionException if the jar cannot be extracted
+     */
+    private void extractApkClasses( Artifact artifact ) throws MojoExecutionException
+    {
+        final File apkClassesJar = getUnpackedLibHelper().getJarFileForApk( artifact );
+        final File stampFile = new File( targetDirectory, "apk-classes-" + artifact.getGroupId() + "-"
+            + artifact.getArtifactId() + FINGERPRINT_SUFFIX );
+        final Fingerprint fingerprint = new Fingerprint()
+            .addFileStamp( apkClassesJar )
+            .add( targetDirectory.getAbsolutePath() );
+        if ( fingerprint.matches( stampFile ) )
+        {
+            getLog().debug( "APK classes are up to date : " + apkClassesJar );
+            return;
+        }
+
+        getLog().debug( "Extracting APK classes to target/classes : " + artifact.getArtifactId() );
+        getLog().debug( "Extracting APK : " + apkClassesJar + " to " + targetDirectory );
+        final ZipExtractor extractor = new ZipExtractor( getLog() );
+        extractor.extract( apkClassesJar, targetDirectory, ".class" );
+        try
+        {
+            fingerprint.store( stampFile );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Failed to write " + stampFile, e );
+        }
     }
 
     private void parseConfiguration()
@@ -483,6 +562,14 @@ public class DexMojo extends AbstractAndroidMojo
             {
                 parsedGenerateMainDexList = dex.isGenerateMainDexList();
             }
+            if ( dex.isBuiltInMainDexList() == null )
+            {
+                parsedBuiltInMainDexList = dexBuiltInMainDexList;
+            }
+            else
+            {
+                parsedBuiltInMainDexList = dex.isBuiltInMainDexList();
+            }
             if ( dex.getDexArguments() == null )
             {
                 parsedDexArguments = dexArguments;
@@ -508,6 +595,7 @@ public class DexMojo extends AbstractAndroidMojo
             parsedMainDexList = dexMainDexList;
             parsedMinimalMainDex = dexMinimalMainDex;
             parsedGenerateMainDexList = dexGenerateMainDexList;
+            parsedBuiltInMainDexList = dexBuiltInMainDexList;
             parsedDexArguments = dexArguments;
             parsedDexCompiler = DexCompiler.valueOfIgnoreCase( dexCompiler );
         }
@@ -737,6 +825,102 @@ public class DexMojo extends AbstractAndroidMojo
         return mainDexClassesList;
     }
 
+    private File generateBuiltInMainDexClassesList() throws MojoExecutionException
+    {
+        final File mainDexClassesList = new File( targetDirectory, "mainDexClasses.txt" );
+        final File stampFile = new File( targetDirectory, "mainDexClasses.txt" + FINGERPRINT_SUFFIX );
+        final File rulesFile = new File( getAndroidSdk().getMainDexClassesRulesPath() );
+        final File libraryJar = new File( getAndroidSdk().getShrinkedAndroidJarPath() );
+        final Set< File > inputFiles = new TreeSet< File >( getDexInputFiles() );
+        final List< String > entryPoints = extractMainDexEntryPoints( destinationManifestFile );
+
+        try
+        {
+            final Fingerprint fingerprint = new Fingerprint()
+                .add( BUILT_IN_MAIN_DEX_LIST_VERSION )
+                .addFileContent( rulesFile )
+                .addFileStamp( libraryJar );
+            for ( String entryPoint : entryPoints )
+            {
+                fingerprint.add( entryPoint );
+            }
+            for ( File inputFile : inputFiles )
+            {
+                fingerprint.addFileStamp( inputFile );
+            }
+            if ( mainDexClassesList.isFile() && fingerprint.matches( stampFile ) )
+            {
+                getLog().info( "Main dex classes list is up to date : " + mainDexClassesList );
+                return mainDexClassesList;
+            }
+
+            getLog().info( "Generating main dex classes list : " + mainDexClassesList );
+            final long start = System.currentTimeMillis();
+            final SortedSet< String > mainDexClasses =
+                new MainDexListBuilder( Runtime.getRuntime().availableProcessors() ).build( inputFiles,
+                    Collections.singletonList( libraryJar ), FileUtils.readFileToString( rulesFile, "UTF-8" ),
+                    entryPoints );
+            FileUtils.writeLines( mainDexClassesList, "UTF-8", mainDexClasses, "\n" );
+            fingerprint.store( stampFile );
+            getLog().info( "Selected " + mainDexClasses.size() + " classes for the main dex in "
+                + ( System.currentTimeMillis() - start ) + " ms" );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( "Failed to generate main dex classes list " + mainDexClassesList, e );
+        }
+        return mainDexClassesList;
+    }
+
+    /**
+     * Collects the classes declared in the manifest which the platform instantiates before the secondary dex files
+     * are installed, e.g. the application and the content providers.
+     *
+     * @param manifestFile the manifest of the application
+     * @return the fully qualified class names
+     * @throws MojoExecutionException if the manifest cannot be read
+     */
+    private List< String > extractMainDexEntryPoints( File manifestFile ) throws MojoExecutionException
+    {
+        final List< String > entryPoints = new ArrayList< String >();
+        if ( ! manifestFile.isFile() )
+        {
+            return entryPoints;
+        }
+        final String packageName = extractPackageNameFromAndroidManifest( manifestFile );
+        final JXPathContext context;
+        try
+        {
+            context = JXPathContext.newContext( new DocumentContainer( manifestFile.toURI().toURL() ) );
+        }
+        catch ( MalformedURLException e )
+        {
+            throw new MojoExecutionException( "Error while reading the main dex entry points from " + manifestFile,
+                e );
+        }
+        for ( String path : MAIN_DEX_MANIFEST_ENTRY_POINTS )
+        {
+            final Iterator< ? > names = context.iterate( path );
+            while ( names.hasNext() )
+            {
+                final String name = String.valueOf( names.next() ).trim();
+                if ( name.startsWith( "." ) )
+                {
+                    entryPoints.add( packageName + name );
+                }
+                else if ( name.indexOf( '.' ) < 0 )
+                {
+                    entryPoints.add( packageName + "." + name );
+                }
+                else
+                {
+                    entryPoints.add( name );
+                }
+            }
+        }
+        return entryPoints;
+    }
+
     /**
      * @return
      * @throws MojoExecutionException
@@ -29,7 +29,9 @@ import com.simpligility.maven.plugins.android.ExecutionException;
 import com.simpligility.maven.plugins.android.IncludeExcludeSet;
 import com.simpligility.maven.plugins.android.common.AaptCommandBuilder;
 import com.simpligility.maven.plugins.android.common.AndroidExtension;
+import com.simpligility.maven.plugins.android.common.ApkV2Signer;
 import com.simpligility.maven.plugins.android.common.NativeHelper;
+import com.simpligility.maven.plugins.android.common.ZipAligner;
 import com.simpligility.maven.plugins.android.config.ConfigHandler;
 import com.simpligility.maven.plugins.android.config.ConfigPojo;
 import com.simpligility.maven.plugins.android.config.PullParameter;
@@ -59,6 +61,7 @@ import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -102,6 +105,7 @@ public class ApkMojo extends AbstractAndroidMojo
      * <pre>
      * &lt;sign&gt;
      *     &lt;debug&gt;auto&lt;/debug&gt;
+     *     &lt;v2&gt;false&lt;/v2&gt;
      * &lt;/sign&gt;
      * </pre>
      * <p>Valid values for <code>&lt;debug&gt;</code> are:
@@ -113,7 +117,10 @@ public class ApkMojo extends AbstractAndroidMojo
      * other keystores is not yet implemented. See
      * <a href="http://code.google.com/p/maven-android-plugin/issues/detail?id=2">Issue 2</a>.)
      * </ul></p>
-     * <p>Can also be configured from command-line with parameter <code>-Dandroid.sign.debug</code>.</p>
+     * <p>With <code>&lt;v2&gt;true&lt;/v2&gt;</code> the debug signed apk is additionally signed with APK Signature
+     * Scheme v2 while it is aligned.</p>
+     * <p>Can also be configured from command-line with parameters <code>-Dandroid.sign.debug</code> and
+     * <code>-Dandroid.sign.v2</code>.</p>
      */
     @Parameter
     private Sign sign;
@@ -126,6 +133,14 @@ public class ApkMojo extends AbstractAndroidMojo
     @Parameter( property = "android.sign.debug", defaultValue = "auto", readonly = true )
     private String signDebug;
 
+    /**
+     * <p>Parameter designed to pick up <code>-Dandroid.sign.v2</code> in case there is no pom with a
+     * <code>&lt;sign&gt;</code> configuration tag.</p>
+     * <p>Corresponds to {@link com.simpligility.maven.plugins.android.configuration.Sign#v2}.</p>
+     */
+    @Parameter( property = "android.sign.v2", defaultValue = "false", readonly = true )
+    private Boolean signV2;
+
     /**
      * <p>Rewrite the manifest so that all of its instrumentation components target the given package.
      * This value will be passed on to the aapt parameter --rename-instrumentation-target-package.
@@ -228,6 +243,34 @@ public class ApkMojo extends AbstractAndroidMojo
     @PullParameter( defaultValue = "arm-linux-androideabi-4.4.3" )
     private String apkNativeToolchain;
 
+    /**
+     * Defines whether native libraries are stripped with the strip tool of the NDK toolchain matching their
+     * architecture before they are added to the APK. Stripped libraries are cached in
+     * <code>target/stripped-native-libs</code>, so only changed libraries are stripped again.
+     */
+    @Parameter( property = "android.apk.stripNativeLibraries" )
+    @PullParameter( defaultValue = "false" )
+    private Boolean apkStripNativeLibraries;
+
+    /**
+     * Defines whether native libraries are stored uncompressed and aligned to page boundaries in the APK, so the
+     * platform can load them directly from the APK instead of extracting them on installation. This needs
+     * <code>android:extractNativeLibs="false"</code> in the manifest, which the manifest-update goal sets with
+     * <code>android.manifest.extractNativeLibs</code>.
+     */
+    @Parameter( property = "android.apk.uncompressedNativeLibraries" )
+    @PullParameter( defaultValue = "false" )
+    private Boolean apkUncompressedNativeLibraries;
+
+    /**
+     * Defines whether the APK is aligned like the zipalign tool does, in one more pass rewriting the APK after it is
+     * created. Enable it together with the zipalign goal, which then only verifies the alignment instead of forking
+     * zipalign, as long as the APK is not changed in between, for example by jarsigner. Defaults to "false".
+     */
+    @Parameter( property = "android.apk.align" )
+    @PullParameter( defaultValue = "false" )
+    private Boolean apkAlign;
+
     /**
      * Specifies the final name of the library output by the build (this allows
      */
@@ -307,6 +350,13 @@ public class ApkMojo extends AbstractAndroidMojo
 
     private static final String CLASSES = "classes";
 
+    /**
+     * The alias and password of the debug key the SDK creates, as used by ApkBuilder.
+     */
+    private static final String DEBUG_KEY_ALIAS = "AndroidDebugKey";
+
+    private static final String DEBUG_KEYSTORE_PASSWORD = "android";
+
     /**
      * <p>Default hardware architecture for native library dependencies (with {@code &lt;type>so&lt;/type>})
      * without a classifier.</p>
@@ -427,6 +477,60 @@ public class ApkMojo extends AbstractAndroidMojo
                 throw new MojoExecutionException( "Could not add META-INF resources.", e );
             }
         }
+
+        final boolean signWithSchemeV2 = signWithDebugKeyStore && isSignWithSchemeV2();
+        if ( apkAlign || apkUncompressedNativeLibraries || signWithSchemeV2 )
+        {
+            alignApk( outputFile, signWithSchemeV2 ? createDebugSchemeV2Signer() : null );
+        }
+    }
+
+    /**
+     * Rewrites the APK with aligned entries, optionally with uncompressed, page aligned native libraries. The content
+     * of the entries does not change, so the signature of a debug signed APK stays valid.
+     *
+     * @param signer signs the rewritten APK with APK Signature Scheme v2, <code>null</code> to not sign it
+     */
+    private void alignApk( File apkFile, ApkV2Signer signer ) throws MojoExecutionException
+    {
+        getLog().debug( "Aligning " + apkFile + ( apkUncompressedNativeLibraries
+                ? " with uncompressed native libraries" : "" ) + ( signer != null
+                ? " and signing it with APK Signature Scheme v2" : "" ) );
+        final File alignedApkFile = new File( apkFile.getParentFile(), apkFile.getName() + ".aligned" );
+        try
+        {
+            new ZipAligner( apkUncompressedNativeLibraries ).align( apkFile, alignedApkFile, signer );
+            FileUtils.forceDelete( apkFile );
+            FileUtils.moveFile( alignedApkFile, apkFile );
+        }
+        catch ( IOException e )
+        {
+            FileUtils.deleteQuietly( alignedApkFile );
+            throw new MojoExecutionException( "Could not align " + apkFile, e );
+        }
+        catch ( GeneralSecurityException e )
+        {
+            FileUtils.deleteQuietly( alignedApkFile );
+            throw new MojoExecutionException( "Could not sign " + apkFile + " with APK Signature Scheme v2", e );
+        }
+    }
+
+    private ApkV2Signer createDebugSchemeV2Signer() throws MojoExecutionException
+    {
+        try
+        {
+            return ApkV2Signer.fromKeyStore( new File( ApkBuilder.getDebugKeystore() ), DEBUG_KEYSTORE_PASSWORD,
+                    DEBUG_KEY_ALIAS, DEBUG_KEYSTORE_PASSWORD );
+        }
+        catch ( ApkCreationException | IOException | GeneralSecurityException e )
+        {
+            throw new MojoExecutionException( "Could not load the debug key for APK Signature Scheme v2", e );
+        }
+    }
+
+    private boolean isSignWithSchemeV2()
+    {
+        return sign != null && sign.getV2() != null ? sign.getV2() : signV2;
     }
 
     private void addMetaInf( File outputFile, ArrayList<File> jarFiles ) throws IOException
@@ -1079,15 +1183,29 @@ public class ApkMojo extends AbstractAndroidMojo
     private Collection<File> getNativeLibraryFolders() throws MojoExecutionException
     {
         final List<File> natives = new ArrayList<File>();
+        final NativeLibraryStager stager = new NativeLibraryStager( getLog(),
+                apkStripNativeLibraries ? getAndroidNdk() : null, new File( targetDirectory, "stripped-native-libs" ) );
 
         if ( nativeLibrariesDirectory.exists() )
         {
             // If we have prebuilt native libs then copy them over to the native output folder.
             // NB they will be copied over the top of any native libs generated as part of the NdkBuildMojo
-            copyLocalNativeLibraries( nativeLibrariesDirectory, ndkOutputDirectory );
+            copyLocalNativeLibraries( nativeLibrariesDirectory, ndkOutputDirectory, stager );
         }
 
         final Set<Artifact> artifacts = getNativeLibraryArtifacts();
+
+        // Resolve the native library dependencies as one batch, so they are downloaded concurrently.
+        final List<Artifact> nativeLibraries = new ArrayList<Artifact>();
+        for ( Artifact artifact : artifacts )
+        {
+            if ( !APKLIB.equals( artifact.getType() ) && !AAR.equals( artifact.getType() ) )
+            {
+                nativeLibraries.add( artifact );
+            }
+        }
+        getArtifactResolverHelper().resolveArtifacts( nativeLibraries );
+
         for ( Artifact resolvedArtifact : artifacts )
         {
             if ( APKLIB.equals( resolvedArtifact.getType() ) || AAR.equals( resolvedArtifact.getType() ) )
@@ -1105,18 +1223,21 @@ public class ApkMojo extends AbstractAndroidMojo
                         ndkArchitecture, nativeLibrariesDependenciesHardwareArchitectureDefault ) )
                 {
                     // If the artifact is a native lib then copy it into the native libs output folder.
-                    copyNativeLibraryArtifact( resolvedArtifact, ndkOutputDirectory, ndkArchitecture );
+                    copyNativeLibraryArtifact( resolvedArtifact, ndkOutputDirectory, ndkArchitecture, stager );
                 }
             }
         }
+        stager.stage();
 
         if ( apkDebug )
         {
             // Copy the gdbserver binary into the native libs output folder (for each architecture).
+            final NativeLibraryStager gdbServerStager = new NativeLibraryStager( getLog(), null, null );
             for ( String ndkArchitecture : AndroidNdk.NDK_ARCHITECTURES )
             {
-                copyGdbServer( ndkOutputDirectory, ndkArchitecture );
+                copyGdbServer( ndkOutputDirectory, ndkArchitecture, gdbServerStager );
             }
+            gdbServerStager.stage();
         }
 
         if ( ndkOutputDirectory.exists() )
@@ -1140,40 +1261,35 @@ public class ApkMojo extends AbstractAndroidMojo
 
     private void copyNativeLibraryArtifact( Artifact artifact,
                                             File destinationDirectory,
-                                            String ndkArchitecture ) throws MojoExecutionException
+                                            String ndkArchitecture,
+                                            NativeLibraryStager stager ) throws MojoExecutionException
     {
 
         final File artifactFile = getArtifactResolverHelper().resolveArtifactToFile( artifact );
-        try
+        final String artifactId = artifact.getArtifactId();
+        String filename = artifactId.startsWith( "lib" )
+                ? artifactId + ".so"
+                : "lib" + artifactId + ".so";
+        if ( ndkFinalLibraryName != null
+                && artifact.getFile().getName().startsWith( "lib" + ndkFinalLibraryName ) )
         {
-            final String artifactId = artifact.getArtifactId();
-            String filename = artifactId.startsWith( "lib" )
-                    ? artifactId + ".so"
-                    : "lib" + artifactId + ".so";
-            if ( ndkFinalLibraryName != null
-                    && artifact.getFile().getName().startsWith( "lib" + ndkFinalLibraryName ) )
-            {
-                // The artifact looks like one we built with the NDK in this module
-                // preserve the name from the NDK build
-                filename = artifact.getFile().getName();
-            }
-
-            final File folder = new File( destinationDirectory, ndkArchitecture );
-            final File file = new File( folder, filename );
-            getLog().debug( "Copying native dependency " + artifactId + " (" + artifact.getGroupId() + ") to " + file );
-            FileUtils.copyFile( artifactFile, file );
-        }
-        catch ( IOException e )
-        {
-            throw new MojoExecutionException( "Could not copy native dependency.", e );
+            // The artifact looks like one we built with the NDK in this module
+            // preserve the name from the NDK build
+            filename = artifact.getFile().getName();
         }
+
+        final File folder = new File( destinationDirectory, ndkArchitecture );
+        final File file = new File( folder, filename );
+        getLog().debug( "Staging native dependency " + artifactId + " (" + artifact.getGroupId() + ") to " + file );
+        stager.add( artifactFile, file );
     }
 
 
     /**
      * Copy the Ndk GdbServer into the architecture output folder if the folder exists but the GdbServer doesn't.
      */
-    private void copyGdbServer( File destinationDirectory, String architecture ) throws MojoExecutionException
+    private void copyGdbServer( File destinationDirectory, String architecture, NativeLibraryStager stager )
+            throws MojoExecutionException
     {
 
         try
@@ -1187,7 +1303,7 @@ public class ApkMojo extends AbstractAndroidMojo
                 if ( ! destFile.exists() )
                 {
                     getLog().debug( "Copying gdbServer to " + destFile );
-                    FileUtils.copyFile( gdbServerFile, destFile );
+                    stager.add( gdbServerFile, destFile );
                 }
                 else
                 {
@@ -1203,28 +1319,32 @@ public class ApkMojo extends AbstractAndroidMojo
 
     }
 
-    private void copyLocalNativeLibraries( final File localNativeLibrariesDirectory, final File destinationDirectory )
-            throws MojoExecutionException
+    private void copyLocalNativeLibraries( final File localNativeLibrariesDirectory, final File destinationDirectory,
+                                           NativeLibraryStager stager )
     {
         getLog().debug( "Copying existing native libraries from " + localNativeLibrariesDirectory );
-        try
-        {
-
-            IOFileFilter libSuffixFilter = FileFilterUtils.suffixFileFilter( ".so" );
 
-            IOFileFilter gdbserverNameFilter = FileFilterUtils.nameFileFilter( "gdbserver" );
-            IOFileFilter orFilter = FileFilterUtils.or( libSuffixFilter, gdbserverNameFilter );
+        IOFileFilter libSuffixFilter = FileFilterUtils.suffixFileFilter( ".so" );
 
-            IOFileFilter libFiles = FileFilterUtils.and( FileFileFilter.FILE, orFilter );
-            FileFilter filter = FileFilterUtils.or( DirectoryFileFilter.DIRECTORY, libFiles );
-            org.apache.commons.io.FileUtils
-                    .copyDirectory( localNativeLibrariesDirectory, destinationDirectory, filter );
+        IOFileFilter gdbserverNameFilter = FileFilterUtils.nameFileFilter( "gdbserver" );
+        IOFileFilter orFilter = FileFilterUtils.or( libSuffixFilter, gdbserverNameFilter );
 
-        }
-        catch ( IOException e )
+        IOFileFilter libFiles = FileFilterUtils.and( FileFileFilter.FILE, orFilter );
+        final String root = localNativeLibrariesDirectory.getAbsolutePath();
+        for ( File file : FileUtils.listFilesAndDirs( localNativeLibrariesDirectory, libFiles,
+                DirectoryFileFilter.DIRECTORY ) )
         {
-            getLog().error( "Could not copy native libraries: " + e.getMessage(), e );
-            throw new MojoExecutionException( "Could not copy native dependency.", e );
+            final String relativePath = file.getAbsolutePath().substring( root.length() );
+            final File destination = new File( destinationDirectory, relativePath );
+            if ( file.isDirectory() )
+            {
+                // architecture folders are created even without libraries, gdbserver is copied into existing ones
+                destination.mkdirs();
+            }
+            else
+            {
+                stager.add( file, destination );
+            }
         }
     }
 
@@ -0,0 +1,190 @@
+package com.simpligility.maven.plugins.android.phase09package;
+
+import com.simpligility.maven.plugins.android.AndroidNdk;
+import com.simpligility.maven.plugins.android.CommandExecutor;
+import com.simpligility.maven.plugins.android.ExecutionException;
+import com.simpligility.maven.plugins.android.common.FileHashHelper;
+import com.simpligility.maven.plugins.android.common.Fingerprint;
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Copies native libraries into the native output folder of the APK.
+ * <p>
+ * Libraries are copied in parallel, and only if the destination differs from the source in size or modification
+ * time, so unchanged libraries are not copied again on every build. Optionally libraries are stripped with the strip
+ * tool of the NDK toolchain matching their architecture. Stripped libraries are cached by the hash of the unstripped
+ * library, so a library is only stripped again when it changed.
+ */
+final class NativeLibraryStager
+{
+    private static final String NATIVE_LIBRARY_SUFFIX = ".so";
+
+    private final Log log;
+    private final AndroidNdk ndk;
+    private final File stripCacheDirectory;
+
+    /**
+     * Destinations mapped to their sources, a library added later for the same destination replaces the earlier one.
+     */
+    private final Map< File, File > libraries = new LinkedHashMap< File, File >();
+
+    /**
+     * @param log                 the log
+     * @param ndk                 the NDK providing the strip tools, <code>null</code> to copy libraries unstripped
+     * @param stripCacheDirectory the directory caching the stripped libraries
+     */
+    NativeLibraryStager( Log log, AndroidNdk ndk, File stripCacheDirectory )
+    {
+        this.log = log;
+        this.ndk = ndk;
+        this.stripCacheDirectory = stripCacheDirectory;
+    }
+
+    /**
+     * @param source      the library to copy
+     * @param destination the destination within an architecture folder, e.g. <code>libs/armeabi/libfoo.so</code>
+     */
+    void add( File source, File destination )
+    {
+        libraries.put( destination, source );
+    }
+
+    /**
+     * Copy all added libraries.
+     *
+     * @throws MojoExecutionException if a library cannot be stripped or copied
+     */
+    void stage() throws MojoExecutionException
+    {
+        if ( libraries.isEmpty() )
+        {
+            return;
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min( libraries.size(), Runtime.getRuntime().availableProcessors() ) );
+        final List< Future< Boolean > > results = new ArrayList< Future< Boolean > >();
+        try
+        {
+            for ( final Map.Entry< File, File > library : libraries.entrySet() )
+            {
+                results.add( executor.submit( new Callable< Boolean >()
+                {
+                    @Override
+                    public Boolean call() throws Exception
+                    {
+                        return stage( library.getValue(), library.getKey() );
+                    }
+                } ) );
+            }
+
+            int copied = 0;
+            for ( Future< Boolean > result : results )
+            {
+                if ( result.get() )
+                {
+                    copied++;
+                }
+            }
+            log.debug( "Copied " + copied + " of " + libraries.size() + " native libraries, the others are"
+                    + " up to date" );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException( "Interrupted while copying native libraries", e );
+        }
+        catch ( java.util.concurrent.ExecutionException e )
+        {
+            if ( e.getCause() instanceof MojoExecutionException )
+            {
+                throw ( MojoExecutionException ) e.getCause();
+            }
+            throw new MojoExecutionException( "Could not copy native dependency: " + e.getCause().getMessage(),
+                    e.getCause() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+        libraries.clear();
+    }
+
+    /**
+     * @return true if the library was copied, false if the destination was up to date
+     */
+    private boolean stage( File source, File destination ) throws IOException, MojoExecutionException
+    {
+        File input = source;
+        if ( ndk != null && source.getName().endsWith( NATIVE_LIBRARY_SUFFIX ) )
+        {
+            input = strip( source, destination );
+        }
+
+        if ( destination.isFile() && destination.length() == input.length()
+                && destination.lastModified() == input.lastModified() )
+        {
+            return false;
+        }
+        log.debug( "Copying native library " + source + " to " + destination );
+        // preserves the modification time, which is what makes the next build skip the copy
+        FileUtils.copyFile( input, destination );
+        return true;
+    }
+
+    /**
+     * @return the stripped library from the cache, stripped first if it is not cached yet
+     */
+    private File strip( File source, File destination ) throws IOException, MojoExecutionException
+    {
+        final File stripper = ndk.getStripper( ndk.getToolchain( destination ) );
+        final String key = new Fingerprint()
+                .add( stripper.getAbsolutePath() )
+                .add( FileHashHelper.digestHex( source, "SHA-256" ) )
+                .getValue();
+        final File stripped = new File( stripCacheDirectory, key + NATIVE_LIBRARY_SUFFIX );
+        if ( stripped.isFile() )
+        {
+            return stripped;
+        }
+
+        stripCacheDirectory.mkdirs();
+        final File temporary = File.createTempFile( key, ".tmp", stripCacheDirectory );
+        final CommandExecutor executor = CommandExecutor.Factory.createDefaultCommmandExecutor();
+        executor.setLogger( log );
+        try
+        {
+            log.debug( "Stripping native library " + source );
+            executor.executeCommand( stripper.getAbsolutePath(), new ArrayList< String >( Arrays.asList(
+                    "--strip-unneeded", "-o", temporary.getAbsolutePath(), source.getAbsolutePath() ) ), false );
+        }
+        catch ( ExecutionException e )
+        {
+            FileUtils.deleteQuietly( temporary );
+            throw new MojoExecutionException( "Could not strip native library " + source, e );
+        }
+        if ( ! temporary.renameTo( stripped ) )
+        {
+            FileUtils.deleteQuietly( temporary );
+            if ( ! stripped.isFile() )
+            {
+                throw new IOException( "Could not move stripped native library to " + stripped );
+            }
+        }
+        return stripped;
+    }
+}
@@ -12,12 +12,14 @@ package com.simpligility.maven.plugins.android.phase_prebuild;
 
 import com.simpligility.maven.plugins.android.common.AndroidExtension;
 import com.simpligility.maven.plugins.android.common.ArtifactResolverHelper;
+import com.simpligility.maven.plugins.android.common.DependencyGraphCache;
 import com.simpligility.maven.plugins.android.common.DependencyResolver;
 import com.simpligility.maven.plugins.android.common.PomConfigurationHelper;
 import com.simpligility.maven.plugins.android.common.UnpackedLibHelper;
 import org.apache.maven.AbstractMavenLifecycleParticipant;
 import org.apache.maven.MavenExecutionException;
 import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.artifact.resolver.ArtifactResolver;
 import org.apache.maven.execution.MavenSession;
 import org.apache.maven.model.Dependency;
@@ -32,9 +34,16 @@ import org.codehaus.plexus.logging.Logger;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
@@ -101,110 +110,198 @@ public final class ClasspathModifierLifecycleParticipant extends AbstractMavenLi
         log.debug( "" );
 
         log.debug( "CurrentProject=" + session.getCurrentProject() );
-        final List<MavenProject> projects = session.getProjects();
+        final List<MavenProject> projects = new ArrayList<MavenProject>();
+        for ( MavenProject project : session.getProjects() )
+        {
+            if ( AndroidExtension.isAndroidPackaging( project.getPackaging() ) )
+            {
+                projects.add( project );
+            }
+        }
         final DependencyResolver dependencyResolver = new DependencyResolver( log, dependencyGraphBuilder );
-        final ArtifactResolverHelper artifactResolverHelper = new ArtifactResolverHelper( artifactResolver, log );
+        final ArtifactResolverHelper artifactResolverHelper = new ArtifactResolverHelper( artifactResolver, log,
+                Collections.<ArtifactRepository>emptyList(), DependencyGraphCache.forSession( session ) );
 
-        for ( MavenProject project : projects )
+        // Resolving the dependency graph of a project reads the models of the reactor projects it depends on, so
+        // the graphs are all resolved concurrently first, while no model changes. The models are modified after,
+        // one project at a time in reactor order. The system scoped dependencies added are not transitive, so the
+        // graphs resolved before are the ones a sequential run resolves.
+        final List<Set<Artifact>> projectArtifacts = resolveProjectDependencies( session, projects,
+                dependencyResolver );
+        for ( int i = 0; i < projects.size(); i++ )
         {
-            log.debug( "" );
-            log.debug( "project=" + project.getArtifact() );
-
-            if ( ! AndroidExtension.isAndroidPackaging( project.getPackaging() ) )
+            if ( projectArtifacts.get( i ) != null )
             {
-                continue; // do not modify classpath if not an android project.
+                processProject( projects.get( i ), projectArtifacts.get( i ), artifactResolverHelper );
             }
+        }
 
-            final String unpackedLibsFolder
-                = getMojoConfigurationParameter( project, UNPACKED_LIBS_FOLDER_PARAM, null );
-            final UnpackedLibHelper helper = new UnpackedLibHelper( artifactResolverHelper, project, log,
-                    unpackedLibsFolder == null ? null : new File( unpackedLibsFolder )
-            );
-
-            final Set<Artifact> artifacts;
-
-            // If there is an extension ClassRealm loaded for this project then use that
-            // as the ContextClassLoader so that Wagon extensions can be used to resolves dependencies.
-            final ClassLoader projectClassLoader = ( project.getClassRealm() != null )
-                    ? project.getClassRealm()
-                    : Thread.currentThread().getContextClassLoader();
+        if ( addedJarFromLibs )
+        {
+            log.warn(
+                    "Transitive dependencies should really be provided by Maven dependency management.\n"
+        + "          We suggest you to ask the above providers to package their component properly.\n"
+        + "          Things may break at compile and/or runtime due to multiple copies of incompatible libraries." );
+        }
+        log.debug( "" );
+        log.debug( "ClasspathModifierLifecycleParticipant#afterProjectsRead - finish" );
+    }
 
-            final ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
-            try
+    /**
+     * Resolves the dependencies of the projects concurrently.
+     *
+     * @return the dependencies of each project, in the order of the projects, <code>null</code> for the projects
+     *         whose dependencies could not be resolved
+     */
+    private List<Set<Artifact>> resolveProjectDependencies( final MavenSession session,
+                                                            List<MavenProject> projects,
+                                                            final DependencyResolver dependencyResolver )
+            throws MavenExecutionException
+    {
+        final List<Set<Artifact>> projectArtifacts = new ArrayList<Set<Artifact>>();
+        if ( projects.isEmpty() )
+        {
+            return projectArtifacts;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min( projects.size(), Runtime.getRuntime().availableProcessors() ) );
+        final List<Future<Set<Artifact>>> results = new ArrayList<Future<Set<Artifact>>>();
+        try
+        {
+            for ( final MavenProject project : projects )
             {
-                Thread.currentThread().setContextClassLoader( projectClassLoader );
-                artifacts = dependencyResolver.getProjectDependenciesFor( project, session );
+                results.add( executor.submit( new Callable<Set<Artifact>>()
+                {
+                    @Override
+                    public Set<Artifact> call()
+                    {
+                        final long start = System.currentTimeMillis();
+                        final Set<Artifact> artifacts = resolveProjectDependencies( session, project,
+                                dependencyResolver );
+                        log.debug( "Resolved dependencies of " + project.getArtifact() + " in "
+                                + ( System.currentTimeMillis() - start ) + " ms" );
+                        return artifacts;
+                    }
+                } ) );
             }
-            catch ( DependencyGraphBuilderException e )
+            for ( Future<Set<Artifact>> result : results )
             {
-                // Nothing to do. The resolution failure will be displayed by the standard resolution mechanism.
-                continue;
+                projectArtifacts.add( result.get() );
             }
-            finally
+            return projectArtifacts;
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new MavenExecutionException( "Interrupted while resolving the project dependencies", e );
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof RuntimeException )
             {
-                Thread.currentThread().setContextClassLoader( originalClassLoader );
+                throw ( RuntimeException ) e.getCause();
             }
+            throw new IllegalStateException( e.getCause() );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
 
-            boolean includeFromAar = getMojoConfigurationParameter( project, INCLUDE_FROM_AAR_PARAM,
-                    INCLUDE_FROM_AAR_DEFAULT );
-            boolean includeFromApklib = getMojoConfigurationParameter( project, INCLUDE_FROM_APKLIB_PARAM,
-                    INCLUDE_FROM_APKLIB_DEFAULT );
-            boolean disableConflictingDependenciesWarning = getMojoConfigurationParameter( project,
-                    DISABLE_CONFLICTING_DEPENDENCIES_WARNING_PARAM, DISABLE_CONFLICTING_DEPENDENCIES_WARNING_DEFAULT );
+    /**
+     * @return the dependencies of the project, <code>null</code> if they could not be resolved
+     */
+    private Set<Artifact> resolveProjectDependencies( MavenSession session, MavenProject project,
+                                                      DependencyResolver dependencyResolver )
+    {
+        // If there is an extension ClassRealm loaded for this project then use that
+        // as the ContextClassLoader so that Wagon extensions can be used to resolves dependencies.
+        final ClassLoader projectClassLoader = ( project.getClassRealm() != null )
+                ? project.getClassRealm()
+                : Thread.currentThread().getContextClassLoader();
 
-            log.debug( "projects deps: : " + artifacts );
-            
-            if ( !disableConflictingDependenciesWarning )
-            {
-                ProvidedDependencyChecker checker = new ProvidedDependencyChecker();
-                checker.checkProvidedDependencies( artifacts, log );
-            }
-            
-            for ( Artifact artifact : artifacts )
+        final ClassLoader originalClassLoader = Thread.currentThread().getContextClassLoader();
+        try
+        {
+            Thread.currentThread().setContextClassLoader( projectClassLoader );
+            return dependencyResolver.getProjectDependenciesFor( project, session );
+        }
+        catch ( DependencyGraphBuilderException e )
+        {
+            // Nothing to do. The resolution failure will be displayed by the standard resolution mechanism.
+            return null;
+        }
+        finally
+        {
+            Thread.currentThread().setContextClassLoader( originalClassLoader );
+        }
+    }
+
+    /**
+     * Add the classes of the AAR and APK dependencies of an Android project to its classpath.
+     */
+    private void processProject( MavenProject project, Set<Artifact> artifacts,
+                                 ArtifactResolverHelper artifactResolverHelper ) throws MavenExecutionException
+    {
+        log.debug( "" );
+        log.debug( "project=" + project.getArtifact() );
+
+        final String unpackedLibsFolder
+            = getMojoConfigurationParameter( project, UNPACKED_LIBS_FOLDER_PARAM, null );
+        final UnpackedLibHelper helper = new UnpackedLibHelper( artifactResolverHelper, project, log,
+                unpackedLibsFolder == null ? null : new File( unpackedLibsFolder )
+        );
+
+        boolean includeFromAar = getMojoConfigurationParameter( project, INCLUDE_FROM_AAR_PARAM,
+                INCLUDE_FROM_AAR_DEFAULT );
+        boolean includeFromApklib = getMojoConfigurationParameter( project, INCLUDE_FROM_APKLIB_PARAM,
+                INCLUDE_FROM_APKLIB_DEFAULT );
+        boolean disableConflictingDependenciesWarning = getMojoConfigurationParameter( project,
+                DISABLE_CONFLICTING_DEPENDENCIES_WARNING_PARAM, DISABLE_CONFLICTING_DEPENDENCIES_WARNING_DEFAULT );
+
+        log.debug( "projects deps: : " + artifacts );
+        
+        if ( !disableConflictingDependenciesWarning )
+        {
+            ProvidedDependencyChecker checker = new ProvidedDependencyChecker();
+            checker.checkProvidedDependencies( artifacts, log );
+        }
+        
+        for ( Artifact artifact : artifacts )
+        {
+            final String type = artifact.getType();
+            if ( type.equals( AndroidExtension.AAR ) )
             {
-                final String type = artifact.getType();
-                if ( type.equals( AndroidExtension.AAR ) )
-                {
-                    // An AAR lib contains a classes jar that needs to be added to the classpath.
-                    // Create a placeholder classes.jar and add it to the compile classpath.
-                    // It will replaced with the real classes.jar by GenerateSourcesMojo.
-                    addClassesToClasspath( helper, project, artifact );
+                // An AAR lib contains a classes jar that needs to be added to the classpath.
+                // Create a placeholder classes.jar and add it to the compile classpath.
+                // It will replaced with the real classes.jar by GenerateSourcesMojo.
+                addClassesToClasspath( helper, project, artifact );
 
-                    // An AAR may also contain zero or more internal libs in the libs folder.
-                    // If 'includeLibsJarsFromAar' config param is true then include them too.
-                    if ( includeFromAar )
-                    {
-                        // Add jar files in 'libs' into classpath.
-                        addLibsJarsToClassPath( helper, project, artifact );
-                    }
-                }
-                else if ( type.equals( AndroidExtension.APK ) )
+                // An AAR may also contain zero or more internal libs in the libs folder.
+                // If 'includeLibsJarsFromAar' config param is true then include them too.
+                if ( includeFromAar )
                 {
-                    // The only time that an APK will likely be a dependency is when this an an APK test project.
-                    // So add a placeholder (we cannot resolve the actual dep pre build) to the compile classpath.
-                    // The placeholder will be replaced with the real APK jar later.
-                    addClassesToClasspath( helper, project, artifact );
+                    // Add jar files in 'libs' into classpath.
+                    addLibsJarsToClassPath( helper, project, artifact );
                 }
-                else if ( type.equals( AndroidExtension.APKLIB ) )
+            }
+            else if ( type.equals( AndroidExtension.APK ) )
+            {
+                // The only time that an APK will likely be a dependency is when this an an APK test project.
+                // So add a placeholder (we cannot resolve the actual dep pre build) to the compile classpath.
+                // The placeholder will be replaced with the real APK jar later.
+                addClassesToClasspath( helper, project, artifact );
+            }
+            else if ( type.equals( AndroidExtension.APKLIB ) )
+            {
+                if ( includeFromApklib ) 
                 {
-                    if ( includeFromApklib ) 
-                    {
-                      // Add jar files in 'libs' into classpath.
-                      addLibsJarsToClassPath( helper, project, artifact );
-                    }
+                  // Add jar files in 'libs' into classpath.
+                  addLibsJarsToClassPath( helper, project, artifact );
                 }
             }
         }
-
-        if ( addedJarFromLibs )
-        {
-            log.warn(
-                    "Transitive dependencies should really be provided by Maven dependency management.\n"
-        + "          We suggest you to ask the above providers to package their component properly.\n"
-        + "          Things may break at compile and/or runtime due to multiple copies of incompatible libraries." );
-        }
-        log.debug( "" );
-        log.debug( "ClasspathModifierLifecycleParticipant#afterProjectsRead - finish" );
     }
 
     private String getMojoConfigurationParameter( MavenProject project, String name, String defaultValue )
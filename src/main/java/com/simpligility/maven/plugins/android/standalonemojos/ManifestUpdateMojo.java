@@ -62,6 +62,7 @@ public class ManifestUpdateMojo extends AbstractAndroidMojo
     private static final String ATTR_VERSION_CODE = "android:versionCode";
     private static final String ATTR_SHARED_USER_ID = "android:sharedUserId";
     private static final String ATTR_DEBUGGABLE = "android:debuggable";
+    private static final String ATTR_EXTRACT_NATIVE_LIBS = "android:extractNativeLibs";
 
     // supports-screens attributes
     private static final String ATTR_SCREEN_DENSITY = "android:screenDensity";
@@ -109,6 +110,7 @@ public class ManifestUpdateMojo extends AbstractAndroidMojo
      * <code>android:versionCode</code> on the <code>manifest</code> element.
      * <code>android:sharedUserId</code> on the <code>manifest</code> element.
      * <code>android:debuggable</code> on the <code>application</code> element.
+     * <code>android:extractNativeLibs</code> on the <code>application</code> element.
      * </p>
      * <p>
      * Moreover, you may specify custom values for the <code>supports-screens</code> and
@@ -141,6 +143,7 @@ public class ManifestUpdateMojo extends AbstractAndroidMojo
      *             &lt;versionCodeUpdateFromVersion&gt;true|false&lt;/versionCodeUpdateFromVersion&gt;
      *             &lt;sharedUserId&gt;anId&lt;/sharedUserId&gt;
      *             &lt;debuggable&gt;true|false&lt;/debuggable&gt;
+     *             &lt;extractNativeLibs&gt;true|false&lt;/extractNativeLibs&gt;
      *
      *             &lt;supports-screens&gt;
      *               &lt;anyDensity&gt;true&lt;/anyDensity&gt;
@@ -241,6 +244,16 @@ public class ManifestUpdateMojo extends AbstractAndroidMojo
     @Parameter( property = "android.manifest.debuggable" )
     protected Boolean manifestDebuggable;
 
+    /**
+     * Update the <code>android:extractNativeLibs</code> attribute with the specified parameter. Set it to false
+     * when the native libraries are stored uncompressed in the APK (see
+     * <code>android.apk.uncompressedNativeLibraries</code>), so that the device loads them directly from the APK
+     * instead of extracting them on installation. Exposed via the project property
+     * <code>android.manifest.extractNativeLibs</code>.
+     */
+    @Parameter( property = "android.manifest.extractNativeLibs" )
+    protected Boolean manifestExtractNativeLibs;
+
     /**
      * For a given provider (named by <code>android:name</code> update the <code>android:authorities</code>
      * attribute for the provider. Exposed via the project property <code>android.manifest.providerAuthorities</code>.
@@ -267,6 +280,7 @@ public class ManifestUpdateMojo extends AbstractAndroidMojo
     private Boolean parsedVersionCodeUpdateFromVersion;
     private String parsedSharedUserId;
     private Boolean parsedDebuggable;
+    private Boolean parsedExtractNativeLibs;
     private SupportsScreens parsedSupportsScreens;
     private List<CompatibleScreen> parsedCompatibleScreens;
     private Properties parsedProviderAuthorities;
@@ -303,6 +317,7 @@ public class ManifestUpdateMojo extends AbstractAndroidMojo
         
         getLog().debug( "    sharedUserId=" + parsedSharedUserId );
         getLog().debug( "    debuggable=" + parsedDebuggable );
+        getLog().debug( "    extractNativeLibs=" + parsedExtractNativeLibs );
         getLog().debug( "    providerAuthorities: " + parsedProviderAuthorities );
         getLog().debug( "    supports-screens: " + ( parsedSupportsScreens == null ? "not set" : "set" ) );
         getLog().debug( "    compatible-screens: " + ( parsedCompatibleScreens == null ? "not set" : "set" ) );
@@ -416,6 +431,14 @@ public class ManifestUpdateMojo extends AbstractAndroidMojo
             {
                 parsedDebuggable = manifestDebuggable;
             }
+            if ( manifest.getExtractNativeLibs() != null )
+            {
+                parsedExtractNativeLibs = manifest.getExtractNativeLibs();
+            }
+            else
+            {
+                parsedExtractNativeLibs = manifestExtractNativeLibs;
+            }
             if ( manifest.getSupportsScreens() != null )
             {
                 parsedSupportsScreens = manifest.getSupportsScreens();
@@ -460,6 +483,7 @@ public class ManifestUpdateMojo extends AbstractAndroidMojo
             parsedApplicationTheme = manifestApplicationTheme;
             parsedSharedUserId = manifestSharedUserId;
             parsedDebuggable = manifestDebuggable;
+            parsedExtractNativeLibs = manifestExtractNativeLibs;
             parsedSupportsScreens = manifestSupportsScreens;
             parsedCompatibleScreens = manifestCompatibleScreens;
             parsedProviderAuthorities = manifestProviderAuthorities;
@@ -635,6 +659,27 @@ public class ManifestUpdateMojo extends AbstractAndroidMojo
             }
         }
 
+        if ( parsedExtractNativeLibs != null )
+        {
+            NodeList appElems = manifestElement.getElementsByTagName( ELEM_APPLICATION );
+            for ( int i = 0; i < appElems.getLength(); ++ i )
+            {
+                Node node = appElems.item( i );
+                if ( node.getNodeType() == Node.ELEMENT_NODE )
+                {
+                    Element element = ( Element ) node;
+                    Attr extractNativeLibsAttrib = element.getAttributeNode( ATTR_EXTRACT_NATIVE_LIBS );
+                    if ( extractNativeLibsAttrib == null || parsedExtractNativeLibs != BooleanUtils
+                            .toBoolean( extractNativeLibsAttrib.getValue() ) )
+                    {
+                        getLog().info( "Setting " + ATTR_EXTRACT_NATIVE_LIBS + " to " + parsedExtractNativeLibs );
+                        element.setAttribute( ATTR_EXTRACT_NATIVE_LIBS, String.valueOf( parsedExtractNativeLibs ) );
+                        dirty = true;
+                    }
+                }
+            }
+        }
+
         if ( parsedSupportsScreens != null )
         {
             boolean madeDirty = performSupportScreenModification( doc, manifestElement );
@@ -734,6 +779,11 @@ public class ManifestUpdateMojo extends AbstractAndroidMojo
         project.getProperties().setProperty( "android.manifest.versionCodeUpdateFromVersion",
                 String.valueOf( parsedVersionCodeUpdateFromVersion ) );
         project.getProperties().setProperty( "android.manifest.debuggable", String.valueOf( parsedDebuggable ) );
+        if ( parsedExtractNativeLibs != null )
+        {
+            project.getProperties().setProperty( "android.manifest.extractNativeLibs",
+                    String.valueOf( parsedExtractNativeLibs ) );
+        }
         if ( parsedSharedUserId != null )
         {
             project.getProperties().setProperty( "android.manifest.sharedUserId", parsedSharedUserId );
@@ -27,6 +27,7 @@ import com.simpligility.maven.plugins.android.AbstractAndroidMojo;
 import com.simpligility.maven.plugins.android.DeviceCallback;
 import com.simpligility.maven.plugins.android.common.DeviceHelper;
 import com.simpligility.maven.plugins.android.common.LogSyncProgressMonitor;
+import com.simpligility.maven.plugins.android.common.ParallelSyncTransfer;
 import com.simpligility.maven.plugins.android.config.ConfigHandler;
 import com.simpligility.maven.plugins.android.config.ConfigPojo;
 import com.simpligility.maven.plugins.android.config.PullParameter;
@@ -41,6 +42,10 @@ import org.apache.maven.plugins.annotations.Parameter;
 
 import java.io.File;
 import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Copy file or directory from all the attached (or specified)
@@ -58,6 +63,8 @@ public class PullMojo extends AbstractAndroidMojo
      * &lt;pull&gt;
      *     &lt;source&gt;path&lt;/source&gt;
      *     &lt;destination&gt;path&lt;/destination&gt;
+     *     &lt;incremental&gt;true|false&lt;/incremental&gt;
+     *     &lt;threads&gt;4&lt;/threads&gt;
      * &lt;/pull&gt;
      * </pre>
      * <p>The parameters can also be configured as property in the pom or settings file
@@ -102,6 +109,26 @@ public class PullMojo extends AbstractAndroidMojo
     @PullParameter( required = true )
     private String parsedDestination;
 
+    /**
+     * When pulling a directory, only pull files that are missing locally or whose size or modification time differ
+     * from the remote file. Pulled files get the modification time of the remote file, which the device reports
+     * with minute precision.
+     */
+    @Parameter( property = "android.pull.incremental" )
+    private Boolean pullIncremental;
+
+    @PullParameter( defaultValue = "false" )
+    private Boolean parsedIncremental;
+
+    /**
+     * The number of sync connections used in parallel to pull the files of a directory from each device.
+     */
+    @Parameter( property = "android.pull.threads" )
+    private Integer pullThreads;
+
+    @PullParameter( defaultValue = "4" )
+    private Integer parsedThreads;
+
     public void execute() throws MojoExecutionException, MojoFailureException
     {
 
@@ -118,7 +145,6 @@ public class PullMojo extends AbstractAndroidMojo
                 String message = "";
                 try
                 {
-                    SyncService syncService = device.getSyncService();
                     FileListingService fileListingService = device.getFileListingService();
 
                     FileEntry sourceFileEntry = getFileEntry( parsedSource, fileListingService );
@@ -133,24 +159,7 @@ public class PullMojo extends AbstractAndroidMojo
                             destinationDir.mkdirs();
                             destinationDir.mkdir();
                         }
-                        String destinationDirPath = destinationDir.getAbsolutePath();
-
-                        FileEntry[] fileEntries;
-                        if ( parsedDestination.endsWith( File.separator ) )
-                        {
-                            // pull source directory directly
-                            fileEntries = new FileEntry[]{ sourceFileEntry };
-                        }
-                        else
-                        {
-                            // pull the children of source directory only
-                            fileEntries = fileListingService.getChildren( sourceFileEntry, true, null );
-                        }
-
-                        message = deviceLogLinePrefix + "Pull of " + parsedSource + " to " + destinationDirPath 
-                                + " from ";
-
-                        syncService.pull( fileEntries, destinationDirPath, new LogSyncProgressMonitor( getLog() ) );
+                        pullDirectory( device, fileListingService, sourceFileEntry, destinationDir );
                     }
                     else
                     {
@@ -174,6 +183,7 @@ public class PullMojo extends AbstractAndroidMojo
                             destinationFileName = FilenameUtils.getName( parsedDestination );
                         }
 
+                        SyncService syncService = device.getSyncService();
                         File destinationFile = new File( parentDir, destinationFileName );
                         String destinationFilePath = destinationFile.getAbsolutePath();
                         message = deviceLogLinePrefix + "Pull of " + parsedSource + " to " + destinationFilePath 
@@ -181,9 +191,8 @@ public class PullMojo extends AbstractAndroidMojo
 
                         syncService.pullFile( sourceFileEntry, destinationFilePath,
                                 new LogSyncProgressMonitor( getLog() ) );
+                        getLog().info( message + " successful." );
                     }
-
-                    getLog().info( message + " successful." );
                 }
                 catch ( SyncException e )
                 {
@@ -205,6 +214,149 @@ public class PullMojo extends AbstractAndroidMojo
         } );
     }
 
+    /**
+     * Pulls all files below a remote directory, spread over several sync connections. In incremental mode files that
+     * are already present locally with the same size and modification time are skipped.
+     *
+     * @param device             the device to pull from
+     * @param fileListingService the file listing of the device
+     * @param sourceFileEntry    the remote directory
+     * @param destinationDir     the local directory to pull to
+     * @throws MojoExecutionException if listing or pulling the files failed
+     */
+    private void pullDirectory( IDevice device, FileListingService fileListingService, FileEntry sourceFileEntry,
+                                File destinationDir ) throws MojoExecutionException
+    {
+        final String deviceLogLinePrefix = DeviceHelper.getDeviceLogLinePrefix( device );
+
+        final File localRoot;
+        if ( parsedDestination.endsWith( File.separator ) )
+        {
+            // pull source directory directly
+            localRoot = new File( destinationDir, sourceFileEntry.getName() );
+        }
+        else
+        {
+            // pull the children of source directory only
+            localRoot = destinationDir;
+        }
+
+        final List<FileEntry> remoteFiles = new ArrayList<FileEntry>();
+        final List<File> localFiles = new ArrayList<File>();
+        try
+        {
+            collectRemoteFiles( fileListingService, sourceFileEntry, localRoot, remoteFiles, localFiles );
+        }
+        catch ( IOException e )
+        {
+            throw new MojoExecutionException( deviceLogLinePrefix + "Listing " + parsedSource + " failed.", e );
+        }
+
+        final List<ParallelSyncTransfer.Transfer> transfers = new ArrayList<ParallelSyncTransfer.Transfer>();
+        for ( int i = 0; i < remoteFiles.size(); i++ )
+        {
+            final FileEntry remoteFile = remoteFiles.get( i );
+            final File localFile = localFiles.get( i );
+            final long size = parseSize( remoteFile );
+            final long modified = parseModificationTime( remoteFile );
+            if ( parsedIncremental && localFile.isFile() && localFile.length() == size
+                    && modified != 0 && localFile.lastModified() == modified )
+            {
+                continue;
+            }
+
+            final String message = deviceLogLinePrefix + "Pull of " + remoteFile.getFullPath() + " to "
+                    + localFile.getAbsolutePath() + " from " + DeviceHelper.getDescriptiveName( device );
+            transfers.add( new ParallelSyncTransfer.Transfer()
+            {
+                @Override
+                public void execute( SyncService syncService ) throws SyncException, IOException, TimeoutException
+                {
+                    syncService.pullFile( remoteFile, localFile.getAbsolutePath(),
+                            new LogSyncProgressMonitor( getLog() ) );
+                    if ( modified != 0 && ! localFile.setLastModified( modified ) )
+                    {
+                        getLog().debug( "Cannot set modification time of " + localFile );
+                    }
+                }
+
+                @Override
+                public long getSize()
+                {
+                    return size;
+                }
+
+                @Override
+                public String getDescription()
+                {
+                    return message;
+                }
+            } );
+        }
+
+        if ( parsedIncremental )
+        {
+            getLog().info( deviceLogLinePrefix + ( remoteFiles.size() - transfers.size() ) + " of "
+                    + remoteFiles.size() + " files below " + parsedSource + " are up to date." );
+        }
+        new ParallelSyncTransfer( device, parsedThreads, getLog() ).run( transfers );
+    }
+
+    /**
+     * Walks the remote directory tree, creating the local directories on the way, and collects all regular files
+     * together with their local destination.
+     */
+    private void collectRemoteFiles( FileListingService fileListingService, FileEntry directory, File localDir,
+                                     List<FileEntry> remoteFiles, List<File> localFiles )
+            throws IOException
+    {
+        if ( ! localDir.isDirectory() && ! localDir.mkdirs() )
+        {
+            throw new IOException( "Cannot create directory " + localDir );
+        }
+        for ( FileEntry child : fileListingService.getChildren( directory, true, null ) )
+        {
+            final File localChild = new File( localDir, child.getName() );
+            if ( child.getType() == FileListingService.TYPE_DIRECTORY )
+            {
+                collectRemoteFiles( fileListingService, child, localChild, remoteFiles, localFiles );
+            }
+            else if ( child.getType() == FileListingService.TYPE_FILE )
+            {
+                remoteFiles.add( child );
+                localFiles.add( localChild );
+            }
+        }
+    }
+
+    private static long parseSize( FileEntry fileEntry )
+    {
+        try
+        {
+            return Long.parseLong( fileEntry.getSize() );
+        }
+        catch ( NumberFormatException e )
+        {
+            return 0;
+        }
+    }
+
+    /**
+     * @return the modification time of the remote file as reported by <code>ls</code>, 0 if it cannot be parsed
+     */
+    private static long parseModificationTime( FileEntry fileEntry )
+    {
+        try
+        {
+            return new SimpleDateFormat( "yyyy-MM-dd HH:mm" )
+                    .parse( fileEntry.getDate() + " " + fileEntry.getTime() ).getTime();
+        }
+        catch ( ParseException e )
+        {
+            return 0;
+        }
+    }
+
     /**
      * Retrieves the corresponding {@link FileEntry} on the emulator/device for
      * a given file path.
@@ -17,14 +17,18 @@
 package com.simpligility.maven.plugins.android.standalonemojos;
 
 import com.android.ddmlib.AdbCommandRejectedException;
+import com.android.ddmlib.CollectingOutputReceiver;
 import com.android.ddmlib.IDevice;
+import com.android.ddmlib.ShellCommandUnresponsiveException;
 import com.android.ddmlib.SyncException;
 import com.android.ddmlib.SyncService;
 import com.android.ddmlib.TimeoutException;
 import com.simpligility.maven.plugins.android.AbstractAndroidMojo;
 import com.simpligility.maven.plugins.android.DeviceCallback;
 import com.simpligility.maven.plugins.android.common.DeviceHelper;
+import com.simpligility.maven.plugins.android.common.FileHashHelper;
 import com.simpligility.maven.plugins.android.common.LogSyncProgressMonitor;
+import com.simpligility.maven.plugins.android.common.ParallelSyncTransfer;
 import com.simpligility.maven.plugins.android.config.ConfigHandler;
 import com.simpligility.maven.plugins.android.config.ConfigPojo;
 import com.simpligility.maven.plugins.android.config.PullParameter;
@@ -38,9 +42,15 @@ import org.apache.maven.plugins.annotations.Parameter;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Copy file to all the attached (or specified) devices/emulators.
@@ -51,6 +61,21 @@ import java.util.Map;
 @Mojo( name = "push", requiresProject = false )
 public class PushMojo extends AbstractAndroidMojo
 {
+    /**
+     * Maximum length of a shell command line sent to the device, longer argument lists are split up.
+     */
+    private static final int MAX_SHELL_COMMAND_LENGTH = 4000;
+
+    /**
+     * Maximum time a shell command listing, hashing or deleting remote files may run without printing output.
+     */
+    private static final long SHELL_COMMAND_TIMEOUT_MINUTES = 10;
+
+    /**
+     * Matches the <code>size mtime path</code> lines printed by {@link #REMOTE_LISTING_FORMAT}.
+     */
+    private static final Pattern REMOTE_LISTING_LINE = Pattern.compile( "^(\\d+) (\\d+) (.+)$" );
+    private static final String REMOTE_LISTING_FORMAT = "'%s %Y %n'";
 
     /**
      * <p>The configuration for the push goal can be set up in the plugin configuration in the pom file as:</p>
@@ -58,6 +83,10 @@ public class PushMojo extends AbstractAndroidMojo
      * &lt;push&gt;
      *     &lt;source&gt;path&lt;/source&gt;
      *     &lt;destination&gt;path&lt;/destination&gt;
+     *     &lt;sync&gt;true|false&lt;/sync&gt;
+     *     &lt;delete&gt;true|false&lt;/delete&gt;
+     *     &lt;checksum&gt;true|false&lt;/checksum&gt;
+     *     &lt;threads&gt;4&lt;/threads&gt;
      * &lt;/push&gt;
      * </pre>
      * <p>The parameters can also be configured as property in the pom or settings file
@@ -100,6 +129,45 @@ public class PushMojo extends AbstractAndroidMojo
     @PullParameter( required = true )
     private String parsedDestination;
 
+    /**
+     * Only push files that are missing on the device or differ from the local file. The remote destination is
+     * listed once and a file is considered unchanged if its size and modification time match the local file.
+     */
+    @Parameter( property = "android.push.sync" )
+    private Boolean pushSync;
+
+    @PullParameter( defaultValue = "false" )
+    private Boolean parsedSync;
+
+    /**
+     * In sync mode, delete files below the remote destination directory that do not exist in the local source
+     * directory.
+     */
+    @Parameter( property = "android.push.delete" )
+    private Boolean pushDelete;
+
+    @PullParameter( defaultValue = "false" )
+    private Boolean parsedDelete;
+
+    /**
+     * In sync mode, compare the MD5 checksum of files with equal size but different modification time instead of
+     * pushing them right away. Useful when the local files are regenerated with identical content.
+     */
+    @Parameter( property = "android.push.checksum" )
+    private Boolean pushChecksum;
+
+    @PullParameter( defaultValue = "false" )
+    private Boolean parsedChecksum;
+
+    /**
+     * The number of sync connections used in parallel to push files to each device.
+     */
+    @Parameter( property = "android.push.threads" )
+    private Integer pushThreads;
+
+    @PullParameter( defaultValue = "4" )
+    private Integer parsedThreads;
+
     public void execute() throws MojoExecutionException, MojoFailureException
     {
 
@@ -112,46 +180,267 @@ public class PushMojo extends AbstractAndroidMojo
         {
             public void doWithDevice( final IDevice device ) throws MojoExecutionException
             {
-                String deviceLogLinePrefix = DeviceHelper.getDeviceLogLinePrefix( device );
+                final String deviceLogLinePrefix = DeviceHelper.getDeviceLogLinePrefix( device );
 
-                // message will be set in for each loop according to the processed files
-                String message = "";
+                Map<String, String> filesToPush = sourceDestinationMap;
+                if ( parsedSync )
+                {
+                    filesToPush = selectChangedFiles( device, sourceDestinationMap );
+                }
 
-                try
+                List<ParallelSyncTransfer.Transfer> transfers = new ArrayList<ParallelSyncTransfer.Transfer>();
+                for ( Map.Entry<String, String> pushFileEntry : filesToPush.entrySet() )
                 {
-                    SyncService syncService = device.getSyncService();
+                    final String sourcePath = pushFileEntry.getKey();
+                    final String destinationPath = pushFileEntry.getValue();
+                    final String message = deviceLogLinePrefix + "Push of " + sourcePath + " to " + destinationPath
+                            + " on " + DeviceHelper.getDescriptiveName( device );
+                    final long size = new File( sourcePath ).length();
 
-                    for ( Map.Entry<String, String> pushFileEntry : sourceDestinationMap.entrySet() )
+                    transfers.add( new ParallelSyncTransfer.Transfer()
                     {
-                        String sourcePath = pushFileEntry.getKey();
-                        String destinationPath = pushFileEntry.getValue();
+                        @Override
+                        public void execute( SyncService syncService )
+                                throws SyncException, IOException, TimeoutException
+                        {
+                            syncService.pushFile( sourcePath, destinationPath,
+                                    new LogSyncProgressMonitor( getLog() ) );
+                        }
 
-                        message = deviceLogLinePrefix + "Push of " + sourcePath + " to " + destinationPath + " on "
-                                + DeviceHelper.getDescriptiveName( device );
+                        @Override
+                        public long getSize()
+                        {
+                            return size;
+                        }
 
-                        syncService.pushFile( sourcePath, destinationPath, new LogSyncProgressMonitor( getLog() ) );
-
-                        getLog().info( message + " successful." );
-                    }
+                        @Override
+                        public String getDescription()
+                        {
+                            return message;
+                        }
+                    } );
                 }
-                catch ( SyncException e )
+
+                new ParallelSyncTransfer( device, parsedThreads, getLog() ).run( transfers );
+            }
+        } );
+    }
+
+    /**
+     * Compares the files to push with the files already on the device and returns the ones that need to be pushed.
+     * If requested, remote files without a local counterpart are deleted. If the remote destination cannot be
+     * listed, all files are pushed.
+     *
+     * @param device               the device to compare with
+     * @param sourceDestinationMap all local files and their remote destination
+     * @return the local files and their remote destination that are missing or differ on the device
+     * @throws MojoExecutionException if deleting stale files failed
+     */
+    private Map<String, String> selectChangedFiles( IDevice device, Map<String, String> sourceDestinationMap )
+            throws MojoExecutionException
+    {
+        final String deviceLogLinePrefix = DeviceHelper.getDeviceLogLinePrefix( device );
+        final String destinationRoot = calculateDestinationRoot();
+
+        final Map<String, RemoteFile> remoteFiles;
+        try
+        {
+            remoteFiles = listRemoteFiles( device, destinationRoot );
+        }
+        catch ( TimeoutException | AdbCommandRejectedException | ShellCommandUnresponsiveException
+                | IOException e )
+        {
+            getLog().warn( deviceLogLinePrefix + "Listing " + destinationRoot
+                    + " failed, pushing all files.", e );
+            return sourceDestinationMap;
+        }
+
+        final Map<String, String> changed = new LinkedHashMap<String, String>();
+        final Map<String, String> checksumCandidates = new LinkedHashMap<String, String>();
+        for ( Map.Entry<String, String> entry : sourceDestinationMap.entrySet() )
+        {
+            final File localFile = new File( entry.getKey() );
+            final RemoteFile remoteFile = remoteFiles.remove( normalizeRemotePath( entry.getValue() ) );
+            if ( remoteFile == null || remoteFile.size != localFile.length() )
+            {
+                changed.put( entry.getKey(), entry.getValue() );
+            }
+            else if ( remoteFile.modified != localFile.lastModified() / 1000 )
+            {
+                if ( parsedChecksum )
                 {
-                    throw new MojoExecutionException( message + " failed.", e );
+                    checksumCandidates.put( entry.getKey(), entry.getValue() );
                 }
-                catch ( IOException e )
+                else
                 {
-                    throw new MojoExecutionException( message + " failed.", e );
+                    changed.put( entry.getKey(), entry.getValue() );
                 }
-                catch ( TimeoutException e )
+            }
+        }
+
+        if ( ! checksumCandidates.isEmpty() )
+        {
+            changed.putAll( selectChecksumMismatches( device, checksumCandidates ) );
+        }
+
+        int deleted = 0;
+        if ( parsedDelete && new File( parsedSource ).isDirectory() && ! remoteFiles.isEmpty() )
+        {
+            try
+            {
+                executeShellCommandBatched( device, "rm -f", remoteFiles.keySet() );
+            }
+            catch ( TimeoutException | AdbCommandRejectedException | ShellCommandUnresponsiveException
+                    | IOException e )
+            {
+                throw new MojoExecutionException( deviceLogLinePrefix + "Deleting stale files below "
+                        + destinationRoot + " failed.", e );
+            }
+            for ( String stale : remoteFiles.keySet() )
+            {
+                getLog().debug( deviceLogLinePrefix + "Deleted stale file " + stale );
+            }
+            deleted = remoteFiles.size();
+        }
+
+        getLog().info( deviceLogLinePrefix + "Sync of " + destinationRoot + ": " + changed.size() + " of "
+                + sourceDestinationMap.size() + " files changed, " + deleted + " stale files deleted." );
+        return changed;
+    }
+
+    /**
+     * Compares the MD5 checksums of local files and their remote copies.
+     *
+     * @return the local files and their remote destination whose checksum differs or could not be determined
+     */
+    private Map<String, String> selectChecksumMismatches( IDevice device, Map<String, String> candidates )
+    {
+        final String deviceLogLinePrefix = DeviceHelper.getDeviceLogLinePrefix( device );
+        final Map<String, String> remoteChecksums = new HashMap<String, String>();
+        try
+        {
+            final String output = executeShellCommandBatched( device, "md5sum", candidates.values() );
+            for ( String line : output.split( "\\r?\\n" ) )
+            {
+                final String[] parts = line.trim().split( "\\s+", 2 );
+                if ( parts.length == 2 )
                 {
-                    throw new MojoExecutionException( message + " failed.", e );
+                    remoteChecksums.put( normalizeRemotePath( parts[ 1 ] ), parts[ 0 ].toLowerCase() );
                 }
-                catch ( AdbCommandRejectedException e )
+            }
+        }
+        catch ( TimeoutException | AdbCommandRejectedException | ShellCommandUnresponsiveException
+                | IOException e )
+        {
+            getLog().warn( deviceLogLinePrefix + "Computing remote checksums failed, pushing files with a "
+                    + "different modification time.", e );
+        }
+
+        final Map<String, String> mismatches = new LinkedHashMap<String, String>();
+        for ( Map.Entry<String, String> candidate : candidates.entrySet() )
+        {
+            final String remoteChecksum = remoteChecksums.get( normalizeRemotePath( candidate.getValue() ) );
+            try
+            {
+                if ( remoteChecksum == null
+                        || ! remoteChecksum.equals( FileHashHelper.md5Hex( new File( candidate.getKey() ) ) ) )
                 {
-                    throw new MojoExecutionException( message + " failed.", e );
+                    mismatches.put( candidate.getKey(), candidate.getValue() );
                 }
             }
-        } );
+            catch ( IOException e )
+            {
+                mismatches.put( candidate.getKey(), candidate.getValue() );
+            }
+        }
+        return mismatches;
+    }
+
+    /**
+     * Lists all files below the given remote path with a single shell command.
+     *
+     * @return the remote files keyed by their normalized path, empty if the path does not exist
+     */
+    private Map<String, RemoteFile> listRemoteFiles( IDevice device, String remotePath )
+            throws TimeoutException, AdbCommandRejectedException, ShellCommandUnresponsiveException, IOException
+    {
+        final CollectingOutputReceiver receiver = new CollectingOutputReceiver();
+        device.executeShellCommand( "find " + quote( remotePath ) + " -type f -exec stat -c "
+                + REMOTE_LISTING_FORMAT + " {} + 2>/dev/null", receiver, SHELL_COMMAND_TIMEOUT_MINUTES,
+                TimeUnit.MINUTES );
+
+        final Map<String, RemoteFile> remoteFiles = new HashMap<String, RemoteFile>();
+        for ( String line : receiver.getOutput().split( "\\r?\\n" ) )
+        {
+            final Matcher matcher = REMOTE_LISTING_LINE.matcher( line );
+            if ( matcher.matches() )
+            {
+                remoteFiles.put( normalizeRemotePath( matcher.group( 3 ) ),
+                        new RemoteFile( Long.parseLong( matcher.group( 1 ) ), Long.parseLong( matcher.group( 2 ) ) ) );
+            }
+        }
+        return remoteFiles;
+    }
+
+    /**
+     * Executes a shell command with the given paths as arguments, split up into several invocations if the command
+     * line would get too long.
+     *
+     * @return the combined output of all invocations
+     */
+    private String executeShellCommandBatched( IDevice device, String command, Collection<String> paths )
+            throws TimeoutException, AdbCommandRejectedException, ShellCommandUnresponsiveException, IOException
+    {
+        final StringBuilder output = new StringBuilder();
+        final StringBuilder commandLine = new StringBuilder( command );
+        for ( String path : paths )
+        {
+            final String argument = " " + quote( path );
+            if ( commandLine.length() > command.length()
+                    && commandLine.length() + argument.length() > MAX_SHELL_COMMAND_LENGTH )
+            {
+                output.append( executeShellCommand( device, commandLine.toString() ) );
+                commandLine.setLength( command.length() );
+            }
+            commandLine.append( argument );
+        }
+        if ( commandLine.length() > command.length() )
+        {
+            output.append( executeShellCommand( device, commandLine.toString() ) );
+        }
+        return output.toString();
+    }
+
+    private String executeShellCommand( IDevice device, String commandLine )
+            throws TimeoutException, AdbCommandRejectedException, ShellCommandUnresponsiveException, IOException
+    {
+        final CollectingOutputReceiver receiver = new CollectingOutputReceiver();
+        device.executeShellCommand( commandLine, receiver, SHELL_COMMAND_TIMEOUT_MINUTES, TimeUnit.MINUTES );
+        return receiver.getOutput();
+    }
+
+    private static String quote( String path )
+    {
+        return "'" + path.replace( "'", "'\\''" ) + "'";
+    }
+
+    private static String normalizeRemotePath( String path )
+    {
+        return path.trim().replaceAll( "/+", "/" );
+    }
+
+    /**
+     * Calculates the destination path on the device, which is the target directory if the source is a directory.
+     *
+     * @return the destination path
+     */
+    private String calculateDestinationRoot()
+    {
+        if ( parsedDestination.endsWith( "/" ) )
+        {
+            return parsedDestination + new File( parsedSource ).getName();
+        }
+        return parsedDestination;
     }
 
     /**
@@ -167,16 +456,7 @@ public class PushMojo extends AbstractAndroidMojo
         Map<String, String> result = new HashMap<String, String>();
 
         File sourceFile = new File( parsedSource );
-        final String destinationPath;
-        if ( parsedDestination.endsWith( "/" ) )
-        {
-            destinationPath = parsedDestination + sourceFile.getName();
-        }
-        else
-        {
-            destinationPath = parsedDestination;
-        }
-
+        final String destinationPath = calculateDestinationRoot();
         if ( sourceFile.isFile() )
         {
             // only put the source in
@@ -207,4 +487,19 @@ public class PushMojo extends AbstractAndroidMojo
         }
         return result;
     }
+
+    /**
+     * Size and modification time in seconds of a file on the device.
+     */
+    private static final class RemoteFile
+    {
+        private final long size;
+        private final long modified;
+
+        private RemoteFile( long size, long modified )
+        {
+            this.size = size;
+            this.modified = modified;
+        }
+    }
 }
@@ -3,6 +3,7 @@ package com.simpligility.maven.plugins.android.standalonemojos;
 import com.simpligility.maven.plugins.android.AbstractAndroidMojo;
 import com.simpligility.maven.plugins.android.CommandExecutor;
 import com.simpligility.maven.plugins.android.ExecutionException;
+import com.simpligility.maven.plugins.android.common.ZipAligner;
 import com.simpligility.maven.plugins.android.config.ConfigHandler;
 import com.simpligility.maven.plugins.android.config.ConfigPojo;
 import com.simpligility.maven.plugins.android.config.PullParameter;
@@ -151,6 +152,26 @@ public class ZipalignMojo extends AbstractAndroidMojo
         {
             boolean outputToSameFile = sameOutputAsInput();
 
+            if ( isAligned( parsedInputApk ) )
+            {
+                // the apk goal aligns the apk already, no need to rewrite it
+                getLog().info( "Verified alignment of " + parsedInputApk + ", skipping zipalign" );
+                if ( ! outputToSameFile )
+                {
+                    try
+                    {
+                        FileUtils.copyFile( new File( parsedInputApk ), new File( parsedOutputApk ) );
+                    }
+                    catch ( IOException e )
+                    {
+                        throw new MojoExecutionException( "Failed to copy aligned apk to "
+                                + getFullPathWithName( parsedOutputApk ), e );
+                    }
+                    attachAlignedApk( parsedOutputApk );
+                }
+                return;
+            }
+
             CommandExecutor executor = CommandExecutor.Factory.createDefaultCommmandExecutor();
             executor.setLogger( this.getLog() );
 
@@ -191,11 +212,7 @@ public class ZipalignMojo extends AbstractAndroidMojo
                     }
                     else
                     {
-                        // Attach the resulting artifact (Issue 88)
-                        // http://code.google.com/p/maven-android-plugin/issues/detail?id=88
-                        projectHelper.attachArtifact( project, APK, parsedClassifier, new File( outputApk ) );
-                        getLog().info( "Attach " + getFullPathWithName( outputApk )  + " as '"
-                                + parsedClassifier + "' to the project" );
+                        attachAlignedApk( outputApk );
                     }
                 }
                 else
@@ -211,6 +228,32 @@ public class ZipalignMojo extends AbstractAndroidMojo
         }
     }
 
+    private void attachAlignedApk( String outputApk )
+    {
+        // Attach the resulting artifact (Issue 88)
+        // http://code.google.com/p/maven-android-plugin/issues/detail?id=88
+        projectHelper.attachArtifact( project, APK, parsedClassifier, new File( outputApk ) );
+        getLog().info( "Attach " + getFullPathWithName( outputApk )  + " as '"
+                + parsedClassifier + "' to the project" );
+    }
+
+    /**
+     * @return true if the apk exists and is aligned
+     */
+    private boolean isAligned( String apk )
+    {
+        final File apkFile = new File( apk );
+        try
+        {
+            return apkFile.isFile() && ZipAligner.isAligned( apkFile );
+        }
+        catch ( IOException e )
+        {
+            getLog().debug( "Cannot verify alignment of " + apk + ", running zipalign", e );
+            return false;
+        }
+    }
+
     private String getFullPathWithName( String filename )
     {
         return FilenameUtils.getFullPath( filename ) + FilenameUtils.getName( filename );
@@ -15,7 +15,6 @@
  */
 package com.simpligility.maven.plugins.android;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.fest.reflect.core.Reflection;
@@ -29,7 +28,6 @@ import com.simpligility.maven.plugins.android.AndroidSdk;
 
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
@@ -85,15 +83,6 @@ public class AbstractAndroidMojoTest {
         Assert.assertNull(foundInstrumentationRunner);
     }
 
-    @Test
-    public void givenValidAndroidManifestXmlTreeThenPackageIsFound() throws IOException {
-        final URL         resource               = this.getClass().getResource("AndroidManifestXmlTree.txt");
-        final InputStream inputStream            = resource.openStream();
-        final String      androidManifestXmlTree = IOUtils.toString(inputStream);
-        final String      foundPackage           = androidMojo.extractPackageNameFromAndroidManifestXmlTree(androidManifestXmlTree);
-        Assert.assertEquals("com.example.android.apis", foundPackage);
-    }
-
     @Test
     public void givenApidemosApkThenPackageIsFound() throws IOException, MojoExecutionException, URISyntaxException {
         final URL    resource     = this.getClass().getResource("apidemos-0.1.0-SNAPSHOT.apk");
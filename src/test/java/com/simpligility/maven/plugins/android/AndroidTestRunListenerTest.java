@@ -3,6 +3,7 @@ package com.simpligility.maven.plugins.android;
 import com.android.ddmlib.IDevice;
 import com.android.ddmlib.testrunner.ITestRunListener;
 import com.android.ddmlib.testrunner.TestIdentifier;
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.apache.commons.lang3.RandomUtils;
 import org.apache.maven.plugin.logging.SystemStreamLog;
@@ -106,6 +107,33 @@ public class AndroidTestRunListenerTest
         }
     }
 
+    @Test
+    public void partialReportFlushedAfterEachTest() throws IOException
+    {
+        replay( device );
+
+        final ITestRunListener listener = new AndroidTestRunListener( device, new SystemStreamLog(), true, false, null, suffix, target.getRoot() );
+        listener.testRunStarted( runName, count );
+
+        final TestIdentifier id = new TestIdentifier( RandomStringUtils.randomAlphabetic( 20 ), RandomStringUtils.randomAlphabetic( 10 ) );
+        listener.testStarted( id );
+        listener.testEnded( id, Collections.<String, String>emptyMap() );
+
+        final File[] reportFiles = target.getRoot().listFiles()[0].listFiles();
+        assertEquals( 1, reportFiles.length );
+        assertTrue( reportFiles[0].getName().endsWith( JunitReportWriter.PARTIAL_SUFFIX ) );
+        final String partial = FileUtils.readFileToString( reportFiles[0], "UTF-8" );
+        assertTrue( partial.contains( "<testcase name=\"" + id.getTestName() + "\"" ) );
+        assertTrue( partial.contains( key ) );
+
+        listener.testRunEnded( elapsed, Collections.<String, String>emptyMap() );
+
+        verify( device );
+
+        assertEquals( 1, target.getRoot().listFiles()[0].listFiles().length );
+        assertTrue( validateXMLSchema( "surefire/surefire-test-report.xsd", target.getRoot().listFiles()[0].listFiles()[0] ) );
+    }
+
     public boolean validateXMLSchema( String xsdResource, File xmlFile )
     {
         try
@@ -0,0 +1,64 @@
+package com.simpligility.maven.plugins.android;
+
+import com.android.ddmlib.IDevice;
+import com.simpligility.maven.plugins.android.AbstractEmulatorMojo.ParsedEmulator;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+
+public class EmulatorConsolePortsTest {
+
+    private final AbstractEmulatorMojo mojo = new AbstractEmulatorMojo() {
+        @Override
+        public void execute() throws MojoExecutionException, MojoFailureException {
+        }
+    };
+
+    @Test
+    public void emulatorsToStartGetFreeConsolePorts() {
+        final List<IDevice> devices = Arrays.asList(emulator("Running", 5554), emulator("Other", 5558));
+        final ParsedEmulator running = new ParsedEmulator("running", "");
+        final ParsedEmulator first = new ParsedEmulator("First", "-no-skin");
+        final ParsedEmulator fixed = new ParsedEmulator("Fixed", "-port 5600");
+        final ParsedEmulator second = new ParsedEmulator("Second", "");
+
+        mojo.assignConsolePorts(Arrays.asList(running, first, fixed, second), devices);
+
+        assertEquals("", running.getOptions());
+        assertEquals("-no-skin -port 5556", first.getOptions());
+        assertEquals("-port 5600", fixed.getOptions());
+        assertEquals("-port 5560", second.getOptions());
+    }
+
+    @Test
+    public void emulatorsBeyondTheConsolePortRangeKeepTheirOptions() {
+        final IDevice[] devices = new IDevice[64];
+        for (int i = 0; i < devices.length; i++) {
+            devices[i] = emulator("Running" + i, 5554 + i * 2);
+        }
+        final ParsedEmulator last = new ParsedEmulator("Last", "");
+        final ParsedEmulator tooMany = new ParsedEmulator("TooMany", "");
+
+        mojo.assignConsolePorts(Arrays.asList(last, tooMany), Arrays.asList(devices));
+
+        assertEquals("-port 5682", last.getOptions());
+        assertEquals("", tooMany.getOptions());
+    }
+
+    private static IDevice emulator(String avd, int port) {
+        final IDevice device = createNiceMock(IDevice.class);
+        expect(device.isEmulator()).andReturn(true).anyTimes();
+        expect(device.getAvdName()).andReturn(avd).anyTimes();
+        expect(device.getSerialNumber()).andReturn("emulator-" + port).anyTimes();
+        replay(device);
+        return device;
+    }
+}
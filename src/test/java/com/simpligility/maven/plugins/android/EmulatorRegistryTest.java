@@ -0,0 +1,103 @@
+package com.simpligility.maven.plugins.android;
+
+import org.apache.maven.execution.BuildSuccess;
+import org.apache.maven.execution.DefaultMavenExecutionRequest;
+import org.apache.maven.execution.DefaultMavenExecutionResult;
+import org.apache.maven.execution.MavenExecutionResult;
+import org.apache.maven.execution.MavenSession;
+import org.apache.maven.project.MavenProject;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class EmulatorRegistryTest {
+
+    private static final String AVD = "Nexus5-API23";
+
+    private final MavenProject first = new MavenProject();
+    private final MavenProject second = new MavenProject();
+    private final AtomicInteger boots = new AtomicInteger();
+    private final AtomicInteger resets = new AtomicInteger();
+
+    private MavenExecutionResult result;
+    private MavenSession session;
+
+    @Before
+    public void setUp() {
+        result = new DefaultMavenExecutionResult();
+        session = new MavenSession(null, null, new DefaultMavenExecutionRequest(), result);
+    }
+
+    @Test
+    public void bootIsReusedByTheSessionsOfOneBuildOnly() throws Exception {
+        final EmulatorRegistry registry = EmulatorRegistry.getInstance(session);
+        final EmulatorRegistry moduleRegistry = EmulatorRegistry.getInstance(session.clone());
+
+        final Future<String> boot = registry.boot(AVD, new CountingBoot(), new DirectExecutor());
+        assertSame(boot, moduleRegistry.boot(AVD, new CountingBoot(), new DirectExecutor()));
+        assertEquals("emulator-5554", moduleRegistry.getSerialNumber(AVD.toLowerCase()));
+        assertEquals(1, boots.get());
+
+        final EmulatorRegistry nextBuildRegistry = EmulatorRegistry.getInstance(new MavenSession(null, null,
+                new DefaultMavenExecutionRequest(), new DefaultMavenExecutionResult()));
+        assertNull(nextBuildRegistry.getSerialNumber(AVD));
+        nextBuildRegistry.boot(AVD, new CountingBoot(), new DirectExecutor());
+        assertEquals(2, boots.get());
+    }
+
+    @Test
+    public void emulatorIsOnlyResetWhileNoOtherModuleUsesIt() throws Exception {
+        final EmulatorRegistry registry = EmulatorRegistry.getInstance(session);
+
+        assertTrue(registry.lease(AVD, first, session, new CountingReset()));
+        assertFalse(registry.lease(AVD.toLowerCase(), second, session, new CountingReset()));
+        assertEquals(1, resets.get());
+
+        result.addBuildSummary(new BuildSuccess(first, 0));
+        assertTrue(registry.lease(AVD, second, session, new CountingReset()));
+        assertEquals(2, resets.get());
+    }
+
+    @Test
+    public void emulatorIsReleasedByTheLastModuleUsingIt() throws Exception {
+        final EmulatorRegistry registry = EmulatorRegistry.getInstance(session);
+        registry.lease(AVD, first, session, null);
+        registry.lease(AVD, second, session, null);
+
+        assertFalse(registry.release(AVD, first, session));
+        assertTrue(registry.release(AVD, second, session));
+    }
+
+    private final class CountingBoot implements Callable<String> {
+        @Override
+        public String call() {
+            boots.incrementAndGet();
+            return "emulator-5554";
+        }
+    }
+
+    private static final class DirectExecutor implements Executor {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    }
+
+    private final class CountingReset implements Callable<Void> {
+        @Override
+        public Void call() {
+            resets.incrementAndGet();
+            return null;
+        }
+    }
+}
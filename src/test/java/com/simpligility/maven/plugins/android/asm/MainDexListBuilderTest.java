@@ -0,0 +1,53 @@
+package com.simpligility.maven.plugins.android.asm;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * Exercises the {@link com.simpligility.maven.plugins.android.asm.MainDexListBuilder} class.
+ */
+public class MainDexListBuilderTest {
+    private static final File CLASSES = new File("target/test-classes/com/simpligility/maven/plugins/android/asm/maindex");
+    private static final String PACKAGE = "com/simpligility/maven/plugins/android/asm/maindex/";
+
+    @Test
+    public void givenKeepRuleThenReachableClassesAndDirectReferencesAreInMainDex() throws IOException {
+        final SortedSet<String> result = new MainDexListBuilder(2).build(Collections.singletonList(CLASSES),
+                Collections.<File>emptyList(), "-keep public class **.maindex.Root {\n  <init>();\n}\n",
+                Collections.<String>emptyList());
+
+        Assert.assertEquals(classFiles("Deferred", "Helper", "Root", "Used", "UsedBase"), result);
+    }
+
+    @Test
+    public void givenEntryPointThenItsConstructorIsKept() throws IOException {
+        final SortedSet<String> result = new MainDexListBuilder(2).build(Collections.singletonList(CLASSES),
+                Collections.<File>emptyList(), "",
+                Collections.singletonList("com.simpligility.maven.plugins.android.asm.maindex.Root"));
+
+        Assert.assertEquals(classFiles("Deferred", "Helper", "Root", "Used", "UsedBase"), result);
+    }
+
+    @Test
+    public void givenNoRootsThenMainDexIsEmpty() throws IOException {
+        final SortedSet<String> result = new MainDexListBuilder(2).build(Collections.singletonList(CLASSES),
+                Collections.<File>emptyList(), "-keep class **.Missing", Collections.<String>emptyList());
+
+        Assert.assertTrue(result.isEmpty());
+    }
+
+    private static SortedSet<String> classFiles(String... names) {
+        final SortedSet<String> classFiles = new TreeSet<String>();
+        for (String name : Arrays.asList(names)) {
+            classFiles.add(PACKAGE + name + ".class");
+        }
+        return classFiles;
+    }
+}
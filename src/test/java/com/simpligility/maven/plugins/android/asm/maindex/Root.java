@@ -0,0 +1,39 @@
+package com.simpligility.maven.plugins.android.asm.maindex;
+
+/**
+ * A class kept for the main dex, with classes used on startup and classes only used later.
+ *
+ * For {@link com.simpligility.maven.plugins.android.asm.MainDexListBuilderTest}.
+ */
+public class Root {
+    public Root() {
+        new Used().run();
+    }
+
+    public void later() {
+        new Deferred().run();
+    }
+}
+
+class UsedBase {
+}
+
+class Used extends UsedBase {
+    void run() {
+        Helper.help();
+    }
+}
+
+class Helper {
+    static void help() {
+    }
+}
+
+class Deferred {
+    void run() {
+        new Unused();
+    }
+}
+
+class Unused {
+}
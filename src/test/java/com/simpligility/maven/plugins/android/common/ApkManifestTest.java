@@ -0,0 +1,152 @@
+package com.simpligility.maven.plugins.android.common;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.testing.SilentLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ApkManifestTest {
+
+    private static final String RESOURCES = "/com/simpligility/maven/plugins/android/";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final Log log = new SilentLog();
+
+    @Test
+    public void givenApidemosApkThenPackageIsFound() throws MojoExecutionException, URISyntaxException {
+        final ApkManifest manifest = ApkManifest.forApk(getResource("apidemos-0.1.0-SNAPSHOT.apk"), log);
+
+        assertEquals("com.example.android.apis", manifest.getPackageName());
+        assertNull(manifest.getVersionCode());
+        assertNull(manifest.getVersionName());
+        assertEquals(1, manifest.getInstrumentations().size());
+        assertEquals(".app.LocalSampleInstrumentation", manifest.getInstrumentations().get(0).getName());
+    }
+
+    @Test
+    public void givenApidemosPlatformtestsApkThenInstrumentationIsFound()
+            throws MojoExecutionException, URISyntaxException {
+        final File apk = getResource("apidemos-platformtests-0.1.0-SNAPSHOT.apk");
+        final ApkManifest manifest = ApkManifest.forApk(apk, log);
+
+        assertEquals("com.example.android.apis.tests", manifest.getPackageName());
+        assertEquals(1, manifest.getInstrumentations().size());
+        assertEquals("android.test.InstrumentationTestRunner", manifest.getInstrumentations().get(0).getName());
+        assertEquals("com.example.android.apis", manifest.getInstrumentations().get(0).getTargetPackage());
+    }
+
+    @Test
+    public void manifestIsKeptUntilApkChanges() throws MojoExecutionException, IOException, URISyntaxException {
+        final File apk = temporaryFolder.newFile("apidemos.apk");
+        FileUtils.copyFile(getResource("apidemos-0.1.0-SNAPSHOT.apk"), apk);
+        final ConcurrentMap<String, ApkManifest> manifests = new ConcurrentHashMap<String, ApkManifest>();
+
+        final ApkManifest manifest = ApkManifest.forApk(apk, manifests, log);
+        assertSame(manifest, ApkManifest.forApk(apk, manifests, log));
+
+        FileUtils.copyFile(getResource("apidemos-platformtests-0.1.0-SNAPSHOT.apk"), apk);
+        assertEquals("com.example.android.apis.tests", ApkManifest.forApk(apk, manifests, log).getPackageName());
+    }
+
+    @Test
+    public void givenApkWithoutManifestThenReadingFails() throws IOException {
+        final File apk = temporaryFolder.newFile("empty.apk");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(apk))) {
+            out.putNextEntry(new ZipEntry("classes.dex"));
+            out.write(1);
+        }
+
+        try {
+            ApkManifest.forApk(apk, log);
+            fail("Expected reading the manifest to fail");
+        } catch (MojoExecutionException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void givenNonIntegerVersionCodeThenVersionCodeIsIgnored() throws MojoExecutionException, IOException {
+        final File apk = temporaryFolder.newFile("versioned.apk");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(apk))) {
+            out.putNextEntry(new ZipEntry("AndroidManifest.xml"));
+            out.write(binaryManifest("com.example", "1.0-SNAPSHOT"));
+        }
+
+        final ApkManifest manifest = ApkManifest.forApk(apk, log);
+
+        assertEquals("com.example", manifest.getPackageName());
+        assertNull(manifest.getVersionCode());
+    }
+
+    /**
+     * Compiles a manifest element with a package and a string versionCode the way aapt lays out binary XML.
+     */
+    private static byte[] binaryManifest(String packageName, String versionCode) {
+        final String[] strings = {"versionCode", "manifest", "package", packageName, versionCode};
+        int stringsSize = 0;
+        for (String string : strings) {
+            stringsSize += 2 + string.length() * 2 + 2;
+        }
+        stringsSize = (stringsSize + 3) & ~3;
+        final int stringPoolSize = 28 + strings.length * 4 + stringsSize;
+        final int resourceMapSize = 8 + 4;
+        final int elementSize = 16 + 20 + 2 * 20;
+        final int size = 8 + stringPoolSize + resourceMapSize + elementSize;
+
+        final ByteBuffer buffer = ByteBuffer.allocate(size).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putShort((short) 0x0003).putShort((short) 8).putInt(size);
+
+        buffer.putShort((short) 0x0001).putShort((short) 28).putInt(stringPoolSize);
+        buffer.putInt(strings.length).putInt(0).putInt(0).putInt(28 + strings.length * 4).putInt(0);
+        int stringOffset = 0;
+        for (String string : strings) {
+            buffer.putInt(stringOffset);
+            stringOffset += 2 + string.length() * 2 + 2;
+        }
+        final int stringsStart = buffer.position();
+        for (String string : strings) {
+            buffer.putShort((short) string.length()).put(string.getBytes(Charset.forName("UTF-16LE")));
+            buffer.putShort((short) 0);
+        }
+        buffer.position(stringsStart + stringsSize);
+
+        buffer.putShort((short) 0x0180).putShort((short) 8).putInt(resourceMapSize).putInt(0x0101021b);
+
+        buffer.putShort((short) 0x0102).putShort((short) 16).putInt(elementSize).putInt(1).putInt(-1);
+        buffer.putInt(-1).putInt(1).putShort((short) 20).putShort((short) 20).putShort((short) 2)
+                .putShort((short) 0).putShort((short) 0).putShort((short) 0);
+        putStringAttribute(buffer, 2, 3);
+        putStringAttribute(buffer, 0, 4);
+        return buffer.array();
+    }
+
+    private static void putStringAttribute(ByteBuffer buffer, int name, int value) {
+        buffer.putInt(-1).putInt(name).putInt(value).putShort((short) 8).put((byte) 0).put((byte) 0x03).putInt(value);
+    }
+
+    private File getResource(String name) throws URISyntaxException {
+        return new File(getClass().getResource(RESOURCES + name).toURI());
+    }
+}
@@ -0,0 +1,131 @@
+package com.simpligility.maven.plugins.android.common;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.resolver.ArtifactResolutionRequest;
+import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
+import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.testing.SilentLog;
+import org.junit.Test;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ArtifactResolverHelperTest {
+
+    private final AtomicInteger resolutions = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private volatile String failingArtifactId;
+
+    @Test
+    public void batchResolvesEachArtifactOnceAndKeepsOrder() throws MojoExecutionException {
+        final ArtifactResolverHelper helper = newHelper(null);
+        final Artifact a = artifact("a");
+        final Artifact b = artifact("b");
+        final Artifact c = artifact("c");
+        final Artifact anotherA = artifact("a");
+
+        final Set<Artifact> resolved = helper.resolveArtifacts(Arrays.asList(a, b, anotherA, c));
+
+        assertEquals(3, resolutions.get());
+        final Iterator<Artifact> iterator = resolved.iterator();
+        assertSame(a, iterator.next());
+        assertSame(b, iterator.next());
+        assertSame(c, iterator.next());
+        assertEquals(new File("a.aar"), anotherA.getFile());
+
+        assertEquals(new File("b.aar"), helper.resolveArtifactToFile(artifact("b")));
+        assertEquals(3, resolutions.get());
+    }
+
+    @Test
+    public void resolutionsAreSharedThroughTheSessionCache() throws MojoExecutionException {
+        final DependencyGraphCache cache = new DependencyGraphCache();
+
+        newHelper(cache).resolveArtifactToFile(artifact("a"));
+        final File file = newHelper(cache).resolveArtifactToFile(artifact("a"));
+
+        assertEquals(new File("a.aar"), file);
+        assertEquals(1, resolutions.get());
+    }
+
+    @Test
+    public void failedResolutionsAreAttemptedAgain() throws MojoExecutionException {
+        final ArtifactResolverHelper helper = newHelper(null);
+        failures.set(1);
+
+        try {
+            helper.resolveArtifactToFile(artifact("a"));
+            fail("Expected the resolution to fail");
+        } catch (MojoExecutionException e) {
+            // expected
+        }
+
+        assertEquals(new File("a.aar"), helper.resolveArtifactToFile(artifact("a")));
+        assertEquals(2, resolutions.get());
+    }
+
+    @Test(timeout = 10000)
+    public void givenFailedBatchThenQueuedArtifactsCanStillBeResolved() throws MojoExecutionException {
+        final DependencyGraphCache cache = new DependencyGraphCache();
+        final List<Artifact> batch = new ArrayList<Artifact>();
+        for (int i = 0; i < 20; i++) {
+            batch.add(artifact("lib" + i));
+        }
+        failingArtifactId = "lib0";
+
+        try {
+            newHelper(cache).resolveArtifacts(batch);
+            fail("Expected the resolution to fail");
+        } catch (MojoExecutionException e) {
+            // expected
+        }
+
+        assertEquals(new File("lib19.aar"), newHelper(cache).resolveArtifactToFile(artifact("lib19")));
+        assertEquals(new File("lib1.aar"), newHelper(cache).resolveArtifactToFile(artifact("lib1")));
+    }
+
+    private ArtifactResolverHelper newHelper(DependencyGraphCache cache) {
+        final ArtifactResolver resolver = (ArtifactResolver) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[] { ArtifactResolver.class }, new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        final ArtifactResolutionRequest request = (ArtifactResolutionRequest) args[0];
+                        final ArtifactResolutionResult result = new ArtifactResolutionResult();
+                        final Artifact artifact = request.getArtifact();
+                        resolutions.incrementAndGet();
+                        if (artifact.getArtifactId().equals(failingArtifactId)) {
+                            return result;
+                        }
+                        Thread.sleep(20);
+                        if (failures.getAndDecrement() > 0) {
+                            return result;
+                        }
+                        artifact.setFile(new File(artifact.getArtifactId() + ".aar"));
+                        result.addArtifact(artifact);
+                        return result;
+                    }
+                });
+        return new ArtifactResolverHelper(resolver, new MavenToPlexusLogAdapter(new SilentLog()),
+                null, cache);
+    }
+
+    private static Artifact artifact(String artifactId) {
+        return new DefaultArtifact("com.example", artifactId, "1.0", "compile", "aar", null,
+                new DefaultArtifactHandler("aar"));
+    }
+}
@@ -0,0 +1,65 @@
+package com.simpligility.maven.plugins.android.common;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.testing.SilentLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class FolderMirrorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void laterFoldersOverlayEarlierOnesAndStaleFilesAreRemoved() throws IOException, MojoExecutionException {
+        final File library = new File(temporaryFolder.getRoot(), "library");
+        final File project = new File(temporaryFolder.getRoot(), "project");
+        final File combined = new File(temporaryFolder.getRoot(), "combined");
+        write(library, "fonts/font.ttf", "library font");
+        write(library, "config.json", "library config");
+        write(project, "config.json", "project config");
+        write(combined, "old/stale.txt", "stale");
+
+        final FolderMirror mirror = new FolderMirror(new SilentLog());
+        mirror.mirror(Arrays.asList(library, project, new File(temporaryFolder.getRoot(), "missing")), combined);
+
+        assertEquals("library font", read(combined, "fonts/font.ttf"));
+        assertEquals("project config", read(combined, "config.json"));
+        assertFalse(new File(combined, "old").exists());
+
+        new File(project, "config.json").delete();
+        mirror.mirror(Arrays.asList(library, project), combined);
+
+        assertEquals("library config", read(combined, "config.json"));
+    }
+
+    @Test
+    public void givenNoSourceFilesThenTargetFolderIsRemoved() throws IOException, MojoExecutionException {
+        final File combined = new File(temporaryFolder.getRoot(), "combined");
+        write(combined, "stale.txt", "stale");
+
+        new FolderMirror(new SilentLog()).mirror(Arrays.asList(new File(temporaryFolder.getRoot(), "missing")),
+                combined);
+
+        assertFalse(combined.exists());
+        assertTrue(temporaryFolder.getRoot().exists());
+    }
+
+    private static void write(File folder, String path, String content) throws IOException {
+        FileUtils.writeStringToFile(new File(folder, path), content, "UTF-8");
+    }
+
+    private static String read(File folder, String path) throws IOException {
+        return FileUtils.readFileToString(new File(folder, path), "UTF-8");
+    }
+}
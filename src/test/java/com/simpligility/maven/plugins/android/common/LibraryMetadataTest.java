@@ -0,0 +1,60 @@
+package com.simpligility.maven.plugins.android.common;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LibraryMetadataTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void metadataIsStoredAndCollectedAgainWhenSymbolsChange() throws IOException, MojoExecutionException {
+        final File library = temporaryFolder.getRoot();
+        write(library, "res/layout/main.xml", "<LinearLayout/>");
+        write(library, "res/values/strings.xml", "<resources/>");
+        write(library, "R.txt", "int string app_name 0x7f010000\n\nint layout main 0x7f020000\n");
+
+        final LibraryMetadata metadata = LibraryMetadata.forLibrary(library);
+
+        assertNull(metadata.getPackageName());
+        assertEquals(Arrays.asList("layout" + File.separator + "main.xml"),
+                Arrays.asList(metadata.getLayoutFileNames()));
+        assertTrue(metadata.hasSymbols());
+        assertEquals(2, metadata.getSymbolCount());
+        assertTrue(new File(library, LibraryMetadata.METADATA_FILE).isFile());
+
+        // A stored layout list is used as long as the library is not unpacked again.
+        write(library, "res/layout/other.xml", "<LinearLayout/>");
+        assertEquals(1, LibraryMetadata.forLibrary(library).getLayoutFileNames().length);
+
+        write(library, "R.txt", "int string app_name 0x7f010000\n");
+        final LibraryMetadata changed = LibraryMetadata.forLibrary(library);
+        assertEquals(1, changed.getSymbolCount());
+        assertEquals(2, changed.getLayoutFileNames().length);
+    }
+
+    @Test
+    public void givenNoSymbolFileThenLibraryHasNoSymbols() throws MojoExecutionException {
+        final LibraryMetadata metadata = LibraryMetadata.forLibrary(temporaryFolder.getRoot());
+
+        assertFalse(metadata.hasSymbols());
+        assertEquals(0, metadata.getLayoutFileNames().length);
+    }
+
+    private static void write(File folder, String path, String content) throws IOException {
+        FileUtils.writeStringToFile(new File(folder, path), content, "UTF-8");
+    }
+}
@@ -7,12 +7,18 @@ import com.simpligility.maven.plugins.android.common.NativeHelper;
 
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+import org.apache.maven.model.Dependency;
+import org.apache.maven.model.Exclusion;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.testing.SilentLog;
 import org.apache.maven.plugin.testing.stubs.ArtifactStub;
 import org.apache.maven.project.MavenProject;
 import org.apache.maven.shared.dependency.graph.DependencyGraphBuilder;
+import org.apache.maven.shared.dependency.graph.DependencyNode;
 import org.apache.maven.shared.dependency.graph.internal.DefaultDependencyGraphBuilder;
+import org.apache.maven.shared.dependency.graph.internal.DefaultDependencyNode;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Rule;
@@ -20,8 +26,10 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
@@ -79,6 +87,66 @@ public class NativeHelperTest {
         assertTrue("Included attached native artifacts, but shouldn't", nativeDependencies.isEmpty());
     }
 
+    @Test
+    public void transitiveNativeDependenciesAreCollectedFromOneGraphAndShared() throws Exception {
+        final MavenProject project = new MavenProject();
+        project.setDependencyArtifacts(Collections.<Artifact>emptySet());
+        final Dependency library = dependency("lib", AndroidExtension.AAR, Artifact.SCOPE_COMPILE);
+        final Exclusion exclusion = new Exclusion();
+        exclusion.setGroupId("acme");
+        exclusion.setArtifactId("excluded");
+        library.addExclusion(exclusion);
+        project.getModel().addDependency(library);
+        project.getModel().addDependency(dependency("provided", "jar", Artifact.SCOPE_PROVIDED));
+
+        final DefaultDependencyNode root = node(null, "app", "apk");
+        final DefaultDependencyNode libraryNode = node(root, "lib", AndroidExtension.AAR);
+        final DefaultDependencyNode excludedNode = node(libraryNode, "excluded", Const.ArtifactType.NATIVE_SYMBOL_OBJECT);
+        final DefaultDependencyNode providedNode = node(root, "provided", "jar");
+        final DefaultDependencyNode included = node(libraryNode, "included", Const.ArtifactType.NATIVE_SYMBOL_OBJECT);
+        root.setChildren(Arrays.<DependencyNode>asList(libraryNode, providedNode));
+        libraryNode.setChildren(Arrays.<DependencyNode>asList(included, excludedNode));
+        excludedNode.setChildren(Collections.<DependencyNode>singletonList(
+                node(excludedNode, "excluded-child", Const.ArtifactType.NATIVE_SYMBOL_OBJECT)));
+        providedNode.setChildren(Collections.<DependencyNode>singletonList(
+                node(providedNode, "provided-child", Const.ArtifactType.NATIVE_SYMBOL_OBJECT)));
+
+        final AtomicInteger builds = new AtomicInteger();
+        final DependencyGraphBuilder dependencyGraphBuilder = new DefaultDependencyGraphBuilder() {
+            @Override
+            public DependencyNode buildDependencyGraph(MavenProject project, ArtifactFilter filter) {
+                builds.incrementAndGet();
+                return root;
+            }
+        };
+
+        final DependencyGraphCache cache = new DependencyGraphCache();
+        final Set<Artifact> first = new NativeHelper(project, dependencyGraphBuilder, new SilentLog(), cache)
+                .getNativeDependenciesArtifacts(null, apklibDir.getRoot(), true);
+        final Set<Artifact> second = new NativeHelper(project, dependencyGraphBuilder, new SilentLog(), cache)
+                .getNativeDependenciesArtifacts(null, apklibDir.getRoot(), true);
+
+        assertEquals(Collections.singleton(included.getArtifact()), first);
+        assertEquals(first, second);
+        assertEquals(1, builds.get());
+    }
+
+    private static Dependency dependency(String artifactId, String type, String scope) {
+        final Dependency dependency = new Dependency();
+        dependency.setGroupId("acme");
+        dependency.setArtifactId(artifactId);
+        dependency.setVersion("1.0");
+        dependency.setType(type);
+        dependency.setScope(scope);
+        return dependency;
+    }
+
+    private static DefaultDependencyNode node(DependencyNode parent, String artifactId, String type) {
+        final Artifact artifact = new DefaultArtifact("acme", artifactId, "1.0", "compile", type, null,
+                new DefaultArtifactHandler(type));
+        return new DefaultDependencyNode(parent, artifact, null, null, null);
+    }
+
     @Test
     public void architectureResolutionForPlainArchitectureClassifier() throws Exception
     {
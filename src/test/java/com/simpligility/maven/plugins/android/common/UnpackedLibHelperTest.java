@@ -0,0 +1,113 @@
+package com.simpligility.maven.plugins.android.common;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.testing.SilentLog;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class UnpackedLibHelperTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AtomicInteger unpacked = new AtomicInteger();
+
+    private File unpackedLibs;
+    private File archive;
+    private File library;
+
+    @Before
+    public void setUp() throws IOException {
+        unpackedLibs = new File(temporaryFolder.getRoot(), "unpacked-libs");
+        archive = temporaryFolder.newFile("library.aar");
+        FileUtils.writeStringToFile(archive, "first", "UTF-8");
+        library = new File(unpackedLibs, "library");
+    }
+
+    @Test
+    public void unchangedArchiveIsNotUnpackedAgain() throws MojoExecutionException, IOException {
+        final UnpackedLibHelper helper = newHelper("1.0");
+
+        helper.unpackIfChanged("aar", archive, library, new CopyingUnpacker());
+        helper.unpackIfChanged("aar", archive, library, new CopyingUnpacker());
+
+        assertEquals(1, unpacked.get());
+        assertEquals("first", read(library));
+    }
+
+    @Test
+    public void changedArchiveOrPluginVersionIsUnpackedAgain() throws MojoExecutionException, IOException {
+        newHelper("1.0").unpackIfChanged("aar", archive, library, new CopyingUnpacker());
+        FileUtils.writeStringToFile(archive, "second", "UTF-8");
+        newHelper("1.0").unpackIfChanged("aar", archive, library, new CopyingUnpacker());
+
+        assertEquals(2, unpacked.get());
+        assertEquals("second", read(library));
+
+        newHelper("1.1").unpackIfChanged("aar", archive, library, new CopyingUnpacker());
+
+        assertEquals(3, unpacked.get());
+        assertEquals(Arrays.asList("library"), Arrays.asList(unpackedLibs.list()));
+    }
+
+    @Test
+    public void failedExtractionKeepsPreviousLibrary() throws MojoExecutionException, IOException {
+        newHelper("1.0").unpackIfChanged("aar", archive, library, new CopyingUnpacker());
+        FileUtils.writeStringToFile(archive, "second", "UTF-8");
+
+        try {
+            newHelper("1.0").unpackIfChanged("aar", archive, library, new UnpackedLibStore.Unpacker() {
+                @Override
+                public void unpack(File directory) throws MojoExecutionException {
+                    try {
+                        FileUtils.writeStringToFile(new File(directory, "content.txt"), "partial", "UTF-8");
+                    } catch (IOException e) {
+                        throw new MojoExecutionException("Could not unpack", e);
+                    }
+                    throw new MojoExecutionException("Corrupt archive");
+                }
+            });
+            fail("Expected the extraction to fail");
+        } catch (MojoExecutionException e) {
+            // expected
+        }
+
+        assertEquals("first", read(library));
+        assertEquals(Arrays.asList("library"), Arrays.asList(unpackedLibs.list()));
+
+        newHelper("1.0").unpackIfChanged("aar", archive, library, new CopyingUnpacker());
+        assertEquals("second", read(library));
+    }
+
+    private UnpackedLibHelper newHelper(String pluginVersion) {
+        return new UnpackedLibHelper(null, null, new MavenToPlexusLogAdapter(new SilentLog()), unpackedLibs, null,
+                pluginVersion);
+    }
+
+    private static String read(File library) throws IOException {
+        return FileUtils.readFileToString(new File(library, "content.txt"), "UTF-8");
+    }
+
+    private final class CopyingUnpacker implements UnpackedLibStore.Unpacker {
+        @Override
+        public void unpack(File directory) throws MojoExecutionException {
+            unpacked.incrementAndGet();
+            try {
+                FileUtils.copyFile(archive, new File(directory, "content.txt"));
+            } catch (IOException e) {
+                throw new MojoExecutionException("Could not unpack", e);
+            }
+        }
+    }
+}
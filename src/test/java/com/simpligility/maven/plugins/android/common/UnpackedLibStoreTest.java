@@ -0,0 +1,83 @@
+package com.simpligility.maven.plugins.android.common;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.testing.SilentLog;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+public class UnpackedLibStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final AtomicInteger unpacked = new AtomicInteger();
+
+    private UnpackedLibStore store;
+    private File archive;
+
+    @Before
+    public void setUp() throws IOException {
+        store = new UnpackedLibStore(new File(temporaryFolder.getRoot(), "store"),
+                new MavenToPlexusLogAdapter(new SilentLog()));
+        archive = temporaryFolder.newFile("library.aar");
+        FileUtils.writeStringToFile(archive, "archive content", "UTF-8");
+    }
+
+    @Test
+    public void libraryIsUnpackedOnceForAllProjects() throws MojoExecutionException, IOException {
+        final File first = new File(temporaryFolder.getRoot(), "first/unpacked-libs/library");
+        final File second = new File(temporaryFolder.getRoot(), "second/unpacked-libs/library");
+
+        store.unpack("aar", archive, first, new CountingUnpacker());
+        store.unpack("aar", archive, second, new CountingUnpacker());
+        store.unpack("aar", archive, second, new CountingUnpacker());
+
+        assertEquals(1, unpacked.get());
+        assertEquals("classes", FileUtils.readFileToString(new File(first, "res/values/classes.txt"), "UTF-8"));
+        assertEquals("classes", FileUtils.readFileToString(new File(second, "res/values/classes.txt"), "UTF-8"));
+        assertEquals(1, new File(temporaryFolder.getRoot(), "store").list().length);
+    }
+
+    @Test
+    public void writingThroughProjectLinkLeavesStoreUnchanged() throws MojoExecutionException, IOException {
+        assumeTrue("File permissions are not enforced for this user", arePermissionsEnforced());
+        final File project = new File(temporaryFolder.getRoot(), "project/unpacked-libs/library");
+
+        store.unpack("aar", archive, project, new CountingUnpacker());
+        try {
+            FileUtils.writeStringToFile(new File(project, "res/values/classes.txt"), "changed", "UTF-8");
+        } catch (IOException e) {
+            // expected, the published files are read-only
+        }
+
+        final File storeFolder = new File(temporaryFolder.getRoot(), "store").listFiles()[0];
+        assertEquals("classes", FileUtils.readFileToString(new File(storeFolder, "res/values/classes.txt"), "UTF-8"));
+    }
+
+    private boolean arePermissionsEnforced() throws IOException {
+        final File probe = temporaryFolder.newFile("probe");
+        return probe.setWritable(false, false) && !probe.canWrite();
+    }
+
+    private final class CountingUnpacker implements UnpackedLibStore.Unpacker {
+        @Override
+        public void unpack(File directory) throws MojoExecutionException {
+            unpacked.incrementAndGet();
+            try {
+                FileUtils.writeStringToFile(new File(directory, "res/values/classes.txt"), "classes", "UTF-8");
+            } catch (IOException e) {
+                throw new MojoExecutionException("Could not unpack", e);
+            }
+        }
+    }
+}
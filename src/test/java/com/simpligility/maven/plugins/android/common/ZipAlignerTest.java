@@ -0,0 +1,233 @@
+package com.simpligility.maven.plugins.android.common;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.security.KeyFactory;
+import java.security.MessageDigest;
+import java.security.Signature;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ZipAlignerTest {
+
+    private static final String[] ENTRIES = { "AndroidManifest.xml", "lib/armeabi/libfoo.so", "res/raw/data.bin",
+            "classes.dex", "lib/x86/libbar.so" };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File input;
+
+    @Before
+    public void setUp() throws IOException {
+        input = folder.newFile("input.apk");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(input))) {
+            for (String name : ENTRIES) {
+                final byte[] data = content(name);
+                final ZipEntry entry = new ZipEntry(name);
+                if (name.startsWith("res/")) {
+                    final CRC32 crc = new CRC32();
+                    crc.update(data);
+                    entry.setMethod(ZipEntry.STORED);
+                    entry.setSize(data.length);
+                    entry.setCrc(crc.getValue());
+                }
+                out.putNextEntry(entry);
+                out.write(data);
+                out.closeEntry();
+            }
+        }
+    }
+
+    @Test
+    public void givenStoreNativeLibrariesThenLibrariesAreStoredAndPageAligned() throws IOException {
+        final File output = folder.newFile("output.apk");
+        new ZipAligner(true).align(input, output);
+
+        try (ZipFile zipFile = new ZipFile(output)) {
+            for (String name : ENTRIES) {
+                final ZipEntry entry = zipFile.getEntry(name);
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    assertArrayEquals(name, content(name), IOUtils.toByteArray(in));
+                }
+                if (name.endsWith(".so")) {
+                    assertEquals(name, ZipEntry.STORED, entry.getMethod());
+                    assertEquals(name, 0, dataOffset(output, zipFile, name) % ZipAligner.PAGE_ALIGNMENT);
+                } else if (entry.getMethod() == ZipEntry.STORED) {
+                    assertEquals(name, 0, dataOffset(output, zipFile, name) % ZipAligner.DEFAULT_ALIGNMENT);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void givenCompressedLibrariesThenOnlyStoredEntriesAreAligned() throws IOException {
+        final File output = folder.newFile("output.apk");
+        new ZipAligner(false).align(input, output);
+
+        try (ZipFile zipFile = new ZipFile(output)) {
+            assertEquals(ZipEntry.DEFLATED, zipFile.getEntry("lib/x86/libbar.so").getMethod());
+            assertEquals(0, dataOffset(output, zipFile, "res/raw/data.bin") % ZipAligner.DEFAULT_ALIGNMENT);
+        }
+    }
+
+    @Test
+    public void givenAlignedArchiveThenAligningAgainGivesSameArchive() throws IOException {
+        final File first = folder.newFile("first.apk");
+        final File second = folder.newFile("second.apk");
+        new ZipAligner(true).align(input, first);
+        new ZipAligner(true).align(first, second);
+
+        assertArrayEquals(IOUtils.toByteArray(first.toURI()), IOUtils.toByteArray(second.toURI()));
+    }
+
+    @Test
+    public void givenAlignedArchiveThenAlignmentIsVerified() throws IOException {
+        final File output = folder.newFile("output.apk");
+        new ZipAligner(false).align(input, output);
+
+        assertTrue(ZipAligner.isAligned(output));
+    }
+
+    @Test
+    public void givenSignerThenSigningBlockPrecedesCentralDirectoryAndVerifies() throws Exception {
+        final File output = folder.newFile("signed.apk");
+        final File keyStore = new File(getClass().getResource("debug.keystore").toURI());
+        new ZipAligner(false).align(input, output,
+                ApkV2Signer.fromKeyStore(keyStore, "android", "androiddebugkey", "android"));
+
+        try (ZipFile zipFile = new ZipFile(output)) {
+            for (String name : ENTRIES) {
+                try (InputStream in = zipFile.getInputStream(zipFile.getEntry(name))) {
+                    assertArrayEquals(name, content(name), IOUtils.toByteArray(in));
+                }
+            }
+        }
+
+        final ByteBuffer apk = ByteBuffer.wrap(IOUtils.toByteArray(output.toURI())).order(ByteOrder.LITTLE_ENDIAN);
+        final int endOfCentralDirectory = apk.capacity() - 22;
+        final int centralDirectoryOffset = apk.getInt(endOfCentralDirectory + 16);
+        final byte[] magic = new byte[16];
+        apk.position(centralDirectoryOffset - 16);
+        apk.get(magic);
+        assertArrayEquals("APK Sig Block 42".getBytes("US-ASCII"), magic);
+
+        final int blockOffset = (int) (centralDirectoryOffset - apk.getLong(centralDirectoryOffset - 24) - 8);
+        apk.position(blockOffset + 8);
+        final long pairLength = apk.getLong();
+        assertEquals(0x7109871a, apk.getInt());
+        assertEquals(centralDirectoryOffset - 24, apk.position() - 4 + pairLength);
+
+        final ByteBuffer signer = lengthPrefixed(lengthPrefixed(apk));
+        final ByteBuffer signedData = lengthPrefixed(signer);
+        final ByteBuffer signatures = lengthPrefixed(signer);
+        final ByteBuffer publicKey = lengthPrefixed(signer);
+
+        final ByteBuffer signature = lengthPrefixed(signatures);
+        assertEquals(0x0103, signature.getInt());
+        final Signature verifier = Signature.getInstance("SHA256withRSA");
+        verifier.initVerify(KeyFactory.getInstance("RSA").generatePublic(
+                new X509EncodedKeySpec(bytes(publicKey))));
+        verifier.update(bytes(signedData.duplicate()));
+        assertTrue(verifier.verify(bytes(lengthPrefixed(signature))));
+
+        final ByteBuffer digest = lengthPrefixed(lengthPrefixed(signedData));
+        assertEquals(0x0103, digest.getInt());
+        final byte[] eocd = new byte[22];
+        apk.position(endOfCentralDirectory);
+        apk.get(eocd);
+        ByteBuffer.wrap(eocd).order(ByteOrder.LITTLE_ENDIAN).putInt(16, blockOffset);
+        final byte[] centralDirectory = new byte[endOfCentralDirectory - centralDirectoryOffset];
+        apk.position(centralDirectoryOffset);
+        apk.get(centralDirectory);
+        final byte[] entries = new byte[blockOffset];
+        apk.position(0);
+        apk.get(entries);
+        assertArrayEquals(contentDigest(entries, centralDirectory, eocd), bytes(lengthPrefixed(digest)));
+    }
+
+    private static byte[] contentDigest(byte[]... sections) throws Exception {
+        final MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        final ByteArrayOutputStream chunkDigests = new ByteArrayOutputStream();
+        int chunks = 0;
+        for (byte[] section : sections) {
+            for (int offset = 0; offset < section.length; offset += 1024 * 1024) {
+                final int length = Math.min(1024 * 1024, section.length - offset);
+                sha256.update((byte) 0xa5);
+                sha256.update(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(length).array());
+                sha256.update(section, offset, length);
+                chunkDigests.write(sha256.digest());
+                chunks++;
+            }
+        }
+        sha256.update((byte) 0x5a);
+        sha256.update(ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(chunks).array());
+        return sha256.digest(chunkDigests.toByteArray());
+    }
+
+    private static ByteBuffer lengthPrefixed(ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        final ByteBuffer result = buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        result.limit(length);
+        buffer.position(buffer.position() + length);
+        return result;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        final byte[] result = new byte[buffer.remaining()];
+        buffer.get(result);
+        return result;
+    }
+
+    private static byte[] content(String name) {
+        final byte[] data = new byte[1000 + name.length() * 997];
+        if (name.endsWith(".xml")) {
+            Arrays.fill(data, (byte) 'a');
+        } else {
+            new Random(name.hashCode()).nextBytes(data);
+        }
+        return data;
+    }
+
+    private static long dataOffset(File file, ZipFile zipFile, String name) throws IOException {
+        // the local header offsets are not exposed by ZipFile, but entries are written in order
+        long position = 0;
+        final Enumeration<? extends ZipEntry> entries = zipFile.entries();
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            while (entries.hasMoreElements()) {
+                final ZipEntry entry = entries.nextElement();
+                in.seek(position + 26);
+                final int nameLength = Short.reverseBytes(in.readShort()) & 0xffff;
+                final int extraLength = Short.reverseBytes(in.readShort()) & 0xffff;
+                final long dataOffset = position + 30 + nameLength + extraLength;
+                if (entry.getName().equals(name)) {
+                    return dataOffset;
+                }
+                position = dataOffset + entry.getCompressedSize();
+            }
+        }
+        throw new IOException("No entry " + name);
+    }
+}
@@ -0,0 +1,71 @@
+package com.simpligility.maven.plugins.android.common;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.testing.SilentLog;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ZipExtractorTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void givenManyEntriesThenAllButExcludedAreExtracted() throws IOException, MojoExecutionException {
+        final File archive = temporaryFolder.newFile("library.aar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive))) {
+            out.putNextEntry(new ZipEntry("res/"));
+            for (int i = 0; i < 200; i++) {
+                out.putNextEntry(new ZipEntry("res/values-" + (i % 7) + "/file" + i + ".xml"));
+                out.write(("content " + i).getBytes("UTF-8"));
+                out.putNextEntry(new ZipEntry("com/example/Class" + i + ".class"));
+                out.write(new byte[] { (byte) 0xca, (byte) 0xfe });
+            }
+            out.putNextEntry(new ZipEntry("empty/"));
+        }
+
+        final File target = new File(temporaryFolder.getRoot(), "unpacked");
+        newExtractor().extract(archive, target, ".class");
+
+        for (int i = 0; i < 200; i++) {
+            assertEquals("content " + i, FileUtils.readFileToString(
+                    new File(target, "res/values-" + (i % 7) + "/file" + i + ".xml"), "UTF-8"));
+        }
+        assertFalse(new File(target, "com").exists());
+        assertTrue(new File(target, "empty").isDirectory());
+    }
+
+    @Test
+    public void givenEntryOutsideOfTargetThenExtractionFails() throws IOException {
+        final File archive = temporaryFolder.newFile("evil.zip");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(archive))) {
+            out.putNextEntry(new ZipEntry("../evil.txt"));
+            out.write(1);
+        }
+
+        try {
+            newExtractor().extract(archive, new File(temporaryFolder.getRoot(), "unpacked"));
+            fail("Expected the extraction to fail");
+        } catch (MojoExecutionException e) {
+            // expected
+        }
+        assertFalse(new File(temporaryFolder.getRoot(), "evil.txt").exists());
+    }
+
+    private static ZipExtractor newExtractor() {
+        return new ZipExtractor(new MavenToPlexusLogAdapter(new SilentLog()));
+    }
+}